@@ -3,6 +3,8 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,12 +15,19 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.dto.AutocompleteDto;
+import ru.yandex.practicum.filmorate.dto.FilmBatchResultDto;
 import ru.yandex.practicum.filmorate.dto.FilmDto;
+import ru.yandex.practicum.filmorate.dto.FilmPageDto;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @Slf4j
@@ -26,12 +35,33 @@ import java.util.List;
 @RequestMapping("/films")
 @RequiredArgsConstructor
 public class FilmController {
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 	private final FilmService filmService;
+	private final FilmImportService filmImportService;
 	private final Validation validation;
 
 	@GetMapping
-	public List<FilmDto> findAll() {
-		return filmService.findAll();
+	public ResponseEntity<List<FilmDto>> findAll(@RequestParam(required = false) Integer limit,
+												 @RequestParam(required = false) Long after,
+												 @RequestParam(defaultValue = "false") boolean unpaged) {
+		if (unpaged) {
+			return ResponseEntity.ok(filmService.findAll());
+		}
+
+		FilmPageDto page = filmService.findPage(after, limit);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.nextCursor() != null) {
+			response.header(NEXT_CURSOR_HEADER, String.valueOf(page.nextCursor()));
+		}
+		return response.body(page.films());
+	}
+
+	@GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportFilms() {
+		StreamingResponseBody body = filmService::exportFilms;
+		return ResponseEntity.ok()
+			.contentType(MediaType.APPLICATION_NDJSON)
+			.body(body);
 	}
 
 	@GetMapping("/{id}")
@@ -46,6 +76,11 @@ public class FilmController {
 		return filmService.createFilm(film);
 	}
 
+	@PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+	public List<FilmBatchResultDto> importFilms(InputStream body) throws IOException {
+		return filmImportService.importFilms(body);
+	}
+
 	@PutMapping
 	public FilmDto updateFilm(@RequestBody Film film) {
 		if (film.getId() == null) {
@@ -80,6 +115,12 @@ public class FilmController {
 		return filmService.getPopularFilms(count, genreId, year);
 	}
 
+	@GetMapping("/{id}/similar")
+	public List<FilmDto> getSimilarFilms(@PathVariable Long id,
+										 @RequestParam(required = false) Integer limit) {
+		return filmService.getSimilarFilms(id, limit);
+	}
+
 	@GetMapping("/common")
 	public List<FilmDto> getCommonFilms(@RequestParam Long userId, @RequestParam Long friendId) {
 		return filmService.getCommonFilms(userId, friendId);
@@ -92,8 +133,16 @@ public class FilmController {
 	}
 
 	@GetMapping("/search")
-	public List<FilmDto> searchFilms(@RequestParam String query, @RequestParam String by) {
-		return filmService.searchFilms(query, by);
+	public List<FilmDto> searchFilms(@RequestParam String query,
+									 @RequestParam String by,
+									 @RequestParam(defaultValue = "false") boolean fuzzy,
+									 @RequestParam(required = false) Integer limit) {
+		return filmService.searchFilms(query, by, fuzzy, limit);
 	}
-}
 
+	@GetMapping("/autocomplete")
+	public List<AutocompleteDto> autocomplete(@RequestParam String prefix,
+											  @RequestParam(required = false) Integer limit) {
+		return filmService.autocomplete(prefix, limit);
+	}
+}
@@ -3,21 +3,29 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.dto.ConnectionDto;
+import ru.yandex.practicum.filmorate.dto.FeedPageDto;
 import ru.yandex.practicum.filmorate.dto.FilmDto;
 import ru.yandex.practicum.filmorate.dto.UserDto;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.EventService;
+import ru.yandex.practicum.filmorate.service.FeedStreamService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
@@ -28,8 +36,12 @@ import java.util.List;
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class UserController {
+	private static final String PREV_CURSOR_HEADER = "X-Prev-Cursor";
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	private static final String LAST_CURSOR_HEADER = "X-Last-Cursor";
    private final UserService userService;
    private final EventService eventService;
+   private final FeedStreamService feedStreamService;
    private final Validation validation;
 
 	@GetMapping
@@ -81,18 +93,77 @@ public class UserController {
 		return userService.getListFriends(id);
 	}
 
+	@GetMapping("/{id}/friends/suggestions")
+	public List<UserDto> getFriendSuggestions(@PathVariable Long id,
+											  @RequestParam(required = false) Integer limit) {
+		return userService.getFriendSuggestions(id, limit);
+	}
+
+	@GetMapping("/{id}/distance/{otherId}")
+	public ConnectionDto getDistance(@PathVariable Long id, @PathVariable Long otherId) {
+		return userService.getDistance(id, otherId);
+	}
+
+	@GetMapping("/{id}/distance/{otherId}/path")
+	public ConnectionDto getConnectionPath(@PathVariable Long id,
+										   @PathVariable Long otherId,
+										   @RequestParam(required = false) Integer maxDepth) {
+		return userService.getConnectionPath(id, otherId, maxDepth);
+	}
+
   @GetMapping("/{id}/friends/common/{otherId}")
   public List<UserDto> getMutualFriends(@PathVariable Long id, @PathVariable Long otherId) {
       return userService.getMutualFriends(id, otherId);
   }
 
-  @GetMapping("/{id}/feed")
-  public List<Event> getFeed(@PathVariable Long id) {
-      return eventService.getByUserId(id);
-  }
+	@GetMapping("/{id}/feed")
+	public ResponseEntity<List<Event>> getFeed(@PathVariable Long id,
+											   @RequestParam(required = false) Integer limit,
+											   @RequestParam(required = false) String before,
+											   @RequestParam(required = false) String after,
+											   @RequestParam(defaultValue = "false") boolean unpaged) {
+		if (unpaged) {
+			return ResponseEntity.ok(eventService.getByUserId(id));
+		}
+
+		FeedPageDto page = eventService.getFeed(id, limit, before, after);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.prevCursor() != null) {
+			response.header(PREV_CURSOR_HEADER, page.prevCursor());
+		}
+		if (page.nextCursor() != null) {
+			response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+		}
+		if (page.lastCursor() != null) {
+			response.header(LAST_CURSOR_HEADER, page.lastCursor());
+		}
+		return response.body(page.events());
+	}
+
+	@GetMapping("/{id}/timeline")
+	public ResponseEntity<List<Event>> getTimeline(@PathVariable Long id,
+												   @RequestParam(required = false) Integer limit,
+												   @RequestParam(required = false) String before) {
+		FeedPageDto page = eventService.getTimeline(id, limit, before);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.prevCursor() != null) {
+			response.header(PREV_CURSOR_HEADER, page.prevCursor());
+		}
+		if (page.lastCursor() != null) {
+			response.header(LAST_CURSOR_HEADER, page.lastCursor());
+		}
+		return response.body(page.events());
+	}
+
+	@GetMapping(value = "/{id}/feed/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamFeed(@PathVariable Long id,
+								 @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+		return feedStreamService.subscribe(id, lastEventId);
+	}
 
     @GetMapping("/{id}/recommendations")
-    public List<FilmDto> getRecommendations(@PathVariable Long id) {
-        return userService.getRecommendations(id);
+    public List<FilmDto> getRecommendations(@PathVariable Long id,
+                                            @RequestParam(required = false) Integer limit) {
+        return userService.getRecommendations(id, limit);
     }
 }
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import ru.yandex.practicum.filmorate.index.search.FilmSearchIndex.SuggestionType;
+
+public record AutocompleteDto(
+	SuggestionType type,
+	Long id,
+	String name) {
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ConnectionDto(
+	Long userId,
+	Long otherId,
+	Integer distance,
+	List<UserDto> path) {
+}
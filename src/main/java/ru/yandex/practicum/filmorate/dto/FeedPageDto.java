@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.List;
+
+public record FeedPageDto(
+	List<Event> events,
+	String prevCursor,
+	String nextCursor,
+	String lastCursor) {
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FilmBatchResultDto(
+	int index,
+	Long id,
+	String error) {
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import java.util.List;
+
+public record FilmPageDto(
+	List<FilmDto> films,
+	Long nextCursor) {
+}
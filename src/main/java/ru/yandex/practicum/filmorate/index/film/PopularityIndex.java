@@ -0,0 +1,273 @@
+package ru.yandex.practicum.filmorate.index.film;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рейтинг фильмов по количеству лайков в памяти: общий, по жанру, по году и по жанру и году.
+ * Порядок совпадает с FilmDbStorage.getPopularFilms: likes_count DESC, film_id ASC.
+ */
+@Slf4j
+@Component
+public class PopularityIndex implements MeterBinder {
+	private static final String LOAD_FILMS_QUERY =
+		"SELECT film_id, release_date, likes_count FROM films";
+	private static final String LOAD_GENRES_QUERY =
+		"SELECT film_id, genre_id FROM film_genre ORDER BY film_id";
+	private static final Comparator<Rank> ORDER = Comparator.comparingLong(Rank::likes).reversed()
+		.thenComparingLong(Rank::filmId);
+	// Оценка для TreeMap.Entry + Rank, используется только для метрики
+	private static final long BYTES_PER_RANK = 72;
+	private static final long BYTES_PER_FILM = 96;
+
+	private final JdbcTemplate jdbc;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private State state = new State();
+	private volatile long lastRebuildMillis;
+
+	public PopularityIndex(JdbcTemplate jdbc) {
+		this.jdbc = jdbc;
+	}
+
+	@PostConstruct
+	public void rebuild() {
+		long start = System.nanoTime();
+		State rebuilt = new State();
+		Map<Long, List<Integer>> genresByFilm = new HashMap<>();
+
+		jdbc.query(LOAD_GENRES_QUERY, rs -> {
+			genresByFilm.computeIfAbsent(rs.getLong("film_id"), id -> new ArrayList<>()).add(rs.getInt("genre_id"));
+		});
+		jdbc.query(LOAD_FILMS_QUERY, rs -> {
+			long filmId = rs.getLong("film_id");
+			Date releaseDate = rs.getDate("release_date");
+			int[] genres = genresByFilm.getOrDefault(filmId, List.of()).stream()
+				.mapToInt(Integer::intValue)
+				.toArray();
+			rebuilt.insert(filmId, rs.getLong("likes_count"), genres,
+				releaseDate != null ? releaseDate.toLocalDate().getYear() : null);
+		});
+
+		lock.writeLock().lock();
+		try {
+			state = rebuilt;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+		log.info("Индекс популярности перестроен за {} мс: фильмов {}, примерный объём {} байт",
+			lastRebuildMillis, rebuilt.stats.size(), estimateMemoryBytes());
+	}
+
+	public void addFilm(Film film) {
+		lock.writeLock().lock();
+		try {
+			state.insert(film.getId(), 0, genreIds(film), releaseYear(film));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void updateFilm(Film film) {
+		lock.writeLock().lock();
+		try {
+			FilmStats old = state.remove(film.getId());
+			state.insert(film.getId(), old != null ? old.likes : 0, genreIds(film), releaseYear(film));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeFilm(Long filmId) {
+		lock.writeLock().lock();
+		try {
+			state.remove(filmId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void changeLikes(Long filmId, long delta) {
+		lock.writeLock().lock();
+		try {
+			FilmStats old = state.remove(filmId);
+			if (old == null) {
+				log.warn("Фильм с id = {} отсутствует в индексе популярности", filmId);
+				return;
+			}
+			state.insert(filmId, Math.max(0, old.likes + delta), old.genres, old.year);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public long getLikes(Long filmId) {
+		lock.readLock().lock();
+		try {
+			FilmStats stats = state.stats.get(filmId);
+			return stats != null ? stats.likes : 0;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public List<Long> getTop(int count, Integer genreId, Integer year) {
+		lock.readLock().lock();
+		try {
+			NavigableSet<Rank> ranks;
+			if (genreId != null && year != null) {
+				ranks = state.byGenreAndYear.get(genreAndYear(genreId, year));
+			} else if (genreId != null) {
+				ranks = state.byGenre.get(genreId);
+			} else if (year != null) {
+				ranks = state.byYear.get(year);
+			} else {
+				ranks = state.global;
+			}
+
+			if (ranks == null) {
+				return List.of();
+			}
+
+			List<Long> filmIds = new ArrayList<>(Math.min(count, ranks.size()));
+			for (Rank rank : ranks) {
+				if (filmIds.size() >= count) {
+					break;
+				}
+				filmIds.add(rank.filmId());
+			}
+			return filmIds;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getLastRebuildMillis() {
+		return lastRebuildMillis;
+	}
+
+	public long estimateMemoryBytes() {
+		lock.readLock().lock();
+		try {
+			return state.stats.size() * BYTES_PER_FILM + state.ranks * BYTES_PER_RANK;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("filmorate.popularity.index.rebuild.time", this, PopularityIndex::getLastRebuildMillis)
+			.baseUnit("milliseconds")
+			.register(registry);
+		Gauge.builder("filmorate.popularity.index.memory", this, PopularityIndex::estimateMemoryBytes)
+			.baseUnit("bytes")
+			.register(registry);
+	}
+
+	private static int[] genreIds(Film film) {
+		if (film.getGenres() == null) {
+			return new int[0];
+		}
+		return film.getGenres().stream()
+			.map(Genre::getId)
+			.filter(Objects::nonNull)
+			.mapToInt(Integer::intValue)
+			.distinct()
+			.toArray();
+	}
+
+	private static Integer releaseYear(Film film) {
+		return film.getReleaseDate() != null ? film.getReleaseDate().getYear() : null;
+	}
+
+	private static long genreAndYear(int genreId, int year) {
+		return ((long) genreId << 32) | (year & 0xFFFFFFFFL);
+	}
+
+	private record Rank(long filmId, long likes) {
+	}
+
+	private record FilmStats(long likes, int[] genres, Integer year) {
+	}
+
+	private static final class State {
+		private final Map<Long, FilmStats> stats = new HashMap<>();
+		private final NavigableSet<Rank> global = new TreeSet<>(ORDER);
+		private final Map<Integer, NavigableSet<Rank>> byGenre = new HashMap<>();
+		private final Map<Integer, NavigableSet<Rank>> byYear = new HashMap<>();
+		private final Map<Long, NavigableSet<Rank>> byGenreAndYear = new HashMap<>();
+		private long ranks;
+
+		private void insert(long filmId, long likes, int[] genres, Integer year) {
+			Rank rank = new Rank(filmId, likes);
+			stats.put(filmId, new FilmStats(likes, genres, year));
+
+			global.add(rank);
+			ranks++;
+			for (int genreId : genres) {
+				byGenre.computeIfAbsent(genreId, key -> new TreeSet<>(ORDER)).add(rank);
+				ranks++;
+			}
+			if (year != null) {
+				byYear.computeIfAbsent(year, key -> new TreeSet<>(ORDER)).add(rank);
+				ranks++;
+				for (int genreId : genres) {
+					byGenreAndYear.computeIfAbsent(genreAndYear(genreId, year), key -> new TreeSet<>(ORDER)).add(rank);
+					ranks++;
+				}
+			}
+		}
+
+		private FilmStats remove(long filmId) {
+			FilmStats old = stats.remove(filmId);
+			if (old == null) {
+				return null;
+			}
+
+			Rank rank = new Rank(filmId, old.likes);
+			global.remove(rank);
+			ranks--;
+			for (int genreId : old.genres) {
+				removeFrom(byGenre, genreId, rank);
+			}
+			if (old.year != null) {
+				removeFrom(byYear, old.year, rank);
+				for (int genreId : old.genres) {
+					removeFrom(byGenreAndYear, genreAndYear(genreId, old.year), rank);
+				}
+			}
+			return old;
+		}
+
+		private <K> void removeFrom(Map<K, NavigableSet<Rank>> ranksByKey, K key, Rank rank) {
+			NavigableSet<Rank> set = ranksByKey.get(key);
+			if (set != null && set.remove(rank)) {
+				ranks--;
+				if (set.isEmpty()) {
+					ranksByKey.remove(key);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package ru.yandex.practicum.filmorate.index.recommendation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Для каждого фильма — ограниченный список фильмов, которые чаще всего лайкали вместе с ним.
+ * При полной перестройке счётчики точные, дальше обновляются по алгоритму Space-Saving:
+ * новый фильм в заполненном списке вытесняет самый редкий и наследует его счётчик.
+ * Не потокобезопасен.
+ */
+final class CoLikeIndex {
+	private final int capacity;
+	private final Map<Long, TopCounter> counters = new HashMap<>();
+
+	CoLikeIndex(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Точные счётчики по матрице лайков: для фильма обходятся его пользователи и их фильмы.
+	 */
+	static CoLikeIndex build(LikeMatrix matrix, Iterable<Long> filmIds, int capacity) {
+		CoLikeIndex index = new CoLikeIndex(capacity);
+		for (long filmId : filmIds) {
+			Map<Long, int[]> counts = new HashMap<>();
+			long[] users = matrix.users(filmId);
+			int userCount = matrix.userCount(filmId);
+			for (int i = 0; i < userCount; i++) {
+				matrix.films(users[i]).forEach(other -> {
+					if (other != filmId) {
+						counts.computeIfAbsent(other, id -> new int[1])[0]++;
+					}
+				});
+			}
+			if (counts.isEmpty()) {
+				continue;
+			}
+
+			List<Map.Entry<Long, int[]>> top = new ArrayList<>(counts.entrySet());
+			top.sort(Comparator.<Map.Entry<Long, int[]>>comparingInt(entry -> entry.getValue()[0]).reversed()
+				.thenComparing(Map.Entry::getKey));
+			TopCounter counter = new TopCounter(capacity);
+			for (int i = 0; i < Math.min(capacity, top.size()); i++) {
+				counter.put(top.get(i).getKey(), top.get(i).getValue()[0]);
+			}
+			index.counters.put(filmId, counter);
+		}
+		return index;
+	}
+
+	/**
+	 * Пользователь лайкнул filmId, его лайки теперь films.
+	 */
+	void liked(long filmId, LikeBitmap films) {
+		films.forEach(other -> {
+			if (other != filmId) {
+				counter(filmId).increment(other);
+				counter(other).increment(filmId);
+			}
+		});
+	}
+
+	/**
+	 * Пользователь убрал лайк filmId, оставив films.
+	 */
+	void unliked(long filmId, LikeBitmap films) {
+		films.forEach(other -> {
+			if (other != filmId) {
+				decrement(filmId, other);
+				decrement(other, filmId);
+			}
+		});
+	}
+
+	void removeFilm(long filmId, Iterable<Long> coLikedFilms) {
+		counters.remove(filmId);
+		for (long other : coLikedFilms) {
+			TopCounter counter = counters.get(other);
+			if (counter != null) {
+				counter.remove(filmId);
+			}
+		}
+	}
+
+	/**
+	 * До limit фильмов по убыванию числа совместных лайков; при равенстве — по возрастанию id.
+	 */
+	List<CoLike> top(long filmId, int limit) {
+		TopCounter counter = counters.get(filmId);
+		if (counter == null) {
+			return List.of();
+		}
+
+		List<CoLike> result = new ArrayList<>(counter.size);
+		for (int i = 0; i < counter.size; i++) {
+			result.add(new CoLike(counter.ids[i], counter.counts[i]));
+		}
+		result.sort(Comparator.comparingLong(CoLike::count).reversed().thenComparingLong(CoLike::filmId));
+		return result.size() > limit ? result.subList(0, limit) : result;
+	}
+
+	long estimateMemoryBytes() {
+		return counters.size() * (96L + 2L * (16 + (long) capacity * Long.BYTES));
+	}
+
+	private TopCounter counter(long filmId) {
+		return counters.computeIfAbsent(filmId, id -> new TopCounter(capacity));
+	}
+
+	private void decrement(long filmId, long other) {
+		TopCounter counter = counters.get(filmId);
+		if (counter != null) {
+			counter.decrement(other);
+			if (counter.size == 0) {
+				counters.remove(filmId);
+			}
+		}
+	}
+
+	record CoLike(long filmId, long count) {
+	}
+
+	/**
+	 * Счётчики в параллельных массивах фиксированной ёмкости, поиск линейный — ёмкость невелика.
+	 */
+	private static final class TopCounter {
+		private final long[] ids;
+		private final long[] counts;
+		private int size;
+
+		private TopCounter(int capacity) {
+			ids = new long[capacity];
+			counts = new long[capacity];
+		}
+
+		private void put(long id, long count) {
+			ids[size] = id;
+			counts[size] = count;
+			size++;
+		}
+
+		private void increment(long id) {
+			int pos = indexOf(id);
+			if (pos >= 0) {
+				counts[pos]++;
+			} else if (size < ids.length) {
+				put(id, 1);
+			} else {
+				int min = 0;
+				for (int i = 1; i < size; i++) {
+					if (counts[i] < counts[min]) {
+						min = i;
+					}
+				}
+				ids[min] = id;
+				counts[min]++;
+			}
+		}
+
+		private void decrement(long id) {
+			int pos = indexOf(id);
+			if (pos < 0) {
+				return;
+			}
+			if (--counts[pos] <= 0) {
+				remove(id);
+			}
+		}
+
+		private void remove(long id) {
+			int pos = indexOf(id);
+			if (pos < 0) {
+				return;
+			}
+			size--;
+			ids[pos] = ids[size];
+			counts[pos] = counts[size];
+		}
+
+		private int indexOf(long id) {
+			for (int i = 0; i < size; i++) {
+				if (ids[i] == id) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+}
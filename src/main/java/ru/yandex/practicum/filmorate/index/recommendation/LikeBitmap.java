@@ -0,0 +1,307 @@
+package ru.yandex.practicum.filmorate.index.recommendation;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Множество id фильмов в духе Roaring: id делится на старшую часть (id >>> 16), по которой ищется контейнер,
+ * и младшие 16 бит внутри контейнера. Разреженный контейнер — отсортированный char[],
+ * плотный (больше 4096 значений) — битовая карта на 65536 бит. Не потокобезопасно.
+ */
+final class LikeBitmap {
+	static final LikeBitmap EMPTY = new LikeBitmap();
+
+	private static final int ARRAY_MAX = 4096;
+	private static final int BITMAP_WORDS = 1024;
+
+	private long[] keys = new long[0];
+	private Container[] containers = new Container[0];
+	private int size;
+	private long cardinality;
+
+	boolean add(long id) {
+		long key = id >>> 16;
+		char low = (char) id;
+		int pos = Arrays.binarySearch(keys, 0, size, key);
+		if (pos < 0) {
+			pos = -pos - 1;
+			insertContainer(pos, key, new ArrayContainer());
+		}
+
+		Container container = containers[pos];
+		if (container.contains(low)) {
+			return false;
+		}
+		if (container instanceof ArrayContainer array && array.size == ARRAY_MAX) {
+			container = array.toBitmap();
+			containers[pos] = container;
+		}
+		container.add(low);
+		cardinality++;
+		return true;
+	}
+
+	boolean remove(long id) {
+		int pos = Arrays.binarySearch(keys, 0, size, id >>> 16);
+		if (pos < 0 || !containers[pos].remove((char) id)) {
+			return false;
+		}
+
+		cardinality--;
+		Container container = containers[pos];
+		if (container.cardinality() == 0) {
+			System.arraycopy(keys, pos + 1, keys, pos, size - pos - 1);
+			System.arraycopy(containers, pos + 1, containers, pos, size - pos - 1);
+			size--;
+			containers[size] = null;
+		} else if (container instanceof BitmapContainer bitmap && bitmap.cardinality <= ARRAY_MAX / 2) {
+			// обратно в массив с запасом, чтобы не переключаться туда-обратно на границе
+			containers[pos] = bitmap.toArray();
+		}
+		return true;
+	}
+
+	boolean contains(long id) {
+		int pos = Arrays.binarySearch(keys, 0, size, id >>> 16);
+		return pos >= 0 && containers[pos].contains((char) id);
+	}
+
+	long cardinality() {
+		return cardinality;
+	}
+
+	boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+	/**
+	 * Пересечение: контейнеры сопоставляются по старшей части слиянием отсортированных ключей.
+	 */
+	LikeBitmap and(LikeBitmap other) {
+		LikeBitmap result = new LikeBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				Container common = containers[i].and(other.containers[j]);
+				if (common.cardinality() > 0) {
+					result.insertContainer(result.size, keys[i], common);
+					result.cardinality += common.cardinality();
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Обходит id по возрастанию.
+	 */
+	void forEach(LongConsumer consumer) {
+		for (int i = 0; i < size; i++) {
+			containers[i].forEach(keys[i] << 16, consumer);
+		}
+	}
+
+	long[] toArray() {
+		long[] result = new long[(int) cardinality];
+		int[] next = new int[1];
+		forEach(id -> result[next[0]++] = id);
+		return result;
+	}
+
+	long estimateMemoryBytes() {
+		long bytes = 48 + keys.length * (Long.BYTES + 4L);
+		for (int i = 0; i < size; i++) {
+			bytes += containers[i].estimateMemoryBytes();
+		}
+		return bytes;
+	}
+
+	private void insertContainer(int pos, long key, Container container) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size + 1);
+			containers = Arrays.copyOf(containers, size + 1);
+		}
+		System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+		System.arraycopy(containers, pos, containers, pos + 1, size - pos);
+		keys[pos] = key;
+		containers[pos] = container;
+		size++;
+	}
+
+	private abstract static sealed class Container permits ArrayContainer, BitmapContainer {
+		abstract boolean contains(char value);
+
+		abstract void add(char value);
+
+		abstract boolean remove(char value);
+
+		abstract int cardinality();
+
+		abstract Container and(Container other);
+
+		abstract void forEach(long base, LongConsumer consumer);
+
+		abstract long estimateMemoryBytes();
+	}
+
+	private static final class ArrayContainer extends Container {
+		private char[] values = new char[4];
+		private int size;
+
+		@Override
+		boolean contains(char value) {
+			return Arrays.binarySearch(values, 0, size, value) >= 0;
+		}
+
+		@Override
+		void add(char value) {
+			int pos = -Arrays.binarySearch(values, 0, size, value) - 1;
+			if (size == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size + (size >> 1) + 1));
+			}
+			System.arraycopy(values, pos, values, pos + 1, size - pos);
+			values[pos] = value;
+			size++;
+		}
+
+		@Override
+		boolean remove(char value) {
+			int pos = Arrays.binarySearch(values, 0, size, value);
+			if (pos < 0) {
+				return false;
+			}
+			System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+			size--;
+			return true;
+		}
+
+		@Override
+		int cardinality() {
+			return size;
+		}
+
+		@Override
+		Container and(Container other) {
+			ArrayContainer result = new ArrayContainer();
+			if (other instanceof ArrayContainer array) {
+				result.values = new char[Math.min(size, array.size)];
+				int i = 0;
+				int j = 0;
+				while (i < size && j < array.size) {
+					if (values[i] < array.values[j]) {
+						i++;
+					} else if (values[i] > array.values[j]) {
+						j++;
+					} else {
+						result.values[result.size++] = values[i];
+						i++;
+						j++;
+					}
+				}
+			} else {
+				result.values = new char[size];
+				for (int i = 0; i < size; i++) {
+					if (other.contains(values[i])) {
+						result.values[result.size++] = values[i];
+					}
+				}
+			}
+			return result;
+		}
+
+		@Override
+		void forEach(long base, LongConsumer consumer) {
+			for (int i = 0; i < size; i++) {
+				consumer.accept(base | values[i]);
+			}
+		}
+
+		@Override
+		long estimateMemoryBytes() {
+			return 32 + 16 + values.length * 2L;
+		}
+
+		private BitmapContainer toBitmap() {
+			BitmapContainer bitmap = new BitmapContainer();
+			for (int i = 0; i < size; i++) {
+				bitmap.add(values[i]);
+			}
+			return bitmap;
+		}
+	}
+
+	private static final class BitmapContainer extends Container {
+		private final long[] words = new long[BITMAP_WORDS];
+		private int cardinality;
+
+		@Override
+		boolean contains(char value) {
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		@Override
+		void add(char value) {
+			words[value >>> 6] |= 1L << value;
+			cardinality++;
+		}
+
+		@Override
+		boolean remove(char value) {
+			if (!contains(value)) {
+				return false;
+			}
+			words[value >>> 6] &= ~(1L << value);
+			cardinality--;
+			return true;
+		}
+
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		Container and(Container other) {
+			if (other instanceof ArrayContainer array) {
+				return array.and(this);
+			}
+			BitmapContainer bitmap = (BitmapContainer) other;
+			BitmapContainer result = new BitmapContainer();
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				result.words[i] = words[i] & bitmap.words[i];
+				result.cardinality += Long.bitCount(result.words[i]);
+			}
+			return result.cardinality <= ARRAY_MAX ? result.toArray() : result;
+		}
+
+		@Override
+		void forEach(long base, LongConsumer consumer) {
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long word = words[i];
+				while (word != 0) {
+					consumer.accept(base | ((long) i << 6) | Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+		}
+
+		@Override
+		long estimateMemoryBytes() {
+			return 32 + 16 + BITMAP_WORDS * 8L;
+		}
+
+		private ArrayContainer toArray() {
+			ArrayContainer array = new ArrayContainer();
+			array.values = new char[cardinality];
+			forEach(0, value -> array.values[array.size++] = (char) value);
+			return array;
+		}
+	}
+}
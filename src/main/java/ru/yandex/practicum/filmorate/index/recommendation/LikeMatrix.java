@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.index.recommendation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Разреженная матрица лайков пользователь × фильм. Строка пользователя — LikeBitmap по id фильмов,
+ * столбец фильма — отсортированный массив id пользователей. Не потокобезопасна.
+ */
+final class LikeMatrix {
+	private static final long[] EMPTY = new long[0];
+	// Оценка для записи HashMap с ключом Long и объектом Row
+	private static final long BYTES_PER_ROW = 112;
+
+	private final Map<Long, LikeBitmap> filmsByUser = new HashMap<>();
+	private final Map<Long, Row> usersByFilm = new HashMap<>();
+	private long likes;
+
+	boolean add(long userId, long filmId) {
+		if (!filmsByUser.computeIfAbsent(userId, id -> new LikeBitmap()).add(filmId)) {
+			return false;
+		}
+		usersByFilm.computeIfAbsent(filmId, id -> new Row()).add(userId);
+		likes++;
+		return true;
+	}
+
+	boolean remove(long userId, long filmId) {
+		LikeBitmap films = filmsByUser.get(userId);
+		if (films == null || !films.remove(filmId)) {
+			return false;
+		}
+		if (films.isEmpty()) {
+			filmsByUser.remove(userId);
+		}
+		removeFrom(usersByFilm, filmId, userId);
+		likes--;
+		return true;
+	}
+
+	void removeFilm(long filmId) {
+		Row users = usersByFilm.remove(filmId);
+		if (users == null) {
+			return;
+		}
+		for (int i = 0; i < users.size; i++) {
+			LikeBitmap films = filmsByUser.get(users.ids[i]);
+			films.remove(filmId);
+			if (films.isEmpty()) {
+				filmsByUser.remove(users.ids[i]);
+			}
+		}
+		likes -= users.size;
+	}
+
+	/**
+	 * Фильмы пользователя. Возвращается внутреннее множество — изменять его нельзя.
+	 */
+	LikeBitmap films(long userId) {
+		return filmsByUser.getOrDefault(userId, LikeBitmap.EMPTY);
+	}
+
+	int filmCount(long userId) {
+		return (int) films(userId).cardinality();
+	}
+
+	/**
+	 * Пользователи, лайкнувшие фильм, по возрастанию id. Значимы первые userCount(filmId).
+	 */
+	long[] users(long filmId) {
+		Row row = usersByFilm.get(filmId);
+		return row != null ? row.ids : EMPTY;
+	}
+
+	int userCount(long filmId) {
+		Row row = usersByFilm.get(filmId);
+		return row != null ? row.size : 0;
+	}
+
+	boolean contains(long userId, long filmId) {
+		return films(userId).contains(filmId);
+	}
+
+	Iterable<Long> likedFilms() {
+		return usersByFilm.keySet();
+	}
+
+	int userTotal() {
+		return filmsByUser.size();
+	}
+
+	int filmTotal() {
+		return usersByFilm.size();
+	}
+
+	long likeTotal() {
+		return likes;
+	}
+
+	long estimateMemoryBytes() {
+		long arrays = 0;
+		for (LikeBitmap films : filmsByUser.values()) {
+			arrays += films.estimateMemoryBytes();
+		}
+		for (Row row : usersByFilm.values()) {
+			arrays += 16 + (long) row.ids.length * Long.BYTES;
+		}
+		return (filmsByUser.size() + usersByFilm.size()) * BYTES_PER_ROW + arrays;
+	}
+
+	private static boolean removeFrom(Map<Long, Row> rows, long key, long value) {
+		Row row = rows.get(key);
+		if (row == null || !row.remove(value)) {
+			return false;
+		}
+		if (row.size == 0) {
+			rows.remove(key);
+		}
+		return true;
+	}
+
+	private static final class Row {
+		private long[] ids = new long[4];
+		private int size;
+
+		private boolean add(long id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if (pos >= 0) {
+				return false;
+			}
+
+			pos = -pos - 1;
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+			}
+			System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+			ids[pos] = id;
+			size++;
+			return true;
+		}
+
+		private boolean remove(long id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if (pos < 0) {
+				return false;
+			}
+
+			System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+			size--;
+			return true;
+		}
+	}
+}
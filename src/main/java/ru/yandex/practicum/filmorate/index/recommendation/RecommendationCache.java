@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.index.recommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Готовые списки рекомендаций по пользователям и учёт того, какие из них устарели.
+ * Для каждого списка запоминаются соседи, по которым он посчитан: изменение лайков соседа
+ * сбрасывает список так же, как изменение лайков самого пользователя.
+ */
+final class RecommendationCache {
+	private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+	// сосед -> пользователи, чьи списки посчитаны с его участием
+	private final Map<Long, Set<Long>> dependents = new ConcurrentHashMap<>();
+	private final Map<Long, Long> lastRequested = new ConcurrentHashMap<>();
+
+	Entry get(long userId) {
+		return entries.get(userId);
+	}
+
+	synchronized void put(long userId, Entry entry) {
+		unlink(userId, entries.put(userId, entry));
+		for (long neighbourId : entry.neighbourIds()) {
+			dependents.computeIfAbsent(neighbourId, id -> ConcurrentHashMap.newKeySet()).add(userId);
+		}
+	}
+
+	synchronized void invalidate(long userId) {
+		unlink(userId, entries.remove(userId));
+	}
+
+	/**
+	 * Сбрасывает список самого пользователя и всех, у кого он среди соседей.
+	 */
+	synchronized void invalidateWithDependents(long userId) {
+		invalidate(userId);
+		Set<Long> users = dependents.get(userId);
+		if (users != null) {
+			for (Long dependentId : List.copyOf(users)) {
+				invalidate(dependentId);
+			}
+		}
+	}
+
+	synchronized void clear() {
+		entries.clear();
+		dependents.clear();
+	}
+
+	boolean contains(long userId) {
+		return entries.containsKey(userId);
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	void touch(long userId, long now) {
+		lastRequested.put(userId, now);
+	}
+
+	/**
+	 * Пользователи, запрашивавшие рекомендации не раньше activeSince, у которых нет готового списка.
+	 * Давно не заходившие пользователи забываются.
+	 */
+	List<Long> staleActiveUsers(long activeSince) {
+		List<Long> users = new ArrayList<>();
+		lastRequested.entrySet().removeIf(entry -> entry.getValue() < activeSince);
+		for (Long userId : lastRequested.keySet()) {
+			if (!entries.containsKey(userId)) {
+				users.add(userId);
+			}
+		}
+		return users;
+	}
+
+	void forget(long userId) {
+		lastRequested.remove(userId);
+	}
+
+	private void unlink(long userId, Entry old) {
+		if (old == null) {
+			return;
+		}
+		for (long neighbourId : old.neighbourIds()) {
+			Set<Long> users = dependents.get(neighbourId);
+			if (users != null) {
+				users.remove(userId);
+				if (users.isEmpty()) {
+					dependents.remove(neighbourId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Список фильмов по убыванию оценки. complete — в списке все фильмы, которые вообще можно порекомендовать.
+	 */
+	record Entry(long[] filmIds, double[] scores, long[] neighbourIds, boolean complete) {
+	}
+}
@@ -0,0 +1,465 @@
+package ru.yandex.practicum.filmorate.index.recommendation;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рекомендации фильмов методом коллаборативной фильтрации по матрице лайков в памяти.
+ * Похожесть пользователей — косинусная мера на бинарных векторах лайков: общие / sqrt(|A| * |B|).
+ * Фильм получает сумму похожестей тех из N ближайших соседей, кому он понравился.
+ * Посчитанные списки хранятся в RecommendationCache и сбрасываются, когда меняются лайки
+ * пользователя или его соседей.
+ * Рядом поддерживаются списки фильмов, которые чаще всего лайкают вместе, для похожих фильмов.
+ */
+@Slf4j
+@Component
+public class RecommendationEngine implements MeterBinder {
+	private static final String LOAD_LIKES_QUERY = "SELECT user_id, film_id FROM likes";
+	private static final int CHANGE_LOG_SIZE = 4096;
+	private static final Comparator<Neighbour> NEIGHBOUR_ORDER = Comparator
+		.comparingDouble(Neighbour::similarity).reversed()
+		.thenComparingLong(Neighbour::userId);
+	private static final Comparator<Recommendation> RECOMMENDATION_ORDER = Comparator
+		.comparingDouble(Recommendation::score).reversed()
+		.thenComparingLong(Recommendation::filmId);
+
+	private final JdbcTemplate jdbc;
+	private final int neighbours;
+	private final int precomputeSize;
+	private final int similarCapacity;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final RecommendationCache cache = new RecommendationCache();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private LikeMatrix matrix = new LikeMatrix();
+	private CoLikeIndex coLikes;
+	private volatile long lastRebuildMillis;
+	// Последние изменения лайков (пользователь, фильм) по номерам — по ним проверяется,
+	// не устарел ли список, посчитанный без блокировки. Меняются под блокировкой записи
+	private final long[] changedUsers = new long[CHANGE_LOG_SIZE];
+	private final long[] changedFilms = new long[CHANGE_LOG_SIZE];
+	private long changes;
+	private long resets;
+
+	public RecommendationEngine(JdbcTemplate jdbc,
+								@Value("${filmorate.recommendations.neighbours:50}") int neighbours,
+								@Value("${filmorate.recommendations.precompute.size:100}") int precomputeSize,
+								@Value("${filmorate.recommendations.similar.capacity:40}") int similarCapacity) {
+		this.jdbc = jdbc;
+		this.neighbours = neighbours;
+		this.precomputeSize = precomputeSize;
+		this.similarCapacity = similarCapacity;
+		this.coLikes = new CoLikeIndex(similarCapacity);
+	}
+
+	@PostConstruct
+	public void rebuild() {
+		long start = System.nanoTime();
+		LikeMatrix rebuilt = new LikeMatrix();
+
+		jdbc.query(LOAD_LIKES_QUERY, rs -> {
+			rebuilt.add(rs.getLong("user_id"), rs.getLong("film_id"));
+		});
+		CoLikeIndex rebuiltCoLikes = CoLikeIndex.build(rebuilt, rebuilt.likedFilms(), similarCapacity);
+
+		lock.writeLock().lock();
+		try {
+			matrix = rebuilt;
+			coLikes = rebuiltCoLikes;
+			cache.clear();
+			resets++;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+		log.info("Матрица лайков загружена за {} мс: пользователей {}, фильмов {}, лайков {}, примерный объём {} байт",
+			lastRebuildMillis, rebuilt.userTotal(), rebuilt.filmTotal(), rebuilt.likeTotal(),
+			rebuilt.estimateMemoryBytes());
+	}
+
+	public void addLike(Long userId, Long filmId) {
+		lock.writeLock().lock();
+		try {
+			if (matrix.add(userId, filmId)) {
+				coLikes.liked(filmId, matrix.films(userId));
+				likeChanged(userId, filmId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeLike(Long userId, Long filmId) {
+		lock.writeLock().lock();
+		try {
+			if (matrix.remove(userId, filmId)) {
+				coLikes.unliked(filmId, matrix.films(userId));
+				likeChanged(userId, filmId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeUser(Long userId) {
+		lock.writeLock().lock();
+		try {
+			long[] films = matrix.films(userId).toArray();
+			for (long filmId : films) {
+				// лайки снимаются по одному, чтобы каждая пара фильмов была вычтена один раз
+				matrix.remove(userId, filmId);
+				coLikes.unliked(filmId, matrix.films(userId));
+				recordChange(userId, filmId);
+			}
+			cache.invalidateWithDependents(userId);
+			cache.forget(userId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeFilm(Long filmId) {
+		lock.writeLock().lock();
+		try {
+			Set<Long> coLiked = new HashSet<>();
+			long[] users = matrix.users(filmId);
+			int userCount = matrix.userCount(filmId);
+			for (int i = 0; i < userCount; i++) {
+				matrix.films(users[i]).forEach(coLiked::add);
+			}
+			coLikes.removeFilm(filmId, coLiked);
+			matrix.removeFilm(filmId);
+			// удаление фильма редкое, проще сбросить все готовые списки
+			cache.clear();
+			resets++;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Возвращает до limit фильмов, которые пользователь ещё не лайкал, по убыванию оценки.
+	 * Готовый список отдаётся без вычислений, иначе рекомендации считаются и сохраняются.
+	 */
+	public List<Recommendation> recommend(Long userId, int limit) {
+		cache.touch(userId, System.currentTimeMillis());
+		RecommendationCache.Entry entry = cache.get(userId);
+		if (entry != null && (entry.complete() || entry.filmIds().length >= limit)) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+			entry = store(userId, compute(userId, Math.max(limit, precomputeSize)));
+		}
+
+		int size = Math.min(limit, entry.filmIds().length);
+		List<Recommendation> result = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			result.add(new Recommendation(entry.filmIds()[i], entry.scores()[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * Фильмы, которые лайкнули оба пользователя, — пересечение их битовых множеств. Порядок по возрастанию id.
+	 */
+	public long[] commonFilms(Long userId, Long otherId) {
+		lock.readLock().lock();
+		try {
+			return matrix.films(userId).and(matrix.films(otherId)).toArray();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * До limit фильмов, которые чаще всего лайкали вместе с filmId, по убыванию числа совместных лайков.
+	 */
+	public List<SimilarFilm> similarFilms(Long filmId, int limit) {
+		lock.readLock().lock();
+		try {
+			return coLikes.top(filmId, limit).stream()
+				.map(coLike -> new SimilarFilm(coLike.filmId(), coLike.count()))
+				.toList();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getSimilarCapacity() {
+		return similarCapacity;
+	}
+
+	/**
+	 * Пользователи, недавно запрашивавшие рекомендации, чьи списки устарели или ещё не посчитаны.
+	 */
+	public List<Long> getStaleActiveUsers(long activeSince) {
+		return cache.staleActiveUsers(activeSince);
+	}
+
+	/**
+	 * Считает и сохраняет список пользователя, если готового ещё нет.
+	 * Блокировка чтения берётся только на копирование данных из матрицы, поэтому фоновый пересчёт
+	 * не задерживает запись лайков на время расчёта.
+	 */
+	public void precompute(Long userId) {
+		if (!cache.contains(userId)) {
+			store(userId, compute(userId, precomputeSize));
+		}
+	}
+
+	public int getPrecomputedCount() {
+		return cache.size();
+	}
+
+	public long getLastRebuildMillis() {
+		return lastRebuildMillis;
+	}
+
+	public long getLikeCount() {
+		lock.readLock().lock();
+		try {
+			return matrix.likeTotal();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long estimateMemoryBytes() {
+		lock.readLock().lock();
+		try {
+			return matrix.estimateMemoryBytes() + coLikes.estimateMemoryBytes();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("filmorate.recommendations.index.rebuild.time", this, RecommendationEngine::getLastRebuildMillis)
+			.baseUnit("milliseconds")
+			.register(registry);
+		Gauge.builder("filmorate.recommendations.index.likes", this, RecommendationEngine::getLikeCount)
+			.register(registry);
+		Gauge.builder("filmorate.recommendations.precomputed", this, RecommendationEngine::getPrecomputedCount)
+			.register(registry);
+		FunctionCounter.builder("filmorate.recommendations.requests", hits, AtomicLong::get)
+			.tag("result", "precomputed")
+			.register(registry);
+		FunctionCounter.builder("filmorate.recommendations.requests", misses, AtomicLong::get)
+			.tag("result", "live")
+			.register(registry);
+		Gauge.builder("filmorate.recommendations.index.memory", this, RecommendationEngine::estimateMemoryBytes)
+			.baseUnit("bytes")
+			.register(registry);
+	}
+
+	/**
+	 * Считает список по копиям нужных строк и столбцов матрицы: под блокировкой чтения только
+	 * копирование, подсчёт общих лайков и оценок идёт без неё.
+	 */
+	Computed compute(long userId, int limit) {
+		long startChange;
+		long startReset;
+		long[] ownFilms;
+		long[][] likers;
+		lock.readLock().lock();
+		try {
+			startChange = changes;
+			startReset = resets;
+			ownFilms = matrix.films(userId).toArray();
+			likers = new long[ownFilms.length][];
+			for (int i = 0; i < ownFilms.length; i++) {
+				likers[i] = Arrays.copyOf(matrix.users(ownFilms[i]), matrix.userCount(ownFilms[i]));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		List<Neighbour> nearest = nearestNeighbours(userId, ownFilms.length, likers);
+		List<Recommendation> recommendations = score(ownFilms, nearest, limit + 1);
+		boolean complete = recommendations.size() <= limit;
+		int size = Math.min(limit, recommendations.size());
+
+		long[] filmIds = new long[size];
+		double[] scores = new double[size];
+		for (int i = 0; i < size; i++) {
+			filmIds[i] = recommendations.get(i).filmId();
+			scores[i] = recommendations.get(i).score();
+		}
+		long[] neighbourIds = nearest.stream().mapToLong(Neighbour::userId).toArray();
+		return new Computed(new RecommendationCache.Entry(filmIds, scores, neighbourIds, complete),
+			ownFilms, startChange, startReset);
+	}
+
+	/**
+	 * Сохраняет посчитанный список, если за время расчёта не менялись лайки пользователя, его соседей
+	 * и других лайкнувших его фильмы. Иначе список возвращается, но не кэшируется.
+	 */
+	RecommendationCache.Entry store(long userId, Computed computed) {
+		lock.readLock().lock();
+		try {
+			if (unchangedSince(userId, computed)) {
+				cache.put(userId, computed.entry());
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return computed.entry();
+	}
+
+	private boolean unchangedSince(long userId, Computed computed) {
+		if (computed.reset() != resets || changes - computed.change() > CHANGE_LOG_SIZE) {
+			return false;
+		}
+		long[] neighbourIds = computed.entry().neighbourIds();
+		for (long change = computed.change(); change < changes; change++) {
+			int slot = (int) (change % CHANGE_LOG_SIZE);
+			long changedUser = changedUsers[slot];
+			if (changedUser == userId || Arrays.binarySearch(computed.ownFilms(), changedFilms[slot]) >= 0) {
+				return false;
+			}
+			for (long neighbourId : neighbourIds) {
+				if (neighbourId == changedUser) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void recordChange(long userId, long filmId) {
+		int slot = (int) (changes % CHANGE_LOG_SIZE);
+		changedUsers[slot] = userId;
+		changedFilms[slot] = filmId;
+		changes++;
+	}
+
+	/**
+	 * Изменился лайк userId на filmId: сбрасываются его собственный список и списки тех, у кого он в соседях.
+	 * Списки остальных лайкнувших тот же фильм остаются: их похожесть с userId изменилась, но обход
+	 * всех лайкнувших популярный фильм сбросил бы большую часть готовых списков на каждом лайке.
+	 * Такие списки обновятся при следующем изменении лайков пользователя или его соседей.
+	 */
+	private void likeChanged(long userId, long filmId) {
+		cache.invalidateWithDependents(userId);
+		recordChange(userId, filmId);
+	}
+
+	private List<Recommendation> score(long[] ownFilms, List<Neighbour> nearest, int limit) {
+		long[][] neighbourFilms = new long[nearest.size()][];
+		lock.readLock().lock();
+		try {
+			for (int i = 0; i < nearest.size(); i++) {
+				neighbourFilms[i] = matrix.films(nearest.get(i).userId()).toArray();
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		Map<Long, Double> scores = new HashMap<>();
+		for (int i = 0; i < nearest.size(); i++) {
+			double similarity = nearest.get(i).similarity();
+			for (long filmId : neighbourFilms[i]) {
+				if (Arrays.binarySearch(ownFilms, filmId) < 0) {
+					scores.merge(filmId, similarity, Double::sum);
+				}
+			}
+		}
+
+		PriorityQueue<Recommendation> top = new PriorityQueue<>(RECOMMENDATION_ORDER.reversed());
+		scores.forEach((filmId, score) -> offer(top, new Recommendation(filmId, score), RECOMMENDATION_ORDER, limit));
+		List<Recommendation> result = new ArrayList<>(top);
+		result.sort(RECOMMENDATION_ORDER);
+		return result;
+	}
+
+	/**
+	 * Число общих лайков считается проходом по столбцам фильмов пользователя,
+	 * поэтому затрагиваются только пользователи, с которыми есть пересечение.
+	 */
+	private List<Neighbour> nearestNeighbours(long userId, int ownCount, long[][] likers) {
+		if (ownCount == 0) {
+			return List.of();
+		}
+
+		Map<Long, int[]> common = new HashMap<>();
+		for (long[] users : likers) {
+			for (long otherId : users) {
+				if (otherId != userId) {
+					common.computeIfAbsent(otherId, id -> new int[1])[0]++;
+				}
+			}
+		}
+
+		long[] otherIds = new long[common.size()];
+		int[] otherCounts = new int[common.size()];
+		int next = 0;
+		for (Long otherId : common.keySet()) {
+			otherIds[next++] = otherId;
+		}
+		lock.readLock().lock();
+		try {
+			for (int i = 0; i < otherIds.length; i++) {
+				otherCounts[i] = matrix.filmCount(otherIds[i]);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		PriorityQueue<Neighbour> top = new PriorityQueue<>(NEIGHBOUR_ORDER.reversed());
+		for (int i = 0; i < otherIds.length; i++) {
+			// пользователь мог снять все лайки, пока шёл подсчёт
+			if (otherCounts[i] == 0) {
+				continue;
+			}
+			double similarity = common.get(otherIds[i])[0] / Math.sqrt((double) ownCount * otherCounts[i]);
+			offer(top, new Neighbour(otherIds[i], similarity), NEIGHBOUR_ORDER, neighbours);
+		}
+		return new ArrayList<>(top);
+	}
+
+	private static <T> void offer(PriorityQueue<T> top, T value, Comparator<T> order, int limit) {
+		if (limit <= 0) {
+			return;
+		}
+		if (top.size() < limit) {
+			top.add(value);
+		} else if (order.compare(value, top.peek()) < 0) {
+			top.poll();
+			top.add(value);
+		}
+	}
+
+	record Computed(RecommendationCache.Entry entry, long[] ownFilms, long change, long reset) {
+	}
+
+	public record Recommendation(long filmId, double score) {
+	}
+
+	public record SimilarFilm(long filmId, long coLikes) {
+	}
+
+	private record Neighbour(long userId, double similarity) {
+	}
+}
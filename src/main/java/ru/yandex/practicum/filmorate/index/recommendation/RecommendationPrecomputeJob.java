@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.index.recommendation;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.Serial;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Фоновый пересчёт рекомендаций для пользователей, которые недавно их запрашивали,
+ * если их список устарел. Пользователи делятся на порции и считаются в ForkJoinPool.
+ */
+@Slf4j
+@Component
+public class RecommendationPrecomputeJob {
+	private static final int SHARD_SIZE = 256;
+
+	private final RecommendationEngine recommendationEngine;
+	private final Duration activeWindow;
+	private final ForkJoinPool pool;
+
+	public RecommendationPrecomputeJob(RecommendationEngine recommendationEngine,
+									   @Value("${filmorate.recommendations.precompute.active-window:PT24H}")
+									   Duration activeWindow,
+									   @Value("${filmorate.recommendations.precompute.parallelism:0}") int parallelism) {
+		this.recommendationEngine = recommendationEngine;
+		this.activeWindow = activeWindow;
+		this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+	}
+
+	@Scheduled(initialDelayString = "${filmorate.recommendations.precompute.interval:PT5M}",
+		fixedDelayString = "${filmorate.recommendations.precompute.interval:PT5M}")
+	public void precompute() {
+		long start = System.nanoTime();
+		List<Long> users = recommendationEngine.getStaleActiveUsers(System.currentTimeMillis() - activeWindow.toMillis());
+		if (users.isEmpty()) {
+			return;
+		}
+
+		long[] userIds = users.stream().mapToLong(Long::longValue).toArray();
+		pool.invoke(new Shard(recommendationEngine, userIds, 0, userIds.length));
+		log.info("Пересчитаны рекомендации для {} пользователей за {} мс",
+			userIds.length, (System.nanoTime() - start) / 1_000_000);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	private static final class Shard extends RecursiveAction {
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		private final transient RecommendationEngine engine;
+		private final long[] userIds;
+		private final int from;
+		private final int to;
+
+		private Shard(RecommendationEngine engine, long[] userIds, int from, int to) {
+			this.engine = engine;
+			this.userIds = userIds;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= SHARD_SIZE) {
+				for (int i = from; i < to; i++) {
+					engine.precompute(userIds[i]);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Shard(engine, userIds, from, middle), new Shard(engine, userIds, middle, to));
+		}
+	}
+}
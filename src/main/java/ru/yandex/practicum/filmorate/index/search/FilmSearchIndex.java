@@ -0,0 +1,451 @@
+package ru.yandex.practicum.filmorate.index.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.film.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Поиск по подстроке в названиях фильмов и именах режиссёров на триграммных индексах.
+ * Результат совпадает с LIKE '%q%' без учёта регистра и ранжируется по числу лайков из PopularityIndex.
+ * Для автодополнения рядом хранятся индексы префиксов слов тех же названий и имён,
+ * для поиска с опечатками — словари слов в виде префиксных деревьев.
+ * <p>
+ * Для префиксов до трёх символов подсказки берутся из готовых списков лучших по лайкам: они
+ * обновляются при изменении фильмов и режиссёров и пересчитываются целиком раз в
+ * filmorate.search.autocomplete.refresh-interval, чтобы учесть новые лайки. Внутри списка порядок
+ * всегда по текущим лайкам, а фильм, набравший лайки после пересчёта, попадает в список со следующим.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex implements MeterBinder {
+	private static final String LOAD_FILMS_QUERY = "SELECT film_id, name FROM films";
+	private static final String LOAD_DIRECTORS_QUERY = "SELECT director_id, name FROM directors";
+	private static final String LOAD_FILM_DIRECTORS_QUERY = "SELECT film_id, director_id FROM film_director";
+	private static final int SHORT_PREFIX_LENGTH = 3;
+	private static final int SHORT_PREFIX_TOP = 50;
+
+	// Сначала популярные, при равенстве фильмы раньше режиссёров, затем более новые
+	private static final Comparator<Suggestion> SUGGESTION_ORDER = Comparator
+		.comparingLong(Suggestion::likes).reversed()
+		.thenComparing(Suggestion::type)
+		.thenComparing(Comparator.comparingLong(Suggestion::id).reversed());
+
+	private final JdbcTemplate jdbc;
+	private final PopularityIndex popularityIndex;
+	private final int shortPrefixTop;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private State state;
+	private volatile long lastRebuildMillis;
+
+	@Autowired
+	public FilmSearchIndex(JdbcTemplate jdbc, PopularityIndex popularityIndex) {
+		this(jdbc, popularityIndex, SHORT_PREFIX_TOP);
+	}
+
+	FilmSearchIndex(JdbcTemplate jdbc, PopularityIndex popularityIndex, int shortPrefixTop) {
+		this.jdbc = jdbc;
+		this.popularityIndex = popularityIndex;
+		this.shortPrefixTop = shortPrefixTop;
+		this.state = new State(newShortPrefixes());
+	}
+
+	@PostConstruct
+	public void rebuild() {
+		long start = System.nanoTime();
+		State rebuilt = new State(newShortPrefixes());
+
+		jdbc.query(LOAD_FILMS_QUERY, rs -> {
+			rebuilt.putFilm(rs.getLong("film_id"), rs.getString("name"), List.of());
+		});
+		jdbc.query(LOAD_DIRECTORS_QUERY, rs -> {
+			rebuilt.putDirector(rs.getLong("director_id"), rs.getString("name"));
+		});
+		jdbc.query(LOAD_FILM_DIRECTORS_QUERY, rs -> {
+			rebuilt.link(rs.getLong("film_id"), rs.getLong("director_id"));
+		});
+		rebuilt.shortPrefixes = buildShortPrefixes(rebuilt);
+
+		lock.writeLock().lock();
+		try {
+			state = rebuilt;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+		log.info("Поисковый индекс перестроен за {} мс: фильмов {}, режиссёров {}, примерный объём {} байт",
+			lastRebuildMillis, rebuilt.titles.size(), rebuilt.directorNames.size(), estimateMemoryBytes());
+	}
+
+	public void putFilm(Film film) {
+		List<Long> directorIds = new ArrayList<>();
+		if (film.getDirectors() != null) {
+			for (Director director : film.getDirectors()) {
+				if (director.getId() != null) {
+					directorIds.add(director.getId());
+				}
+			}
+		}
+
+		lock.writeLock().lock();
+		try {
+			state.removeFilm(film.getId());
+			state.putFilm(film.getId(), film.getName(), directorIds);
+			if (film.getName() != null) {
+				state.shortPrefixes.add(new Suggestion(SuggestionType.FILM, film.getId(), film.getName(),
+					popularityIndex.getLikes(film.getId())), film.getName());
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeFilm(Long filmId) {
+		lock.writeLock().lock();
+		try {
+			state.removeFilm(filmId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void putDirector(Director director) {
+		lock.writeLock().lock();
+		try {
+			state.putDirector(director.getId(), director.getName());
+			if (director.getName() != null) {
+				state.shortPrefixes.add(new Suggestion(SuggestionType.DIRECTOR, director.getId(), director.getName(),
+					directorLikes(state, director.getId())), director.getName());
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeDirector(Long directorId) {
+		lock.writeLock().lock();
+		try {
+			state.removeDirector(directorId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Пересчитывает готовые подсказки коротких префиксов по текущим лайкам. Если за время пересчёта
+	 * индекс изменился, результат отбрасывается до следующего запуска: изменения уже учтены в старых списках.
+	 */
+	@Scheduled(initialDelayString = "${filmorate.search.autocomplete.refresh-interval:PT1M}",
+		fixedDelayString = "${filmorate.search.autocomplete.refresh-interval:PT1M}")
+	public void refreshShortPrefixes() {
+		State current;
+		long version;
+		ShortPrefixTop refreshed;
+		lock.readLock().lock();
+		try {
+			current = state;
+			version = current.version;
+			refreshed = buildShortPrefixes(current);
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		lock.writeLock().lock();
+		try {
+			if (state == current && current.version == version) {
+				current.shortPrefixes = refreshed;
+			} else {
+				log.debug("Подсказки коротких префиксов не обновлены: индекс изменился во время пересчёта");
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Подсказки для строки поиска: фильмы и режиссёры, у которых какое-либо слово начинается с prefix.
+	 * Фильмы ранжируются по лайкам, режиссёры — по сумме лайков своих фильмов.
+	 */
+	public List<Suggestion> autocomplete(String prefix, int limit) {
+		Set<Long> films = new HashSet<>();
+		Map<Long, Long> directors = new HashMap<>();
+		List<Suggestion> result = new ArrayList<>();
+
+		lock.readLock().lock();
+		try {
+			String normalized = TrigramIndex.normalize(prefix).strip();
+			List<Suggestion> ready = state.shortPrefixes.covers(normalized)
+				? state.shortPrefixes.get(normalized, limit)
+				: null;
+			if (ready != null) {
+				// Готовый список короткий, поэтому лайки и имена перечитываются: порядок всегда текущий
+				for (Suggestion suggestion : ready) {
+					result.add(suggestion.type() == SuggestionType.FILM
+						? new Suggestion(SuggestionType.FILM, suggestion.id(), state.titlePrefixes.name(suggestion.id()),
+							popularityIndex.getLikes(suggestion.id()))
+						: new Suggestion(SuggestionType.DIRECTOR, suggestion.id(),
+							state.directorPrefixes.name(suggestion.id()), directorLikes(state, suggestion.id())));
+				}
+				result.sort(SUGGESTION_ORDER);
+				return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+			}
+
+			state.titlePrefixes.match(prefix, films::add);
+			state.directorPrefixes.match(prefix, directorId ->
+				directors.computeIfAbsent(directorId, id -> directorLikes(state, id)));
+
+			PriorityQueue<Suggestion> top = new PriorityQueue<>(SUGGESTION_ORDER.reversed());
+			for (Long filmId : films) {
+				offer(top, new Suggestion(SuggestionType.FILM, filmId, state.titlePrefixes.name(filmId),
+					popularityIndex.getLikes(filmId)), limit);
+			}
+			directors.forEach((directorId, likes) -> offer(top, new Suggestion(SuggestionType.DIRECTOR, directorId,
+				state.directorPrefixes.name(directorId), likes), limit));
+			result.addAll(top);
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		result.sort(SUGGESTION_ORDER);
+		return result;
+	}
+
+	/**
+	 * Возвращает id найденных фильмов: сначала с большим числом лайков, при равенстве — более новые.
+	 * При fuzzy к точным совпадениям добавляются названия и имена, совпавшие по словам с опечатками.
+	 */
+	public List<Long> search(String query, boolean byTitle, boolean byDirector, boolean fuzzy, int limit) {
+		Set<Long> found = new HashSet<>();
+
+		lock.readLock().lock();
+		try {
+			LongConsumer directorMatch = directorId ->
+				found.addAll(state.filmsByDirector.getOrDefault(directorId, Set.of()));
+			if (byTitle) {
+				state.titles.match(query, found::add);
+				if (fuzzy) {
+					state.titleWords.match(query, found::add);
+				}
+			}
+			if (byDirector) {
+				state.directorNames.match(query, directorMatch);
+				if (fuzzy) {
+					state.directorWords.match(query, directorMatch);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		Map<Long, Long> likes = new HashMap<>(found.size());
+		for (Long filmId : found) {
+			likes.put(filmId, popularityIndex.getLikes(filmId));
+		}
+		return found.stream()
+			.sorted(Comparator.<Long>comparingLong(likes::get).reversed().thenComparing(Comparator.reverseOrder()))
+			.limit(limit)
+			.toList();
+	}
+
+	private ShortPrefixTop newShortPrefixes() {
+		return new ShortPrefixTop(SHORT_PREFIX_LENGTH, shortPrefixTop, SUGGESTION_ORDER);
+	}
+
+	/**
+	 * Собирает подсказки коротких префиксов заново: каждое имя раскладывается по своим префиксам один раз.
+	 */
+	private ShortPrefixTop buildShortPrefixes(State source) {
+		ShortPrefixTop built = newShortPrefixes();
+		source.titlePrefixes.forEachName((filmId, name) -> built.add(
+			new Suggestion(SuggestionType.FILM, filmId, name, popularityIndex.getLikes(filmId)), name));
+		source.directorPrefixes.forEachName((directorId, name) -> built.add(
+			new Suggestion(SuggestionType.DIRECTOR, directorId, name, directorLikes(source, directorId)), name));
+		return built;
+	}
+
+	private long directorLikes(State source, long directorId) {
+		long likes = 0;
+		for (Long filmId : source.filmsByDirector.getOrDefault(directorId, Set.of())) {
+			likes += popularityIndex.getLikes(filmId);
+		}
+		return likes;
+	}
+
+	private static void offer(PriorityQueue<Suggestion> top, Suggestion suggestion, int limit) {
+		if (limit <= 0) {
+			return;
+		}
+		if (top.size() < limit) {
+			top.add(suggestion);
+		} else if (SUGGESTION_ORDER.compare(suggestion, top.peek()) < 0) {
+			top.poll();
+			top.add(suggestion);
+		}
+	}
+
+	public long getLastRebuildMillis() {
+		return lastRebuildMillis;
+	}
+
+	public int getGramCount() {
+		lock.readLock().lock();
+		try {
+			return state.titles.gramCount() + state.directorNames.gramCount();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getPrefixCount() {
+		lock.readLock().lock();
+		try {
+			return state.titlePrefixes.keyCount() + state.directorPrefixes.keyCount()
+				+ state.shortPrefixes.prefixCount();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long estimateMemoryBytes() {
+		lock.readLock().lock();
+		try {
+			return state.titles.estimateMemoryBytes() + state.directorNames.estimateMemoryBytes()
+				+ state.titleWords.estimateMemoryBytes() + state.directorWords.estimateMemoryBytes()
+				+ state.shortPrefixes.estimateMemoryBytes();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("filmorate.search.index.rebuild.time", this, FilmSearchIndex::getLastRebuildMillis)
+			.baseUnit("milliseconds")
+			.register(registry);
+		Gauge.builder("filmorate.search.index.trigrams", this, FilmSearchIndex::getGramCount)
+			.register(registry);
+		Gauge.builder("filmorate.search.index.prefixes", this, FilmSearchIndex::getPrefixCount)
+			.register(registry);
+		Gauge.builder("filmorate.search.index.memory", this, FilmSearchIndex::estimateMemoryBytes)
+			.baseUnit("bytes")
+			.register(registry);
+	}
+
+	public enum SuggestionType {
+		FILM,
+		DIRECTOR
+	}
+
+	public record Suggestion(SuggestionType type, long id, String name, long likes) {
+	}
+
+	private static final class State {
+		private final TrigramIndex titles = new TrigramIndex();
+		private final TrigramIndex directorNames = new TrigramIndex();
+		private final PrefixIndex titlePrefixes = new PrefixIndex();
+		private final PrefixIndex directorPrefixes = new PrefixIndex();
+		private final FuzzyIndex titleWords = new FuzzyIndex();
+		private final FuzzyIndex directorWords = new FuzzyIndex();
+		private final Map<Long, Set<Long>> directorsByFilm = new HashMap<>();
+		private final Map<Long, Set<Long>> filmsByDirector = new HashMap<>();
+		private ShortPrefixTop shortPrefixes;
+		// Растёт при каждом изменении, по нему фоновый пересчёт подсказок замечает параллельные записи
+		private long version;
+
+		private State(ShortPrefixTop shortPrefixes) {
+			this.shortPrefixes = shortPrefixes;
+		}
+
+		private void putFilm(long filmId, String name, Collection<Long> directorIds) {
+			version++;
+			titles.put(filmId, name);
+			titlePrefixes.put(filmId, name);
+			titleWords.put(filmId, name);
+			for (Long directorId : directorIds) {
+				link(filmId, directorId);
+			}
+		}
+
+		private void removeFilm(long filmId) {
+			version++;
+			String name = titlePrefixes.name(filmId);
+			if (name != null) {
+				shortPrefixes.remove(SuggestionType.FILM, filmId, name);
+			}
+			titles.remove(filmId);
+			titlePrefixes.remove(filmId);
+			titleWords.remove(filmId);
+			Set<Long> directorIds = directorsByFilm.remove(filmId);
+			if (directorIds != null) {
+				for (Long directorId : directorIds) {
+					Set<Long> films = filmsByDirector.get(directorId);
+					if (films != null) {
+						films.remove(filmId);
+						if (films.isEmpty()) {
+							filmsByDirector.remove(directorId);
+						}
+					}
+				}
+			}
+		}
+
+		private void putDirector(long directorId, String name) {
+			version++;
+			String old = directorPrefixes.name(directorId);
+			if (old != null) {
+				shortPrefixes.remove(SuggestionType.DIRECTOR, directorId, old);
+			}
+			directorNames.put(directorId, name);
+			directorPrefixes.put(directorId, name);
+			directorWords.put(directorId, name);
+		}
+
+		private void removeDirector(long directorId) {
+			version++;
+			String name = directorPrefixes.name(directorId);
+			if (name != null) {
+				shortPrefixes.remove(SuggestionType.DIRECTOR, directorId, name);
+			}
+			directorNames.remove(directorId);
+			directorPrefixes.remove(directorId);
+			directorWords.remove(directorId);
+			Set<Long> films = filmsByDirector.remove(directorId);
+			if (films != null) {
+				for (Long filmId : films) {
+					Set<Long> directors = directorsByFilm.get(filmId);
+					if (directors != null) {
+						directors.remove(directorId);
+					}
+				}
+			}
+		}
+
+		private void link(long filmId, long directorId) {
+			version++;
+			directorsByFilm.computeIfAbsent(filmId, id -> new HashSet<>()).add(directorId);
+			filmsByDirector.computeIfAbsent(directorId, id -> new HashSet<>()).add(filmId);
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package ru.yandex.practicum.filmorate.index.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * Словарь слов в виде префиксного дерева для поиска с опечатками.
+ * Слово запроса проходит по дереву со строкой матрицы Левенштейна на каждом узле,
+ * ветки, где минимум строки уже больше допустимого расстояния, отсекаются. Не потокобезопасен.
+ */
+final class FuzzyIndex {
+	// Узел с парой детей и массивами под них, запись id в HashSet с объектом Long
+	private static final long BYTES_PER_NODE = 88;
+	private static final long BYTES_PER_ID = 64;
+
+	private final Node root = new Node();
+	private final Map<Long, String[]> words = new HashMap<>();
+	private int nodeCount = 1;
+
+	/**
+	 * Допустимое число правок растёт с длиной слова, чтобы короткие слова не совпадали со всем подряд.
+	 */
+	static int maxDistance(int length) {
+		if (length <= 2) {
+			return 0;
+		}
+		return length <= 5 ? 1 : 2;
+	}
+
+	static String[] tokenize(String text) {
+		String normalized = TrigramIndex.normalize(text);
+		List<String> tokens = new ArrayList<>();
+		int start = -1;
+		for (int i = 0; i <= normalized.length(); i++) {
+			boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+			if (letter && start < 0) {
+				start = i;
+			} else if (!letter && start >= 0) {
+				tokens.add(normalized.substring(start, i));
+				start = -1;
+			}
+		}
+		return tokens.stream().distinct().toArray(String[]::new);
+	}
+
+	void put(long id, String text) {
+		remove(id);
+		String[] tokens = tokenize(text);
+		words.put(id, tokens);
+		for (String token : tokens) {
+			Node node = root;
+			for (int i = 0; i < token.length(); i++) {
+				Node child = node.child(token.charAt(i));
+				if (child == null) {
+					child = node.addChild(token.charAt(i));
+					nodeCount++;
+				}
+				node = child;
+			}
+			if (node.ids == null) {
+				node.ids = new HashSet<>();
+			}
+			node.ids.add(id);
+		}
+	}
+
+	void remove(long id) {
+		String[] tokens = words.remove(id);
+		if (tokens == null) {
+			return;
+		}
+		for (String token : tokens) {
+			Node[] path = new Node[token.length() + 1];
+			path[0] = root;
+			for (int i = 0; i < token.length() && path[i] != null; i++) {
+				path[i + 1] = path[i].child(token.charAt(i));
+			}
+			Node node = path[token.length()];
+			if (node == null || node.ids == null) {
+				continue;
+			}
+			node.ids.remove(id);
+			if (!node.ids.isEmpty()) {
+				continue;
+			}
+			node.ids = null;
+			// Опустевшие листья срезаются вверх по пути, пока не встретится узел со словом или другой веткой
+			for (int i = token.length(); i > 0 && path[i].ids == null && path[i].size == 0; i--) {
+				path[i - 1].removeChild(token.charAt(i - 1));
+				nodeCount--;
+			}
+		}
+	}
+
+	/**
+	 * Передаёт в consumer id текстов, где каждому слову запроса соответствует слово
+	 * на расстоянии Левенштейна не больше maxDistance.
+	 */
+	void match(String query, LongConsumer consumer) {
+		Set<Long> result = null;
+		for (String token : tokenize(query)) {
+			Set<Long> found = new HashSet<>();
+			int[] row = new int[token.length() + 1];
+			for (int i = 0; i < row.length; i++) {
+				row[i] = i;
+			}
+			walk(root, token, row, maxDistance(token.length()), found);
+
+			if (result == null) {
+				result = found;
+			} else {
+				result.retainAll(found);
+			}
+			if (result.isEmpty()) {
+				return;
+			}
+		}
+		if (result != null) {
+			result.forEach(consumer::accept);
+		}
+	}
+
+	int size() {
+		return words.size();
+	}
+
+	int nodeCount() {
+		return nodeCount;
+	}
+
+	long estimateMemoryBytes() {
+		long ids = 0;
+		for (String[] tokens : words.values()) {
+			ids += tokens.length;
+		}
+		return nodeCount * BYTES_PER_NODE + ids * BYTES_PER_ID;
+	}
+
+	private static void walk(Node node, String token, int[] previous, int maxDistance, Set<Long> found) {
+		for (int c = 0; c < node.size; c++) {
+			char label = node.labels[c];
+			int[] row = new int[previous.length];
+			row[0] = previous[0] + 1;
+			int min = row[0];
+			for (int i = 1; i < row.length; i++) {
+				int replace = previous[i - 1] + (token.charAt(i - 1) == label ? 0 : 1);
+				row[i] = Math.min(replace, Math.min(row[i - 1], previous[i]) + 1);
+				min = Math.min(min, row[i]);
+			}
+
+			Node child = node.children[c];
+			if (child.ids != null && row[row.length - 1] <= maxDistance) {
+				found.addAll(child.ids);
+			}
+			if (min <= maxDistance) {
+				walk(child, token, row, maxDistance, found);
+			}
+		}
+	}
+
+	/**
+	 * Узел дерева: дети в параллельных массивах, у большинства узлов их один-два.
+	 */
+	private static final class Node {
+		private char[] labels = new char[0];
+		private Node[] children = new Node[0];
+		private int size;
+		private Set<Long> ids;
+
+		private Node child(char label) {
+			for (int i = 0; i < size; i++) {
+				if (labels[i] == label) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		private Node addChild(char label) {
+			if (size == labels.length) {
+				labels = Arrays.copyOf(labels, size + 2);
+				children = Arrays.copyOf(children, size + 2);
+			}
+			Node child = new Node();
+			labels[size] = label;
+			children[size] = child;
+			size++;
+			return child;
+		}
+
+		private void removeChild(char label) {
+			for (int i = 0; i < size; i++) {
+				if (labels[i] == label) {
+					size--;
+					labels[i] = labels[size];
+					children[i] = children[size];
+					children[size] = null;
+					return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.index.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Индекс префиксов слов: ключами служат хвосты нормализованного имени, начинающиеся с каждого слова,
+ * поэтому префикс "fict" находит "Pulp Fiction". Ключи хранятся в TreeMap, запрос — один диапазон subMap.
+ * Не потокобезопасен.
+ */
+final class PrefixIndex {
+	private final NavigableMap<String, long[]> keys = new TreeMap<>();
+	private final Map<Long, String> names = new HashMap<>();
+
+	void put(long id, String name) {
+		remove(id);
+		if (name == null) {
+			return;
+		}
+		names.put(id, name);
+		for (String key : keys(name)) {
+			keys.merge(key, new long[]{id}, PrefixIndex::append);
+		}
+	}
+
+	void remove(long id) {
+		String old = names.remove(id);
+		if (old == null) {
+			return;
+		}
+		for (String key : keys(old)) {
+			long[] ids = keys.get(key);
+			if (ids == null) {
+				continue;
+			}
+			long[] rest = without(ids, id);
+			if (rest.length == 0) {
+				keys.remove(key);
+			} else {
+				keys.put(key, rest);
+			}
+		}
+	}
+
+	String name(long id) {
+		return names.get(id);
+	}
+
+	/**
+	 * Передаёт в consumer id имён, в которых какое-либо слово начинается с prefix.
+	 * Один id может быть передан несколько раз, если с префикса начинаются разные слова.
+	 */
+	void match(String prefix, LongConsumer consumer) {
+		String normalized = TrigramIndex.normalize(prefix).strip();
+		for (long[] ids : keys.subMap(normalized, true, normalized + Character.MAX_VALUE, false).values()) {
+			for (long id : ids) {
+				consumer.accept(id);
+			}
+		}
+	}
+
+	void forEachName(BiConsumer<Long, String> consumer) {
+		names.forEach(consumer);
+	}
+
+	int size() {
+		return names.size();
+	}
+
+	int keyCount() {
+		return keys.size();
+	}
+
+	/**
+	 * Префиксы слов имени длиной до maxLength, включая пустой, — те запросы, по которым находится это имя.
+	 */
+	static Set<String> shortPrefixes(String name, int maxLength) {
+		Set<String> result = new HashSet<>();
+		result.add("");
+		for (String key : keys(name)) {
+			for (int length = 1; length <= Math.min(maxLength, key.length()); length++) {
+				result.add(key.substring(0, length));
+			}
+		}
+		return result;
+	}
+
+	private static Set<String> keys(String name) {
+		String normalized = TrigramIndex.normalize(name);
+		Set<String> result = new HashSet<>();
+		for (int i = 0; i < normalized.length(); i++) {
+			boolean wordStart = Character.isLetterOrDigit(normalized.charAt(i))
+				&& (i == 0 || !Character.isLetterOrDigit(normalized.charAt(i - 1)));
+			if (wordStart) {
+				result.add(normalized.substring(i));
+			}
+		}
+		return result;
+	}
+
+	private static long[] append(long[] ids, long[] added) {
+		long[] result = new long[ids.length + added.length];
+		System.arraycopy(ids, 0, result, 0, ids.length);
+		System.arraycopy(added, 0, result, ids.length, added.length);
+		return result;
+	}
+
+	private static long[] without(long[] ids, long id) {
+		int count = 0;
+		long[] result = new long[ids.length];
+		for (long value : ids) {
+			if (value != id) {
+				result[count++] = value;
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+}
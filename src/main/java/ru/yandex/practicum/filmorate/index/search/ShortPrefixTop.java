@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.index.search;
+
+import ru.yandex.practicum.filmorate.index.search.FilmSearchIndex.Suggestion;
+import ru.yandex.practicum.filmorate.index.search.FilmSearchIndex.SuggestionType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Готовые подсказки для коротких префиксов — до maxLength символов, включая пустой. Диапазон
+ * индекса префиксов для них охватывает почти все слова, поэтому перебор на каждое нажатие клавиши
+ * стоил бы O(каталога). Для каждого префикса хранится до capacity лучших подсказок по лайкам
+ * на момент добавления; если лишние отброшены, список помечается неполным. Не потокобезопасен.
+ */
+final class ShortPrefixTop {
+	// Запись HashMap со строкой-ключом и списком, плюс подсказка со ссылкой в массиве списка
+	private static final long BYTES_PER_PREFIX = 120;
+	private static final long BYTES_PER_ENTRY = 48;
+
+	private final int maxLength;
+	private final int capacity;
+	private final Comparator<Suggestion> order;
+	private final Map<String, Top> tops = new HashMap<>();
+	private long entryCount;
+
+	ShortPrefixTop(int maxLength, int capacity, Comparator<Suggestion> order) {
+		this.maxLength = maxLength;
+		this.capacity = capacity;
+		this.order = order;
+	}
+
+	boolean covers(String prefix) {
+		return prefix.length() <= maxLength;
+	}
+
+	void add(Suggestion suggestion, String name) {
+		for (String prefix : PrefixIndex.shortPrefixes(name, maxLength)) {
+			tops.computeIfAbsent(prefix, key -> new Top()).add(suggestion);
+		}
+	}
+
+	void remove(SuggestionType type, long id, String name) {
+		for (String prefix : PrefixIndex.shortPrefixes(name, maxLength)) {
+			Top top = tops.get(prefix);
+			if (top == null) {
+				continue;
+			}
+			top.remove(type, id);
+			if (top.items.isEmpty() && !top.truncated) {
+				tops.remove(prefix);
+			}
+		}
+	}
+
+	/**
+	 * Подсказки для prefix в порядке на момент добавления или null, если их меньше limit,
+	 * а часть кандидатов была отброшена, — тогда нужен полный перебор.
+	 */
+	List<Suggestion> get(String prefix, int limit) {
+		Top top = tops.get(prefix);
+		if (top == null) {
+			return List.of();
+		}
+		if (top.items.size() < limit && top.truncated) {
+			return null;
+		}
+		return List.copyOf(top.items);
+	}
+
+	int prefixCount() {
+		return tops.size();
+	}
+
+	long estimateMemoryBytes() {
+		return tops.size() * BYTES_PER_PREFIX + entryCount * BYTES_PER_ENTRY;
+	}
+
+	private final class Top {
+		private final List<Suggestion> items = new ArrayList<>();
+		private boolean truncated;
+
+		private void add(Suggestion suggestion) {
+			int position = Collections.binarySearch(items, suggestion, order);
+			if (position < 0) {
+				position = -position - 1;
+			}
+			if (position >= capacity) {
+				truncated = true;
+				return;
+			}
+			items.add(position, suggestion);
+			entryCount++;
+			if (items.size() > capacity) {
+				items.removeLast();
+				entryCount--;
+				truncated = true;
+			}
+		}
+
+		private void remove(SuggestionType type, long id) {
+			if (items.removeIf(item -> item.type() == type && item.id() == id)) {
+				entryCount--;
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.index.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Индекс подстрок по триграммам: для каждой тройки символов хранится отсортированный массив id.
+ * Запрос пересекает списки своих триграмм, затем кандидаты проверяются по исходному тексту,
+ * поэтому результат совпадает с LIKE '%q%' без учёта регистра. Не потокобезопасен.
+ */
+final class TrigramIndex {
+	private static final int GRAM = 3;
+	// Оценка для записи HashMap с ключом Long и объектом Postings
+	private static final long BYTES_PER_GRAM = 96;
+
+	private final Map<Long, Postings> postings = new HashMap<>();
+	private final Map<Long, String> texts = new HashMap<>();
+	private long postingsLength;
+
+	static String normalize(String text) {
+		return text == null ? "" : text.toLowerCase(Locale.ROOT);
+	}
+
+	void put(long id, String text) {
+		remove(id);
+		String normalized = normalize(text);
+		texts.put(id, normalized);
+		for (long gram : grams(normalized)) {
+			if (postings.computeIfAbsent(gram, key -> new Postings()).add(id)) {
+				postingsLength++;
+			}
+		}
+	}
+
+	void remove(long id) {
+		String old = texts.remove(id);
+		if (old == null) {
+			return;
+		}
+		for (long gram : grams(old)) {
+			Postings ids = postings.get(gram);
+			if (ids != null && ids.remove(id)) {
+				postingsLength--;
+				if (ids.size == 0) {
+					postings.remove(gram);
+				}
+			}
+		}
+	}
+
+	String text(long id) {
+		return texts.get(id);
+	}
+
+	/**
+	 * Передаёт в consumer id всех текстов, содержащих query как подстроку.
+	 */
+	void match(String query, LongConsumer consumer) {
+		String normalized = normalize(query);
+		if (normalized.length() < GRAM) {
+			// Короткий фрагмент не даёт ни одной триграммы — проверяем тексты целиком
+			for (Map.Entry<Long, String> entry : texts.entrySet()) {
+				if (entry.getValue().contains(normalized)) {
+					consumer.accept(entry.getKey());
+				}
+			}
+			return;
+		}
+
+		List<Postings> lists = new ArrayList<>();
+		for (long gram : grams(normalized)) {
+			Postings ids = postings.get(gram);
+			if (ids == null) {
+				return;
+			}
+			lists.add(ids);
+		}
+		lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+		long[] candidates = Arrays.copyOf(lists.getFirst().ids, lists.getFirst().size);
+		int size = candidates.length;
+		for (int i = 1; i < lists.size() && size > 0; i++) {
+			size = lists.get(i).retain(candidates, size);
+		}
+		for (int i = 0; i < size; i++) {
+			if (texts.get(candidates[i]).contains(normalized)) {
+				consumer.accept(candidates[i]);
+			}
+		}
+	}
+
+	int size() {
+		return texts.size();
+	}
+
+	int gramCount() {
+		return postings.size();
+	}
+
+	long estimateMemoryBytes() {
+		long textBytes = 0;
+		for (String text : texts.values()) {
+			textBytes += 56 + 2L * text.length();
+		}
+		return postings.size() * BYTES_PER_GRAM + postingsLength * Long.BYTES + textBytes;
+	}
+
+	private static long[] grams(String text) {
+		if (text.length() < GRAM) {
+			return new long[0];
+		}
+
+		long[] grams = new long[text.length() - GRAM + 1];
+		for (int i = 0; i < grams.length; i++) {
+			grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+		}
+		Arrays.sort(grams);
+		int unique = 0;
+		for (int i = 0; i < grams.length; i++) {
+			if (i == 0 || grams[i] != grams[i - 1]) {
+				grams[unique++] = grams[i];
+			}
+		}
+		return Arrays.copyOf(grams, unique);
+	}
+
+	/**
+	 * Отсортированный по возрастанию список id. Новые фильмы получают растущие id,
+	 * поэтому вставка почти всегда идёт в конец массива.
+	 */
+	private static final class Postings {
+		private long[] ids = new long[2];
+		private int size;
+
+		private boolean add(long id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if (pos >= 0) {
+				return false;
+			}
+
+			pos = -pos - 1;
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+			}
+			System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+			ids[pos] = id;
+			size++;
+			return true;
+		}
+
+		private boolean remove(long id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if (pos < 0) {
+				return false;
+			}
+
+			System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+			size--;
+			if (size > 8 && size < ids.length / 4) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			return true;
+		}
+
+		/**
+		 * Оставляет в candidates[0..count) только id из этого списка, возвращает новое количество.
+		 */
+		private int retain(long[] candidates, int count) {
+			int kept = 0;
+			int from = 0;
+			for (int i = 0; i < count && from < size; i++) {
+				int pos = Arrays.binarySearch(ids, from, size, candidates[i]);
+				if (pos >= 0) {
+					candidates[kept++] = candidates[i];
+					from = pos + 1;
+				} else {
+					from = -pos - 1;
+				}
+			}
+			return kept;
+		}
+	}
+}
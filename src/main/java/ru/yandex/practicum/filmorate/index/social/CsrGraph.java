@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.index.social;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Неизменяемый снимок графа дружбы в формате CSR (compressed sparse row).
+ * Вершины — отсортированный массив id пользователей, рёбра строки i лежат в targets[offsets[i]..offsets[i + 1])
+ * как индексы вершин по возрастанию. Хранятся обе стороны: кого добавил пользователь и кто добавил его.
+ * На ребро уходит 8 байт (по int в каждой стороне), на вершину — 16 байт.
+ */
+final class CsrGraph {
+	static final CsrGraph EMPTY = new Builder().build();
+
+	private final long[] nodeIds;
+	private final int[] outOffsets;
+	private final int[] outTargets;
+	private final int[] inOffsets;
+	private final int[] inTargets;
+
+	private CsrGraph(long[] nodeIds, int[] outOffsets, int[] outTargets, int[] inOffsets, int[] inTargets) {
+		this.nodeIds = nodeIds;
+		this.outOffsets = outOffsets;
+		this.outTargets = outTargets;
+		this.inOffsets = inOffsets;
+		this.inTargets = inTargets;
+	}
+
+	void forEachFriend(long userId, LongConsumer consumer) {
+		forEach(userId, outOffsets, outTargets, consumer);
+	}
+
+	void forEachFollower(long userId, LongConsumer consumer) {
+		forEach(userId, inOffsets, inTargets, consumer);
+	}
+
+	/**
+	 * Передаёт друзей userId в visitor, пока тот возвращает true. false — обход был прерван.
+	 */
+	boolean friendsWhile(long userId, LongPredicate visitor) {
+		return visitWhile(userId, outOffsets, outTargets, visitor);
+	}
+
+	boolean followersWhile(long userId, LongPredicate visitor) {
+		return visitWhile(userId, inOffsets, inTargets, visitor);
+	}
+
+	int friendCount(long userId) {
+		return count(userId, outOffsets);
+	}
+
+	int followerCount(long userId) {
+		return count(userId, inOffsets);
+	}
+
+	void forEachNode(LongConsumer consumer) {
+		for (long nodeId : nodeIds) {
+			consumer.accept(nodeId);
+		}
+	}
+
+	boolean hasEdge(long userId, long friendId) {
+		int from = indexOf(userId);
+		int to = indexOf(friendId);
+		if (from < 0 || to < 0) {
+			return false;
+		}
+		return Arrays.binarySearch(outTargets, outOffsets[from], outOffsets[from + 1], to) >= 0;
+	}
+
+	int nodeCount() {
+		return nodeIds.length;
+	}
+
+	int edgeCount() {
+		return outTargets.length;
+	}
+
+	long estimateMemoryBytes() {
+		return (long) nodeIds.length * Long.BYTES + 2L * (nodeIds.length + 1) * Integer.BYTES
+			+ 2L * outTargets.length * Integer.BYTES;
+	}
+
+	private void forEach(long userId, int[] offsets, int[] targets, LongConsumer consumer) {
+		int index = indexOf(userId);
+		if (index < 0) {
+			return;
+		}
+		for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+			consumer.accept(nodeIds[targets[i]]);
+		}
+	}
+
+	private boolean visitWhile(long userId, int[] offsets, int[] targets, LongPredicate visitor) {
+		int index = indexOf(userId);
+		if (index < 0) {
+			return true;
+		}
+		for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+			if (!visitor.test(nodeIds[targets[i]])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int count(long userId, int[] offsets) {
+		int index = indexOf(userId);
+		return index < 0 ? 0 : offsets[index + 1] - offsets[index];
+	}
+
+	private int indexOf(long userId) {
+		return Arrays.binarySearch(nodeIds, userId);
+	}
+
+	/**
+	 * Накопитель рёбер для построения снимка. Повторяющиеся рёбра схлопываются.
+	 */
+	static final class Builder {
+		private long[] sources = new long[16];
+		private long[] targets = new long[16];
+		private int size;
+
+		void add(long userId, long friendId) {
+			if (size == sources.length) {
+				sources = Arrays.copyOf(sources, size * 2);
+				targets = Arrays.copyOf(targets, size * 2);
+			}
+			sources[size] = userId;
+			targets[size] = friendId;
+			size++;
+		}
+
+		CsrGraph build() {
+			long[] ids = new long[size * 2];
+			System.arraycopy(sources, 0, ids, 0, size);
+			System.arraycopy(targets, 0, ids, size, size);
+			Arrays.sort(ids);
+			int unique = 0;
+			for (int i = 0; i < ids.length; i++) {
+				if (i == 0 || ids[i] != ids[i - 1]) {
+					ids[unique++] = ids[i];
+				}
+			}
+			long[] nodeIds = Arrays.copyOf(ids, unique);
+
+			int[] from = new int[size];
+			int[] to = new int[size];
+			for (int i = 0; i < size; i++) {
+				from[i] = Arrays.binarySearch(nodeIds, sources[i]);
+				to[i] = Arrays.binarySearch(nodeIds, targets[i]);
+			}
+
+			int[] outOffsets = new int[unique + 1];
+			int[] outTargets = rows(from, to, outOffsets);
+			int[] inOffsets = new int[unique + 1];
+			int[] inTargets = rows(to, from, inOffsets);
+			return new CsrGraph(nodeIds, outOffsets, outTargets, inOffsets, inTargets);
+		}
+
+		/**
+		 * Раскладывает рёбра по строкам подсчётом, сортирует каждую строку и убирает повторы.
+		 */
+		private int[] rows(int[] rowOf, int[] valueOf, int[] offsets) {
+			int rowCount = offsets.length - 1;
+			int[] next = new int[rowCount + 1];
+			for (int row : rowOf) {
+				next[row + 1]++;
+			}
+			for (int i = 0; i < rowCount; i++) {
+				next[i + 1] += next[i];
+			}
+
+			int[] values = new int[rowOf.length];
+			int[] fill = Arrays.copyOf(next, rowCount);
+			for (int i = 0; i < rowOf.length; i++) {
+				values[fill[rowOf[i]]++] = valueOf[i];
+			}
+
+			int length = 0;
+			for (int row = 0; row < rowCount; row++) {
+				offsets[row] = length;
+				Arrays.sort(values, next[row], next[row + 1]);
+				for (int i = next[row]; i < next[row + 1]; i++) {
+					if (i == next[row] || values[i] != values[i - 1]) {
+						values[length++] = values[i];
+					}
+				}
+			}
+			offsets[rowCount] = length;
+			return length == values.length ? values : Arrays.copyOf(values, length);
+		}
+	}
+}
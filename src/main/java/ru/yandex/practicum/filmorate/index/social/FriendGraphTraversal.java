@@ -0,0 +1,512 @@
+package ru.yandex.practicum.filmorate.index.social;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Поиск кратчайшей цепочки друзей двунаправленным обходом в ширину.
+ * Граф хранится компактным снимком CsrGraph, изменения после снимка копятся в небольшом наложении
+ * (добавленные и удалённые рёбра) и вливаются в новый снимок, когда наложение вырастает.
+ * Новый снимок собирается в фоне из копии наложения, изменения за время сборки
+ * записываются и применяются поверх него при замене.
+ * Дружба односторонняя: цепочка идёт от пользователя по тем, кого он добавил в друзья.
+ */
+@Slf4j
+@Component
+public class FriendGraphTraversal implements MeterBinder {
+	private static final String LOAD_FRIENDS_QUERY = "SELECT user_id, friend_id FROM friends";
+	// Наложение вливается в снимок, когда превышает долю рёбер снимка, но не раньше этого порога
+	private static final int MIN_OVERLAY_EDGES = 4096;
+	private static final int OVERLAY_SHARE = 16;
+	private static final int ADD = 1;
+	private static final int REMOVE = 0;
+
+	private final JdbcTemplate jdbc;
+	private final int maxDepth;
+	private final int maxVisited;
+	private final Executor compactor;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final AtomicLong found = new AtomicLong();
+	private final AtomicLong notFound = new AtomicLong();
+	private final AtomicLong limited = new AtomicLong();
+	private final Overlay added = new Overlay();
+	private final Overlay removed = new Overlay();
+	private CsrGraph snapshot = CsrGraph.EMPTY;
+	// Изменения с начала фоновой сборки снимка: {ADD или REMOVE, пользователь, друг}; null, если сборки нет
+	private List<long[]> journal;
+	private volatile long lastRebuildMillis;
+
+	@Autowired
+	public FriendGraphTraversal(JdbcTemplate jdbc,
+								@Value("${filmorate.social.distance.max-depth:6}") int maxDepth,
+								@Value("${filmorate.social.distance.max-visited:200000}") int maxVisited) {
+		this(jdbc, maxDepth, maxVisited, Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "friend-graph-compaction");
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+
+	FriendGraphTraversal(JdbcTemplate jdbc, int maxDepth, int maxVisited, Executor compactor) {
+		this.jdbc = jdbc;
+		this.maxDepth = maxDepth;
+		this.maxVisited = maxVisited;
+		this.compactor = compactor;
+	}
+
+	@PostConstruct
+	public void rebuild() {
+		long start = System.nanoTime();
+		CsrGraph.Builder builder = new CsrGraph.Builder();
+
+		jdbc.query(LOAD_FRIENDS_QUERY, rs -> {
+			builder.add(rs.getLong("user_id"), rs.getLong("friend_id"));
+		});
+		CsrGraph rebuilt = builder.build();
+		replaceSnapshot(rebuilt);
+
+		lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+		log.info("Снимок графа дружбы построен за {} мс: вершин {}, рёбер {}, примерный объём {} байт",
+			lastRebuildMillis, rebuilt.nodeCount(), rebuilt.edgeCount(), rebuilt.estimateMemoryBytes());
+	}
+
+	/**
+	 * Заменяет граф готовым снимком, отбрасывая наложение.
+	 */
+	void replaceSnapshot(CsrGraph rebuilt) {
+		lock.writeLock().lock();
+		try {
+			snapshot = rebuilt;
+			added.clear();
+			removed.clear();
+			// Идущая сборка основана на старом снимке и будет отброшена
+			journal = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void addFriend(Long userId, Long friendId) {
+		lock.writeLock().lock();
+		try {
+			addEdge(userId, friendId);
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeFriend(Long userId, Long friendId) {
+		lock.writeLock().lock();
+		try {
+			removeEdge(userId, friendId);
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeUser(Long userId) {
+		lock.writeLock().lock();
+		try {
+			List<Long> friends = new ArrayList<>();
+			List<Long> followers = new ArrayList<>();
+			forEachFriend(userId, friends::add);
+			forEachFollower(userId, followers::add);
+			friends.forEach(friendId -> removeEdge(userId, friendId));
+			followers.forEach(followerId -> removeEdge(followerId, userId));
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (compactor instanceof ExecutorService executor) {
+			executor.shutdownNow();
+		}
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Кратчайшая цепочка от userId до otherId не длиннее depthLimit рёбер (и не длиннее max-depth).
+	 * Пусто, если цепочки нет или обход упёрся в ограничение на число посещённых вершин.
+	 */
+	public Optional<Route> findRoute(Long userId, Long otherId, int depthLimit) {
+		int depth = Math.min(depthLimit, maxDepth);
+		if (userId.equals(otherId)) {
+			found.incrementAndGet();
+			return Optional.of(new Route(0, new long[] {userId}));
+		}
+
+		lock.readLock().lock();
+		try {
+			Search search = new Search(userId, otherId);
+			while (search.meeting == null && !search.forward.frontier.isEmpty() && !search.backward.frontier.isEmpty()
+				&& search.forward.depth + search.backward.depth < depth) {
+				// Расширяется фронт с меньшей суммой степеней — так обход затрагивает меньше вершин,
+				// даже если в меньшем по числу вершин фронте есть популярный пользователь
+				if (degreeSum(search.forward.frontier, true) <= degreeSum(search.backward.frontier, false)) {
+					search.expand(search.forward, search.backward, true);
+				} else {
+					search.expand(search.backward, search.forward, false);
+				}
+				if (search.limited) {
+					limited.incrementAndGet();
+					log.debug("Поиск цепочки {} -> {} остановлен: посещено {} вершин", userId, otherId, search.visited());
+					return Optional.empty();
+				}
+			}
+
+			if (search.meeting == null) {
+				notFound.incrementAndGet();
+				return Optional.empty();
+			}
+			found.incrementAndGet();
+			return Optional.of(search.route());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getLastRebuildMillis() {
+		return lastRebuildMillis;
+	}
+
+	public long getEdgeCount() {
+		lock.readLock().lock();
+		try {
+			return snapshot.edgeCount() + added.size - removed.size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getOverlaySize() {
+		lock.readLock().lock();
+		try {
+			return added.size + removed.size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long estimateMemoryBytes() {
+		lock.readLock().lock();
+		try {
+			return snapshot.estimateMemoryBytes();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("filmorate.social.traversal.rebuild.time", this, FriendGraphTraversal::getLastRebuildMillis)
+			.baseUnit("milliseconds")
+			.register(registry);
+		Gauge.builder("filmorate.social.traversal.edges", this, FriendGraphTraversal::getEdgeCount)
+			.register(registry);
+		Gauge.builder("filmorate.social.traversal.overlay", this, FriendGraphTraversal::getOverlaySize)
+			.register(registry);
+		Gauge.builder("filmorate.social.traversal.memory", this, FriendGraphTraversal::estimateMemoryBytes)
+			.baseUnit("bytes")
+			.register(registry);
+		FunctionCounter.builder("filmorate.social.traversal.searches", found, AtomicLong::get)
+			.tag("result", "found")
+			.register(registry);
+		FunctionCounter.builder("filmorate.social.traversal.searches", notFound, AtomicLong::get)
+			.tag("result", "not_found")
+			.register(registry);
+		FunctionCounter.builder("filmorate.social.traversal.searches", limited, AtomicLong::get)
+			.tag("result", "limited")
+			.register(registry);
+	}
+
+	private void addEdge(long userId, long friendId) {
+		if (!removed.remove(userId, friendId) && !snapshot.hasEdge(userId, friendId)) {
+			added.add(userId, friendId);
+		}
+		if (journal != null) {
+			journal.add(new long[] {ADD, userId, friendId});
+		}
+	}
+
+	private void removeEdge(long userId, long friendId) {
+		if (!added.remove(userId, friendId) && snapshot.hasEdge(userId, friendId)) {
+			removed.add(userId, friendId);
+		}
+		if (journal != null) {
+			journal.add(new long[] {REMOVE, userId, friendId});
+		}
+	}
+
+	/**
+	 * Передаёт соседей вершины в visitor, пока тот возвращает true.
+	 */
+	private void neighboursWhile(long userId, boolean outgoing, LongPredicate visitor) {
+		Set<Long> skipped = (outgoing ? removed.outgoing : removed.incoming).getOrDefault(userId, Set.of());
+		LongPredicate filtered = neighbour -> skipped.contains(neighbour) || visitor.test(neighbour);
+		boolean completed = outgoing
+			? snapshot.friendsWhile(userId, filtered)
+			: snapshot.followersWhile(userId, filtered);
+		if (!completed) {
+			return;
+		}
+		for (Long neighbour : (outgoing ? added.outgoing : added.incoming).getOrDefault(userId, Set.of())) {
+			if (!visitor.test(neighbour)) {
+				return;
+			}
+		}
+	}
+
+	private long degreeSum(List<Long> frontier, boolean outgoing) {
+		long sum = 0;
+		for (Long node : frontier) {
+			sum += outgoing
+				? snapshot.friendCount(node) - removed.outgoing.getOrDefault(node, Set.of()).size()
+					+ added.outgoing.getOrDefault(node, Set.of()).size()
+				: snapshot.followerCount(node) - removed.incoming.getOrDefault(node, Set.of()).size()
+					+ added.incoming.getOrDefault(node, Set.of()).size();
+		}
+		return sum;
+	}
+
+	private void forEachFriend(long userId, LongConsumer consumer) {
+		Set<Long> skipped = removed.outgoing.getOrDefault(userId, Set.of());
+		snapshot.forEachFriend(userId, friendId -> {
+			if (!skipped.contains(friendId)) {
+				consumer.accept(friendId);
+			}
+		});
+		added.outgoing.getOrDefault(userId, Set.of()).forEach(consumer::accept);
+	}
+
+	private void forEachFollower(long userId, LongConsumer consumer) {
+		Set<Long> skipped = removed.incoming.getOrDefault(userId, Set.of());
+		snapshot.forEachFollower(userId, followerId -> {
+			if (!skipped.contains(followerId)) {
+				consumer.accept(followerId);
+			}
+		});
+		added.incoming.getOrDefault(userId, Set.of()).forEach(consumer::accept);
+	}
+
+	/**
+	 * Под блокировкой записи только копируется наложение, сам снимок собирается в фоне.
+	 */
+	private void compactIfNeeded() {
+		if (journal != null
+			|| added.size + removed.size <= Math.max(MIN_OVERLAY_EDGES, snapshot.edgeCount() / OVERLAY_SHARE)) {
+			return;
+		}
+
+		CsrGraph base = snapshot;
+		Overlay baseAdded = added.copy();
+		Overlay baseRemoved = removed.copy();
+		List<long[]> changes = new ArrayList<>();
+		journal = changes;
+		try {
+			compactor.execute(() -> compact(base, baseAdded, baseRemoved, changes));
+		} catch (RejectedExecutionException e) {
+			journal = null;
+		}
+	}
+
+	private void compact(CsrGraph base, Overlay baseAdded, Overlay baseRemoved, List<long[]> changes) {
+		long start = System.nanoTime();
+		CsrGraph.Builder builder = new CsrGraph.Builder();
+		base.forEachNode(userId -> {
+			Set<Long> skipped = baseRemoved.outgoing.getOrDefault(userId, Set.of());
+			base.forEachFriend(userId, friendId -> {
+				if (!skipped.contains(friendId)) {
+					builder.add(userId, friendId);
+				}
+			});
+		});
+		baseAdded.outgoing.forEach((userId, friends) -> friends.forEach(friendId -> builder.add(userId, friendId)));
+		CsrGraph compacted = builder.build();
+
+		lock.writeLock().lock();
+		try {
+			if (journal != changes) {
+				return;
+			}
+			journal = null;
+			snapshot = compacted;
+			added.clear();
+			removed.clear();
+			for (long[] change : changes) {
+				if (change[0] == ADD) {
+					addEdge(change[1], change[2]);
+				} else {
+					removeEdge(change[1], change[2]);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		log.debug("Наложение графа дружбы влито в снимок за {} мс, изменений за время сборки {}",
+			(System.nanoTime() - start) / 1_000_000, changes.size());
+	}
+
+	/**
+	 * Кратчайшая цепочка: distance рёбер, path — id пользователей от начала до конца.
+	 */
+	public record Route(int distance, long[] path) {
+	}
+
+	/**
+	 * Рёбра наложения в обе стороны.
+	 */
+	private static final class Overlay {
+		private final Map<Long, Set<Long>> outgoing = new HashMap<>();
+		private final Map<Long, Set<Long>> incoming = new HashMap<>();
+		private int size;
+
+		private void add(long userId, long friendId) {
+			if (outgoing.computeIfAbsent(userId, id -> new HashSet<>()).add(friendId)) {
+				incoming.computeIfAbsent(friendId, id -> new HashSet<>()).add(userId);
+				size++;
+			}
+		}
+
+		private boolean remove(long userId, long friendId) {
+			Set<Long> friends = outgoing.get(userId);
+			if (friends == null || !friends.remove(friendId)) {
+				return false;
+			}
+			if (friends.isEmpty()) {
+				outgoing.remove(userId);
+			}
+			Set<Long> followers = incoming.get(friendId);
+			followers.remove(userId);
+			if (followers.isEmpty()) {
+				incoming.remove(friendId);
+			}
+			size--;
+			return true;
+		}
+
+		private void clear() {
+			outgoing.clear();
+			incoming.clear();
+			size = 0;
+		}
+
+		private Overlay copy() {
+			Overlay copy = new Overlay();
+			outgoing.forEach((userId, friends) -> copy.outgoing.put(userId, new HashSet<>(friends)));
+			copy.size = size;
+			return copy;
+		}
+	}
+
+	/**
+	 * Одна сторона обхода: для каждой посещённой вершины — соседняя вершина, через которую в неё пришли.
+	 */
+	private static final class Side {
+		private final Map<Long, Long> parents = new HashMap<>();
+		private List<Long> frontier = new ArrayList<>();
+		private int depth;
+
+		private Side(long start) {
+			parents.put(start, start);
+			frontier.add(start);
+		}
+	}
+
+	private final class Search {
+		private final Side forward;
+		private final Side backward;
+		private Long meeting;
+		private boolean limited;
+
+		private Search(long userId, long otherId) {
+			forward = new Side(userId);
+			backward = new Side(otherId);
+		}
+
+		/**
+		 * Проходит один уровень стороны side. Первая вершина, уже посещённая другой стороной,
+		 * даёт кратчайшую цепочку: при обходе целыми уровнями все встречи на этом уровне одной длины.
+		 * Обход прерывается сразу, как только число посещённых вершин превышает max-visited,
+		 * а не после целого уровня — иначе один популярный пользователь добавил бы всех своих соседей.
+		 */
+		private void expand(Side side, Side other, boolean outgoing) {
+			List<Long> next = new ArrayList<>();
+			for (Long node : side.frontier) {
+				LongPredicate visit = neighbour -> {
+					if (side.parents.putIfAbsent(neighbour, node) == null) {
+						next.add(neighbour);
+						if (other.parents.containsKey(neighbour)) {
+							meeting = neighbour;
+							return false;
+						}
+						if (visited() > maxVisited) {
+							limited = true;
+							return false;
+						}
+					}
+					return true;
+				};
+				neighboursWhile(node, outgoing, visit);
+				if (meeting != null || limited) {
+					break;
+				}
+			}
+			side.frontier = next;
+			side.depth++;
+		}
+
+		private int visited() {
+			return forward.parents.size() + backward.parents.size();
+		}
+
+		private Route route() {
+			List<Long> nodes = new ArrayList<>();
+			for (Long node = meeting; !forward.parents.get(node).equals(node); ) {
+				node = forward.parents.get(node);
+				nodes.add(node);
+			}
+			Collections.reverse(nodes);
+			nodes.add(meeting);
+			for (Long node = meeting; !backward.parents.get(node).equals(node); ) {
+				node = backward.parents.get(node);
+				nodes.add(node);
+			}
+			return new Route(nodes.size() - 1, nodes.stream().mapToLong(Long::longValue).toArray());
+		}
+	}
+}
@@ -0,0 +1,319 @@
+package ru.yandex.practicum.filmorate.index.social;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Граф дружбы в памяти. Дружба в таблице friends односторонняя, поэтому для каждого пользователя
+ * хранятся исходящие (кого он добавил) и входящие (кто добавил его) рёбра — отсортированные массивы long.
+ * <p>
+ * Объём: каждое ребро лежит в двух массивах по 8 байт, с запасом роста массивов (до 1,5 раза)
+ * выходит 16–24 байта на ребро, то есть 16–24 МБ на миллион рёбер. Сверх этого около 200 байт
+ * на пользователя со связями: записи HashMap, ключи Long и заголовки массивов.
+ */
+@Slf4j
+@Component
+public class SocialGraphIndex implements MeterBinder {
+	private static final String LOAD_FRIENDS_QUERY = "SELECT user_id, friend_id FROM friends";
+	// Оценка для записи HashMap с ключом Long и объектом Adjacency
+	private static final long BYTES_PER_NODE = 112;
+
+	private final JdbcTemplate jdbc;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private State state = new State();
+	private volatile long lastRebuildMillis;
+
+	public SocialGraphIndex(JdbcTemplate jdbc) {
+		this.jdbc = jdbc;
+	}
+
+	@PostConstruct
+	public void rebuild() {
+		long start = System.nanoTime();
+		State rebuilt = new State();
+
+		jdbc.query(LOAD_FRIENDS_QUERY, rs -> {
+			rebuilt.addEdge(rs.getLong("user_id"), rs.getLong("friend_id"));
+		});
+
+		lock.writeLock().lock();
+		try {
+			state = rebuilt;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+		log.info("Граф дружбы загружен за {} мс: пользователей {}, связей {}, примерный объём {} байт",
+			lastRebuildMillis, rebuilt.outgoing.size(), rebuilt.edges, estimateMemoryBytes());
+	}
+
+	public void addFriend(Long userId, Long friendId) {
+		lock.writeLock().lock();
+		try {
+			state.addEdge(userId, friendId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeFriend(Long userId, Long friendId) {
+		lock.writeLock().lock();
+		try {
+			state.removeEdge(userId, friendId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeUser(Long userId) {
+		lock.writeLock().lock();
+		try {
+			for (long friendId : state.outgoing.getOrDefault(userId, Adjacency.EMPTY).toArray()) {
+				state.removeEdge(userId, friendId);
+			}
+			for (long followerId : state.incoming.getOrDefault(userId, Adjacency.EMPTY).toArray()) {
+				state.removeEdge(followerId, userId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Друзья пользователя по возрастанию id.
+	 */
+	public long[] getFriends(Long userId) {
+		lock.readLock().lock();
+		try {
+			return state.outgoing.getOrDefault(userId, Adjacency.EMPTY).toArray();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Подписчики — пользователи, добавившие userId в друзья, по возрастанию id.
+	 */
+	public long[] getFollowers(Long userId) {
+		lock.readLock().lock();
+		try {
+			return state.incoming.getOrDefault(userId, Adjacency.EMPTY).toArray();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getFollowerCount(Long userId) {
+		lock.readLock().lock();
+		try {
+			return state.incoming.getOrDefault(userId, Adjacency.EMPTY).size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Общие друзья — пересечение двух отсортированных списков, по возрастанию id.
+	 */
+	public long[] getMutualFriends(Long userId, Long otherId) {
+		lock.readLock().lock();
+		try {
+			Adjacency first = state.outgoing.getOrDefault(userId, Adjacency.EMPTY);
+			Adjacency second = state.outgoing.getOrDefault(otherId, Adjacency.EMPTY);
+			long[] result = new long[Math.min(first.size, second.size)];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < first.size && j < second.size) {
+				if (first.ids[i] < second.ids[j]) {
+					i++;
+				} else if (first.ids[i] > second.ids[j]) {
+					j++;
+				} else {
+					result[count++] = first.ids[i];
+					i++;
+					j++;
+				}
+			}
+			return Arrays.copyOf(result, count);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Кандидаты в друзья: пользователи, у которых есть общие друзья с userId и которых он ещё не добавил.
+	 * Общего друга f у userId и g дают рёбра userId -> f и g -> f, поэтому обходятся входящие рёбра друзей.
+	 * Сначала кандидаты с большим числом общих друзей, при равенстве — с меньшим id.
+	 */
+	public List<Suggestion> getSuggestions(Long userId, int limit) {
+		lock.readLock().lock();
+		try {
+			Adjacency friends = state.outgoing.getOrDefault(userId, Adjacency.EMPTY);
+			Map<Long, int[]> mutual = new HashMap<>();
+			for (int i = 0; i < friends.size; i++) {
+				Adjacency followers = state.incoming.getOrDefault(friends.ids[i], Adjacency.EMPTY);
+				for (int j = 0; j < followers.size; j++) {
+					long candidate = followers.ids[j];
+					if (candidate != userId && !friends.contains(candidate)) {
+						mutual.computeIfAbsent(candidate, id -> new int[1])[0]++;
+					}
+				}
+			}
+
+			Comparator<Suggestion> order = Comparator.comparingInt(Suggestion::mutualFriends).reversed()
+				.thenComparingLong(Suggestion::userId);
+			PriorityQueue<Suggestion> top = new PriorityQueue<>(order.reversed());
+			mutual.forEach((candidate, count) -> {
+				Suggestion suggestion = new Suggestion(candidate, count[0]);
+				if (top.size() < limit) {
+					top.add(suggestion);
+				} else if (limit > 0 && order.compare(suggestion, top.peek()) < 0) {
+					top.poll();
+					top.add(suggestion);
+				}
+			});
+			List<Suggestion> result = new ArrayList<>(top);
+			result.sort(order);
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getLastRebuildMillis() {
+		return lastRebuildMillis;
+	}
+
+	public long getEdgeCount() {
+		lock.readLock().lock();
+		try {
+			return state.edges;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long estimateMemoryBytes() {
+		lock.readLock().lock();
+		try {
+			long bytes = (state.outgoing.size() + state.incoming.size()) * BYTES_PER_NODE;
+			for (Adjacency adjacency : state.outgoing.values()) {
+				bytes += (long) adjacency.ids.length * Long.BYTES;
+			}
+			for (Adjacency adjacency : state.incoming.values()) {
+				bytes += (long) adjacency.ids.length * Long.BYTES;
+			}
+			return bytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("filmorate.social.index.rebuild.time", this, SocialGraphIndex::getLastRebuildMillis)
+			.baseUnit("milliseconds")
+			.register(registry);
+		Gauge.builder("filmorate.social.index.edges", this, SocialGraphIndex::getEdgeCount)
+			.register(registry);
+		Gauge.builder("filmorate.social.index.memory", this, SocialGraphIndex::estimateMemoryBytes)
+			.baseUnit("bytes")
+			.register(registry);
+	}
+
+	public record Suggestion(long userId, int mutualFriends) {
+	}
+
+	private static final class State {
+		private final Map<Long, Adjacency> outgoing = new HashMap<>();
+		private final Map<Long, Adjacency> incoming = new HashMap<>();
+		private long edges;
+
+		private void addEdge(long userId, long friendId) {
+			if (outgoing.computeIfAbsent(userId, id -> new Adjacency()).add(friendId)) {
+				incoming.computeIfAbsent(friendId, id -> new Adjacency()).add(userId);
+				edges++;
+			}
+		}
+
+		private void removeEdge(long userId, long friendId) {
+			if (remove(outgoing, userId, friendId)) {
+				remove(incoming, friendId, userId);
+				edges--;
+			}
+		}
+
+		private static boolean remove(Map<Long, Adjacency> adjacencies, long key, long value) {
+			Adjacency adjacency = adjacencies.get(key);
+			if (adjacency == null || !adjacency.remove(value)) {
+				return false;
+			}
+			if (adjacency.size == 0) {
+				adjacencies.remove(key);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Отсортированный по возрастанию список id.
+	 */
+	private static final class Adjacency {
+		private static final Adjacency EMPTY = new Adjacency();
+
+		private long[] ids = new long[2];
+		private int size;
+
+		private boolean add(long id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if (pos >= 0) {
+				return false;
+			}
+
+			pos = -pos - 1;
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+			}
+			System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+			ids[pos] = id;
+			size++;
+			return true;
+		}
+
+		private boolean remove(long id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if (pos < 0) {
+				return false;
+			}
+
+			System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+			size--;
+			return true;
+		}
+
+		private boolean contains(long id) {
+			return Arrays.binarySearch(ids, 0, size, id) >= 0;
+		}
+
+		private long[] toArray() {
+			return Arrays.copyOf(ids, size);
+		}
+	}
+}
@@ -0,0 +1,486 @@
+package ru.yandex.practicum.filmorate.index.social;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventCursor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ленты активности друзей с раскладкой при записи. Буфер ленты создаётся при первом чтении
+ * из последних событий тех, кого пользователь добавил в друзья, после этого события авторов сразу
+ * попадают в буферы их подписчиков. У популярных авторов, где подписчиков больше fan-out-limit,
+ * событие остаётся в собственном буфере автора и подмешивается при чтении.
+ * <p>
+ * Объём: запись буфера — 16 байт (id события, автор), буфер растёт до capacity записей,
+ * сверх этого около 100 байт на буфер. Когда оценка объёма превышает max-memory, буферы,
+ * которые дольше всех не читали, вытесняются и при следующем чтении загружаются заново.
+ */
+@Slf4j
+@Component
+public class TimelineIndex implements MeterBinder {
+	private static final String LOAD_RECENT_QUERY = """
+			SELECT id, user_id
+			FROM events
+			WHERE user_id IN (%s)
+			ORDER BY id DESC
+			LIMIT ?
+			""";
+	// Оценка для записи HashMap с ключом Long, объекта Ring и заголовка массива
+	private static final long BYTES_PER_RING = 104;
+	// Вытеснение освобождает память с запасом, чтобы не сортировать буферы на каждой записи
+	private static final int EVICT_TO_PERCENT = 90;
+	private static final Comparator<EventCursor> NEWEST_FIRST = Comparator.reverseOrder();
+
+	private final SocialGraphIndex socialGraphIndex;
+	private final History history;
+	private final int capacity;
+	private final int fanOutLimit;
+	private final long maxMemoryBytes;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Long, Ring> timelines = new HashMap<>();
+	private final Map<Long, Ring> authors = new HashMap<>();
+	private final AtomicLong readClock = new AtomicLong();
+	private final AtomicLong fannedOut = new AtomicLong();
+	private final AtomicLong deferred = new AtomicLong();
+	private final AtomicLong loaded = new AtomicLong();
+	private final AtomicLong evicted = new AtomicLong();
+	private final AtomicLong discarded = new AtomicLong();
+	// Сумма bytes() буферов из timelines и authors
+	private long memoryBytes;
+
+	@Autowired
+	public TimelineIndex(JdbcTemplate jdbc,
+						 SocialGraphIndex socialGraphIndex,
+						 @Value("${filmorate.timeline.capacity:500}") int capacity,
+						 @Value("${filmorate.timeline.fan-out-limit:1000}") int fanOutLimit,
+						 @Value("${filmorate.timeline.max-memory:256MB}") DataSize maxMemory) {
+		this(socialGraphIndex, (authorIds, limit) -> loadRecent(jdbc, authorIds, limit),
+			capacity, fanOutLimit, maxMemory.toBytes());
+	}
+
+	TimelineIndex(SocialGraphIndex socialGraphIndex, History history, int capacity, int fanOutLimit,
+				  long maxMemoryBytes) {
+		this.socialGraphIndex = socialGraphIndex;
+		this.history = history;
+		this.capacity = capacity;
+		this.fanOutLimit = fanOutLimit;
+		this.maxMemoryBytes = maxMemoryBytes;
+	}
+
+	/**
+	 * Раскладывает записанные события по лентам подписчиков.
+	 */
+	public void onWritten(List<Event> events) {
+		for (Event event : events) {
+			add(event.getUserId(), event.getId());
+		}
+	}
+
+	/**
+	 * События, которые не удалось разложить: буферы подписчиков их авторов сбрасываются
+	 * и при следующем чтении загружаются из базы. У популярных авторов событие просто
+	 * кладётся в буфер автора — это одна запись.
+	 */
+	public void discard(List<Event> events) {
+		for (Event event : events) {
+			long authorId = event.getUserId();
+			long[] followers = followersToFanOut(authorId);
+
+			lock.writeLock().lock();
+			try {
+				if (followers == null) {
+					pushAuthor(authorId, event.getId());
+					continue;
+				}
+				for (long followerId : followers) {
+					if (removeTimeline(followerId)) {
+						discarded.incrementAndGet();
+					}
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	public void removeUser(Long userId) {
+		lock.writeLock().lock();
+		try {
+			removeTimeline(userId);
+			Ring ring = authors.remove(userId);
+			if (ring != null) {
+				memoryBytes -= ring.bytes();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Позиции событий ленты userId строго до before (или последних), от новых к старым, не больше limit.
+	 * Записи авторов, которых пользователь уже удалил из друзей, пропускаются.
+	 */
+	public List<EventCursor> page(Long userId, EventCursor before, int limit) {
+		long[] followees = socialGraphIndex.getFriends(userId);
+		Ring own = timeline(userId, followees);
+		List<EventCursor> candidates = new ArrayList<>();
+
+		lock.readLock().lock();
+		try {
+			own.collect(followees, before, candidates);
+			// Популярных авторов немного, поэтому их буферы проще обойти, чем искать среди followees
+			if (authors.size() < followees.length) {
+				authors.forEach((authorId, ring) -> {
+					if (Arrays.binarySearch(followees, authorId) >= 0) {
+						ring.collect(null, before, candidates);
+					}
+				});
+			} else {
+				for (long authorId : followees) {
+					Ring ring = authors.get(authorId);
+					if (ring != null) {
+						ring.collect(null, before, candidates);
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		candidates.sort(NEWEST_FIRST);
+		// Событие популярного автора, загруженное из базы, может быть и в его собственном буфере
+		List<EventCursor> page = new ArrayList<>(Math.min(limit, candidates.size()));
+		for (EventCursor cursor : candidates) {
+			if (page.size() == limit) {
+				break;
+			}
+			if (page.isEmpty() || !page.getLast().equals(cursor)) {
+				page.add(cursor);
+			}
+		}
+		return page;
+	}
+
+	public int getRingCount() {
+		lock.readLock().lock();
+		try {
+			return timelines.size() + authors.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long estimateMemoryBytes() {
+		lock.readLock().lock();
+		try {
+			return memoryBytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getMaxMemoryBytes() {
+		return maxMemoryBytes;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("filmorate.timeline.index.rings", this, TimelineIndex::getRingCount)
+			.register(registry);
+		Gauge.builder("filmorate.timeline.index.memory", this, TimelineIndex::estimateMemoryBytes)
+			.baseUnit("bytes")
+			.register(registry);
+		Gauge.builder("filmorate.timeline.index.memory.limit", this, TimelineIndex::getMaxMemoryBytes)
+			.baseUnit("bytes")
+			.register(registry);
+		FunctionCounter.builder("filmorate.timeline.fanout", fannedOut, AtomicLong::get)
+			.tag("mode", "write")
+			.register(registry);
+		FunctionCounter.builder("filmorate.timeline.fanout", deferred, AtomicLong::get)
+			.tag("mode", "read")
+			.register(registry);
+		FunctionCounter.builder("filmorate.timeline.index.loads", loaded, AtomicLong::get)
+			.register(registry);
+		FunctionCounter.builder("filmorate.timeline.index.evictions", evicted, AtomicLong::get)
+			.tag("reason", "memory")
+			.register(registry);
+		FunctionCounter.builder("filmorate.timeline.index.evictions", discarded, AtomicLong::get)
+			.tag("reason", "fan-out-overflow")
+			.register(registry);
+	}
+
+	/**
+	 * Буфер ленты userId; если его нет, он загружается из базы. Пустой буфер регистрируется
+	 * до запроса, поэтому события, записанные во время загрузки, попадут в него раскладкой,
+	 * а повторы из запроса отбрасываются при слиянии.
+	 */
+	private Ring timeline(long userId, long[] followees) {
+		lock.readLock().lock();
+		try {
+			Ring ring = timelines.get(userId);
+			if (ring != null && ring.filled) {
+				ring.lastRead = readClock.incrementAndGet();
+				return ring;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		Ring ring;
+		lock.writeLock().lock();
+		try {
+			ring = timelines.get(userId);
+			if (ring == null) {
+				ring = new Ring();
+				timelines.put(userId, ring);
+				memoryBytes += ring.bytes();
+			}
+			ring.lastRead = readClock.incrementAndGet();
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		List<long[]> recent = followees.length == 0 ? List.of() : history.recent(followees, capacity);
+		loaded.incrementAndGet();
+
+		lock.writeLock().lock();
+		try {
+			long before = ring.bytes();
+			ring.merge(recent);
+			ring.filled = true;
+			// Буфер мог быть вытеснен, пока шёл запрос, — тогда он читается один раз и не учитывается
+			if (timelines.get(userId) == ring) {
+				memoryBytes += ring.bytes() - before;
+				evictIfNeeded();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return ring;
+	}
+
+	private void add(long authorId, long eventId) {
+		long[] followers = followersToFanOut(authorId);
+
+		lock.writeLock().lock();
+		try {
+			if (followers == null) {
+				pushAuthor(authorId, eventId);
+				deferred.incrementAndGet();
+				return;
+			}
+			// Подписчики, ещё не читавшие ленту, получат событие из базы при первом чтении
+			int pushed = 0;
+			for (long followerId : followers) {
+				Ring ring = timelines.get(followerId);
+				if (ring != null) {
+					long before = ring.bytes();
+					ring.push(eventId, authorId);
+					memoryBytes += ring.bytes() - before;
+					pushed++;
+				}
+			}
+			fannedOut.addAndGet(pushed);
+			evictIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Подписчики автора или null, если их больше fan-out-limit. Число подписчиков проверяется
+	 * до копирования списка: у популярного автора он может быть в сотни тысяч.
+	 */
+	private long[] followersToFanOut(long authorId) {
+		if (socialGraphIndex.getFollowerCount(authorId) > fanOutLimit) {
+			return null;
+		}
+		long[] followers = socialGraphIndex.getFollowers(authorId);
+		return followers.length > fanOutLimit ? null : followers;
+	}
+
+	private void pushAuthor(long authorId, long eventId) {
+		Ring ring = authors.get(authorId);
+		if (ring == null) {
+			ring = new Ring();
+			ring.filled = true;
+			authors.put(authorId, ring);
+			memoryBytes += ring.bytes();
+		}
+		long before = ring.bytes();
+		ring.push(eventId, authorId);
+		memoryBytes += ring.bytes() - before;
+	}
+
+	private boolean removeTimeline(long userId) {
+		Ring ring = timelines.remove(userId);
+		if (ring == null) {
+			return false;
+		}
+		memoryBytes -= ring.bytes();
+		return true;
+	}
+
+	/**
+	 * Вытесняет ленты, которые дольше всех не читали, пока оценка объёма не опустится
+	 * ниже EVICT_TO_PERCENT от max-memory. Буферы популярных авторов не вытесняются:
+	 * их не больше числа авторов сверх fan-out-limit.
+	 */
+	private void evictIfNeeded() {
+		if (memoryBytes <= maxMemoryBytes) {
+			return;
+		}
+		long target = maxMemoryBytes / 100 * EVICT_TO_PERCENT;
+		List<Map.Entry<Long, Ring>> idle = new ArrayList<>(timelines.entrySet());
+		idle.sort(Comparator.comparingLong(entry -> entry.getValue().lastRead));
+		int count = 0;
+		for (Map.Entry<Long, Ring> entry : idle) {
+			if (memoryBytes <= target) {
+				break;
+			}
+			removeTimeline(entry.getKey());
+			count++;
+		}
+		evicted.addAndGet(count);
+		log.debug("Вытеснено лент друзей: {}, примерный объём {} байт", count, memoryBytes);
+	}
+
+	private static List<long[]> loadRecent(JdbcTemplate jdbc, long[] authorIds, int limit) {
+		String placeholders = String.join(",", Collections.nCopies(authorIds.length, "?"));
+		Object[] args = new Object[authorIds.length + 1];
+		for (int i = 0; i < authorIds.length; i++) {
+			args[i] = authorIds[i];
+		}
+		args[authorIds.length] = limit;
+		List<long[]> recent = new ArrayList<>();
+		jdbc.query(LOAD_RECENT_QUERY.formatted(placeholders), rs -> {
+			recent.add(new long[] {rs.getLong("id"), rs.getLong("user_id")});
+		}, args);
+		return recent;
+	}
+
+	/**
+	 * Последние события авторов для загрузки ленты: пары (id события, автор), не больше limit.
+	 */
+	@FunctionalInterface
+	interface History {
+		List<long[]> recent(long[] authorIds, int limit);
+	}
+
+	/**
+	 * Кольцевой буфер записей (id события, автор), старые вытесняются новыми.
+	 * Массив растёт удвоением до capacity записей.
+	 */
+	private final class Ring {
+		private static final int FIELDS = 2;
+
+		private long[] data = new long[Math.min(8, capacity) * FIELDS];
+		private int head;
+		private int size;
+		// Пишется под блокировкой чтения, поэтому volatile; точный порядок для вытеснения не важен
+		private volatile long lastRead;
+		private boolean filled;
+
+		private long bytes() {
+			return BYTES_PER_RING + (long) data.length * Long.BYTES;
+		}
+
+		private void push(long eventId, long authorId) {
+			int slots = data.length / FIELDS;
+			// Раскладка отстаёт от записи, так что событие могло прийти раньше из базы при загрузке
+			if (size > 0 && eventId <= data[((head + size - 1) % slots) * FIELDS] && contains(eventId)) {
+				return;
+			}
+			if (size == slots && slots < capacity) {
+				long[] grown = new long[Math.min(slots * 2, capacity) * FIELDS];
+				for (int i = 0; i < size; i++) {
+					System.arraycopy(data, ((head + i) % slots) * FIELDS, grown, i * FIELDS, FIELDS);
+				}
+				data = grown;
+				head = 0;
+				slots = data.length / FIELDS;
+			}
+
+			int slot = (head + size) % slots;
+			if (size == slots) {
+				head = (head + 1) % slots;
+			} else {
+				size++;
+			}
+			data[slot * FIELDS] = eventId;
+			data[slot * FIELDS + 1] = authorId;
+		}
+
+		/**
+		 * Сливает загруженные записи с уже разложенными, оставляя capacity новейших без повторов.
+		 */
+		private void merge(List<long[]> recent) {
+			int slots = data.length / FIELDS;
+			List<long[]> entries = new ArrayList<>(recent);
+			for (int i = 0; i < size; i++) {
+				int offset = ((head + i) % slots) * FIELDS;
+				entries.add(new long[] {data[offset], data[offset + 1]});
+			}
+			entries.sort(Comparator.comparingLong(entry -> entry[0]));
+
+			List<long[]> unique = new ArrayList<>(entries.size());
+			for (long[] entry : entries) {
+				if (unique.isEmpty() || unique.getLast()[0] != entry[0]) {
+					unique.add(entry);
+				}
+			}
+			List<long[]> kept = unique.subList(Math.max(0, unique.size() - capacity), unique.size());
+
+			data = new long[Math.max(Math.min(8, capacity), kept.size()) * FIELDS];
+			head = 0;
+			size = kept.size();
+			for (int i = 0; i < size; i++) {
+				data[i * FIELDS] = kept.get(i)[0];
+				data[i * FIELDS + 1] = kept.get(i)[1];
+			}
+		}
+
+		private boolean contains(long eventId) {
+			int slots = data.length / FIELDS;
+			for (int i = 0; i < size; i++) {
+				if (data[((head + i) % slots) * FIELDS] == eventId) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void collect(long[] followees, EventCursor before, List<EventCursor> target) {
+			int slots = data.length / FIELDS;
+			for (int i = 0; i < size; i++) {
+				int offset = ((head + i) % slots) * FIELDS;
+				if (followees != null && Arrays.binarySearch(followees, data[offset + 1]) < 0) {
+					continue;
+				}
+				EventCursor cursor = new EventCursor(data[offset]);
+				if (before == null || cursor.compareTo(before) < 0) {
+					target.add(cursor);
+				}
+			}
+		}
+	}
+}
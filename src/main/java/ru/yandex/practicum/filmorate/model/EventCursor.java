@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.model;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Позиция в ленте событий — id события. Id выдаются по возрастанию при вставке, а time_stamp задаёт
+ * вызывающий код ещё до записи, поэтому события могут закоммититься не по порядку времени
+ * и курсор по времени пропускал бы их.
+ * Курсоры прежнего вида "timestamp:id" принимаются, от них берётся id.
+ */
+public record EventCursor(long id) implements Comparable<EventCursor> {
+
+    public static EventCursor of(Event event) {
+        return new EventCursor(event.getId());
+    }
+
+    public static EventCursor parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new EventCursor(Long.parseLong(value.substring(value.lastIndexOf(':') + 1)));
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный курсор ленты: " + value);
+        }
+    }
+
+    @Override
+    public int compareTo(EventCursor other) {
+        return Long.compare(id, other.id);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(id);
+    }
+}
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dto.DirectorDto;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.search.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.mapper.DirectorMapper;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
 
@@ -18,6 +19,7 @@ import java.util.stream.Collectors;
 public class DirectorService {
 	private final DirectorStorage directorStorage;
 	private final DirectorMapper directorMapper;
+	private final FilmSearchIndex filmSearchIndex;
 
 	public Set<DirectorDto> getDirectors() {
 		Set<DirectorDto> directors = directorStorage.getDirectors().stream()
@@ -37,6 +39,7 @@ public class DirectorService {
 	public DirectorDto createDirector(DirectorDto directorDto) {
 		var director = directorMapper.mapToDirector(directorDto);
 		var createdDirector = directorStorage.createDirector(director);
+		filmSearchIndex.putDirector(createdDirector);
 		log.info("Создан режиссёр: {}", createdDirector);
 		return directorMapper.mapToDirectorDto(createdDirector);
 	}
@@ -45,6 +48,7 @@ public class DirectorService {
 		var director = directorMapper.mapToDirector(directorDto);
 		var updatedDirector = directorStorage.updateDirector(director)
 			.orElseThrow(() -> new NotFoundException("Режиссёр с id = " + director.getId() + " не найден"));
+		filmSearchIndex.putDirector(updatedDirector);
 		log.info("Обновлён режиссёр: {}", updatedDirector);
 		return directorMapper.mapToDirectorDto(updatedDirector);
 	}
@@ -53,6 +57,7 @@ public class DirectorService {
 		if (!directorStorage.deleteDirector(id)) {
 			throw new NotFoundException("Режиссёр с id = " + id + " не найден");
 		}
+		filmSearchIndex.removeDirector(id);
 		log.info("Удалён режиссёр с id = {}", id);
 	}
 }
\ No newline at end of file
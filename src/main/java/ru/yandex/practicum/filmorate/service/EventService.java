@@ -1,24 +1,118 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dto.FeedPageDto;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.social.TimelineIndex;
 import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventCursor;
 import ru.yandex.practicum.filmorate.storage.event.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.event.EventWriter;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+@Slf4j
 @Service
-public class EventService {
+public class EventService implements MeterBinder {
     private final EventDbStorage storage;
+    private final EventWriter eventWriter;
+    private final TimelineIndex timelineIndex;
     private final Validation validation;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final Executor fanOut;
+    private final AtomicLong droppedBatches = new AtomicLong();
 
-    public EventService(EventDbStorage storage, Validation validation) {
+    @Autowired
+    public EventService(EventDbStorage storage,
+                        EventWriter eventWriter,
+                        TimelineIndex timelineIndex,
+                        Validation validation,
+                        @Value("${filmorate.feed.page.default-size:100}") int defaultPageSize,
+                        @Value("${filmorate.feed.page.max-size:1000}") int maxPageSize,
+                        @Value("${filmorate.timeline.fan-out.queue-capacity:1000}") int fanOutQueueCapacity) {
+        this(storage, eventWriter, timelineIndex, validation, defaultPageSize, maxPageSize,
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(fanOutQueueCapacity),
+                        task -> {
+                            Thread thread = new Thread(task, "timeline-fan-out");
+                            thread.setDaemon(true);
+                            return thread;
+                        }));
+    }
+
+    EventService(EventDbStorage storage,
+                 EventWriter eventWriter,
+                 TimelineIndex timelineIndex,
+                 Validation validation,
+                 int defaultPageSize,
+                 int maxPageSize,
+                 Executor fanOut) {
         this.storage = storage;
+        this.eventWriter = eventWriter;
+        this.timelineIndex = timelineIndex;
         this.validation = validation;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.fanOut = fanOut;
+        // Раскладка по лентам подписчиков не должна задерживать поток записи событий,
+        // один поток сохраняет порядок пакетов
+        eventWriter.addListener(this::onWritten);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fanOut instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.timeline.fanout.queue", this, EventService::getFanOutQueueSize)
+                .register(registry);
+        FunctionCounter.builder("filmorate.timeline.fanout.dropped", droppedBatches, AtomicLong::get)
+                .register(registry);
+    }
+
+    public int getFanOutQueueSize() {
+        return fanOut instanceof ThreadPoolExecutor executor ? executor.getQueue().size() : 0;
+    }
+
+    /**
+     * Ставит пакет в очередь раскладки. Если раскладка отстала и очередь заполнена, пакет
+     * не раскладывается: ленты подписчиков его авторов сбрасываются и загрузятся из базы при чтении.
+     */
+    void onWritten(List<Event> events) {
+        try {
+            fanOut.execute(() -> timelineIndex.onWritten(events));
+        } catch (RejectedExecutionException e) {
+            droppedBatches.incrementAndGet();
+            log.debug("Очередь раскладки лент переполнена, пакет из {} событий будет прочитан из базы", events.size());
+            timelineIndex.discard(events);
+        }
     }
 
     public void send(Event event) {
-        storage.createEvent(event);
+        eventWriter.write(event);
     }
 
     public List<Event> getByUserId(Long userId) {
@@ -27,5 +121,69 @@ public class EventService {
         return storage.getEvents(userId);
     }
 
+    /**
+     * Страница ленты в порядке записи событий. С after — события новее курсора (для опроса новых),
+     * без него — последние события, при before — предшествующие курсору.
+     */
+    public FeedPageDto getFeed(Long userId, Integer limit, String before, String after) {
+        validation.userById(userId);
+        int pageSize = pageSize(limit);
+        EventCursor beforeCursor = EventCursor.parse(before);
+        EventCursor afterCursor = EventCursor.parse(after);
+
+        List<Event> events;
+        String prevCursor = null;
+        String nextCursor = null;
+        if (afterCursor != null) {
+            events = storage.getEventsAfter(userId, afterCursor, beforeCursor, pageSize + 1);
+            if (events.size() > pageSize) {
+                events = events.subList(0, pageSize);
+                nextCursor = EventCursor.of(events.getLast()).toString();
+            }
+        } else {
+            events = new ArrayList<>(storage.getEventsBefore(userId, beforeCursor, pageSize + 1));
+            if (events.size() > pageSize) {
+                events = events.subList(0, pageSize);
+                prevCursor = EventCursor.of(events.getLast()).toString();
+            }
+            Collections.reverse(events);
+        }
+
+        // Последний курсор отдаётся всегда, чтобы клиент опрашивал только новые события
+        String lastCursor = events.isEmpty() ? after : EventCursor.of(events.getLast()).toString();
+        log.info("Получена страница ленты пользователя с id = {}: {} событий", userId, events.size());
+        return new FeedPageDto(events, prevCursor, nextCursor, lastCursor);
+    }
+
+    /**
+     * Страница событий друзей, которых добавил пользователь, в порядке записи: последние
+     * события или предшествующие before. Позиции берутся из TimelineIndex, сами события — одним запросом.
+     */
+    public FeedPageDto getTimeline(Long userId, Integer limit, String before) {
+        validation.userById(userId);
+        int pageSize = pageSize(limit);
+
+        List<EventCursor> cursors = timelineIndex.page(userId, EventCursor.parse(before), pageSize + 1);
+        String prevCursor = null;
+        if (cursors.size() > pageSize) {
+            cursors = cursors.subList(0, pageSize);
+            prevCursor = cursors.getLast().toString();
+        }
 
+        List<Event> events = storage.getEventsByIds(cursors.stream().map(EventCursor::id).toList()).stream()
+                .sorted(Comparator.comparing(EventCursor::of))
+                .toList();
+        String lastCursor = events.isEmpty() ? null : EventCursor.of(events.getLast()).toString();
+        log.info("Получена лента друзей пользователя с id = {}: {} событий", userId, events.size());
+        return new FeedPageDto(events, prevCursor, null, lastCursor);
+    }
+
+    private int pageSize(Integer limit) {
+        int pageSize = (limit != null) ? limit : defaultPageSize;
+        if (pageSize <= 0) {
+            log.warn("Запрошен некорректный размер страницы ленты: {}", pageSize);
+            throw new ValidationException("Размер страницы должен быть положительным");
+        }
+        return Math.min(pageSize, maxPageSize);
+    }
 }
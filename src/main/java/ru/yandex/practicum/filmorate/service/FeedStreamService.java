@@ -0,0 +1,287 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventCursor;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.event.EventWriter;
+import ru.yandex.practicum.filmorate.validation.Validation;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Живая лента пользователя по SSE. Записанные события приходят от EventWriter и раскладываются
+ * по ограниченным буферам подписчиков, каждый буфер разбирается в своём виртуальном потоке,
+ * поэтому клиент, который не читает сокет, не занимает отправку другим.
+ * Клиент, чей буфер переполнился или чья отправка не завершилась за send-timeout, отключается —
+ * он переподключается с Last-Event-ID и догружает пропущенное из базы.
+ */
+@Slf4j
+@Service
+public class FeedStreamService implements MeterBinder {
+	private static final int REPLAY_PAGE_SIZE = 500;
+	private static final String EVENT_NAME = "event";
+
+	private final EventStorage eventStorage;
+	private final Validation validation;
+	private final int bufferSize;
+	private final long timeoutMillis;
+	private final long sendTimeoutNanos;
+	private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+	private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(task -> {
+		Thread thread = new Thread(task, "feed-stream-watchdog");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+	private final AtomicInteger connections = new AtomicInteger();
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong evicted = new AtomicLong();
+
+	public FeedStreamService(EventStorage eventStorage,
+							 EventWriter eventWriter,
+							 Validation validation,
+							 @Value("${filmorate.feed.stream.buffer-size:256}") int bufferSize,
+							 @Value("${filmorate.feed.stream.timeout:PT30M}") Duration timeout,
+							 @Value("${filmorate.feed.stream.send-timeout:PT10S}") Duration sendTimeout) {
+		this.eventStorage = eventStorage;
+		this.validation = validation;
+		this.bufferSize = bufferSize;
+		this.timeoutMillis = timeout.toMillis();
+		this.sendTimeoutNanos = sendTimeout.toNanos();
+		long checkMillis = Math.max(10, Math.min(1000, sendTimeout.toMillis() / 4));
+		watchdog.scheduleWithFixedDelay(this::evictStalled, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+		eventWriter.addListener(this::publish);
+	}
+
+	/**
+	 * Открывает поток событий пользователя. Если передан lastEventId, сначала отправляются
+	 * события после него из базы, затем новые.
+	 */
+	public SseEmitter subscribe(Long userId, String lastEventId) {
+		validation.userById(userId);
+		EventCursor resumeFrom = EventCursor.parse(lastEventId);
+
+		SseEmitter emitter = new SseEmitter(timeoutMillis);
+		subscribe(userId, resumeFrom, emitter);
+		log.info("Пользователь с id = {} подписан на ленту, продолжение с {}", userId, resumeFrom);
+		return emitter;
+	}
+
+	void subscribe(Long userId, EventCursor resumeFrom, SseEmitter emitter) {
+		Subscriber subscriber = new Subscriber(userId, emitter, resumeFrom);
+		subscribers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+		connections.incrementAndGet();
+		emitter.onCompletion(() -> remove(subscriber));
+		emitter.onTimeout(() -> remove(subscriber));
+		emitter.onError(error -> remove(subscriber));
+		if (resumeFrom != null) {
+			subscriber.schedule();
+		}
+	}
+
+	public int getConnectionCount() {
+		return connections.get();
+	}
+
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+		watchdog.shutdownNow();
+		senders.shutdownNow();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("filmorate.feed.stream.connections", this, FeedStreamService::getConnectionCount)
+			.register(registry);
+		FunctionCounter.builder("filmorate.feed.stream.sent", sent, AtomicLong::get)
+			.register(registry);
+		FunctionCounter.builder("filmorate.feed.stream.dropped", dropped, AtomicLong::get)
+			.register(registry);
+		FunctionCounter.builder("filmorate.feed.stream.evicted", evicted, AtomicLong::get)
+			.register(registry);
+	}
+
+	private void publish(List<Event> events) {
+		for (Event event : events) {
+			Set<Subscriber> targets = subscribers.get(event.getUserId());
+			if (targets != null) {
+				targets.forEach(subscriber -> subscriber.offer(event));
+			}
+		}
+	}
+
+	/**
+	 * Отключает подписчиков, чья отправка висит дольше send-timeout, и прерывает их поток отправки.
+	 */
+	private void evictStalled() {
+		long now = System.nanoTime();
+		for (Set<Subscriber> set : subscribers.values()) {
+			for (Subscriber subscriber : set) {
+				long deadline = subscriber.sendDeadline;
+				if (deadline != 0 && now - deadline > 0) {
+					subscriber.evict("отправка не завершилась за " + sendTimeoutNanos / 1_000_000 + " мс");
+				}
+			}
+		}
+	}
+
+	private void remove(Subscriber subscriber) {
+		subscriber.closed.set(true);
+		Set<Subscriber> set = subscribers.get(subscriber.userId);
+		if (set != null && set.remove(subscriber)) {
+			connections.decrementAndGet();
+			subscribers.computeIfPresent(subscriber.userId, (id, rest) -> rest.isEmpty() ? null : rest);
+		}
+	}
+
+	/**
+	 * Подписчик: буфер новых событий и признак того, что отправка уже поставлена в пул.
+	 * Буфер разбирает не больше одного потока за раз, поэтому события уходят клиенту по порядку.
+	 */
+	private final class Subscriber implements Runnable {
+		private final Long userId;
+		private final SseEmitter emitter;
+		private final BlockingQueue<Event> buffer;
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		private final AtomicBoolean closed = new AtomicBoolean();
+		private EventCursor resumeFrom;
+		private EventCursor replayedUpTo;
+		// Срок текущей отправки по System.nanoTime(), 0 — отправки нет
+		private volatile long sendDeadline;
+		private volatile Thread sender;
+
+		private Subscriber(Long userId, SseEmitter emitter, EventCursor resumeFrom) {
+			this.userId = userId;
+			this.emitter = emitter;
+			this.resumeFrom = resumeFrom;
+			this.buffer = new ArrayBlockingQueue<>(bufferSize);
+		}
+
+		private void offer(Event event) {
+			if (closed.get()) {
+				return;
+			}
+			if (!buffer.offer(event)) {
+				dropped.incrementAndGet();
+				evict("буфер из " + bufferSize + " событий переполнен");
+				return;
+			}
+			schedule();
+		}
+
+		/**
+		 * Клиент не успевает читать — отключаем, пропущенное он догрузит по Last-Event-ID.
+		 */
+		private void evict(String reason) {
+			if (closed.getAndSet(true)) {
+				return;
+			}
+			dropped.addAndGet(buffer.size());
+			evicted.incrementAndGet();
+			log.warn("Подписчик ленты пользователя с id = {} отключён: {}", userId, reason);
+			remove(this);
+			buffer.clear();
+			Thread thread = sender;
+			if (thread != null) {
+				thread.interrupt();
+			}
+			emitter.complete();
+		}
+
+		private void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				try {
+					senders.execute(this);
+				} catch (RejectedExecutionException e) {
+					scheduled.set(false);
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			sender = Thread.currentThread();
+			try {
+				if (resumeFrom != null) {
+					replay();
+				}
+				Event event;
+				while (!closed.get() && (event = buffer.poll()) != null) {
+					EventCursor cursor = EventCursor.of(event);
+					// Событие могло уже уйти при догрузке из базы
+					if (replayedUpTo == null || cursor.compareTo(replayedUpTo) > 0) {
+						send(event, cursor);
+					}
+				}
+			} catch (IOException | IllegalStateException e) {
+				log.debug("Поток ленты пользователя с id = {} закрыт: {}", userId, e.getMessage());
+				remove(this);
+				emitter.completeWithError(e);
+			} finally {
+				sender = null;
+				scheduled.set(false);
+				if (!closed.get() && !buffer.isEmpty()) {
+					schedule();
+				}
+			}
+		}
+
+		private void replay() throws IOException {
+			EventCursor cursor = resumeFrom;
+			resumeFrom = null;
+			List<Event> page;
+			do {
+				page = eventStorage.getEventsAfter(userId, cursor, null, REPLAY_PAGE_SIZE);
+				for (Event event : page) {
+					cursor = EventCursor.of(event);
+					send(event, cursor);
+				}
+			} while (page.size() == REPLAY_PAGE_SIZE && !closed.get());
+			replayedUpTo = cursor;
+		}
+
+		private void send(Event event, EventCursor cursor) throws IOException {
+			sendDeadline = System.nanoTime() + sendTimeoutNanos;
+			try {
+				emitter.send(SseEmitter.event()
+					.id(cursor.toString())
+					.name(EVENT_NAME)
+					.data(event, MediaType.APPLICATION_JSON));
+			} finally {
+				sendDeadline = 0;
+			}
+			sent.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dto.FilmBatchResultDto;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.film.PopularityIndex;
+import ru.yandex.practicum.filmorate.index.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.validation.Validation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Пакетная загрузка фильмов из JSON-массива или NDJSON.
+ * Фильмы пишутся пакетами JDBC, каждая порция — в своей транзакции.
+ */
+@Slf4j
+@Service
+public class FilmImportService {
+	private final FilmStorage filmStorage;
+	private final GenreStorage genreStorage;
+	private final DirectorStorage directorStorage;
+	private final Validation validation;
+	private final PopularityIndex popularityIndex;
+	private final FilmSearchIndex filmSearchIndex;
+	private final ObjectMapper objectMapper;
+	private final TransactionTemplate transactionTemplate;
+	private final int chunkSize;
+
+	public FilmImportService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+							 GenreStorage genreStorage,
+							 DirectorStorage directorStorage,
+							 Validation validation,
+							 PopularityIndex popularityIndex,
+							 FilmSearchIndex filmSearchIndex,
+							 ObjectMapper objectMapper,
+							 PlatformTransactionManager transactionManager,
+							 @Value("${filmorate.films.batch.chunk-size:1000}") int chunkSize) {
+		this.filmStorage = filmStorage;
+		this.genreStorage = genreStorage;
+		this.directorStorage = directorStorage;
+		this.validation = validation;
+		this.popularityIndex = popularityIndex;
+		this.filmSearchIndex = filmSearchIndex;
+		this.objectMapper = objectMapper;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.chunkSize = chunkSize;
+	}
+
+	public List<FilmBatchResultDto> importFilms(InputStream inputStream) throws IOException {
+		long start = System.nanoTime();
+		List<FilmBatchResultDto> results = new ArrayList<>();
+		List<Film> chunk = new ArrayList<>(chunkSize);
+		List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+		int index = 0;
+
+		try (MappingIterator<Film> films = objectMapper.readerFor(Film.class).readValues(inputStream)) {
+			while (true) {
+				Film film;
+				try {
+					if (!films.hasNextValue()) {
+						break;
+					}
+					film = films.nextValue();
+				} catch (JsonMappingException e) {
+					// Запись синтаксически цела, итератор пропустит её до конца и продолжит со следующей
+					results.add(new FilmBatchResultDto(index, null, "Некорректные данные: " + e.getOriginalMessage()));
+					index++;
+					continue;
+				} catch (JsonProcessingException e) {
+					// После синтаксической ошибки продолжить разбор потока нельзя
+					log.warn("Пакетная загрузка остановлена на записи {}: {}", index, e.getOriginalMessage());
+					results.add(new FilmBatchResultDto(index, null, "Некорректный JSON: " + e.getOriginalMessage()));
+					break;
+				}
+
+				String error = validate(film);
+				if (error != null) {
+					results.add(new FilmBatchResultDto(index, null, error));
+				} else {
+					chunk.add(film);
+					chunkIndexes.add(index);
+				}
+				index++;
+
+				if (chunk.size() >= chunkSize) {
+					saveChunk(chunk, chunkIndexes, results);
+				}
+			}
+		}
+		saveChunk(chunk, chunkIndexes, results);
+
+		results.sort(Comparator.comparingInt(FilmBatchResultDto::index));
+		long created = results.stream().filter(result -> result.id() != null).count();
+		long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+		log.info("Пакетная загрузка: записей {}, добавлено {}, с ошибками {}, {} мс ({} фильмов/с)",
+			results.size(), created, results.size() - created, elapsedMillis, created * 1000 / elapsedMillis);
+		return results;
+	}
+
+	private String validate(Film film) {
+		try {
+			validation.validationFilm(film);
+			if (film.getMpa() == null) {
+				throw new ValidationException("Рейтинг MPA должен быть указан");
+			}
+			validation.mpaById(film.getMpa().getId());
+			validation.genresByIds(film.getGenres());
+			if (film.getDirectors() != null) {
+				for (Director director : film.getDirectors()) {
+					if (director == null || director.getId() == null) {
+						throw new ValidationException("ID режиссёра не может быть null");
+					}
+				}
+			}
+			return null;
+		} catch (ValidationException | NotFoundException e) {
+			return e.getMessage();
+		}
+	}
+
+	private void saveChunk(List<Film> chunk, List<Integer> chunkIndexes, List<FilmBatchResultDto> results) {
+		if (chunk.isEmpty()) {
+			return;
+		}
+
+		// Режиссёры всей порции проверяются одним запросом
+		Set<Long> directorIds = new HashSet<>();
+		for (Film film : chunk) {
+			if (film.getDirectors() != null) {
+				film.getDirectors().forEach(director -> directorIds.add(director.getId()));
+			}
+		}
+		Set<Long> missingDirectors = directorIds.isEmpty() ? Set.of()
+			: directorStorage.findMissingDirectorIds(directorIds);
+
+		List<Film> valid = new ArrayList<>(chunk.size());
+		List<Integer> validIndexes = new ArrayList<>(chunk.size());
+		for (int i = 0; i < chunk.size(); i++) {
+			Film film = chunk.get(i);
+			List<Long> missing = film.getDirectors() == null ? List.of() : film.getDirectors().stream()
+				.map(Director::getId)
+				.filter(missingDirectors::contains)
+				.toList();
+			if (missing.isEmpty()) {
+				valid.add(film);
+				validIndexes.add(chunkIndexes.get(i));
+			} else {
+				results.add(new FilmBatchResultDto(chunkIndexes.get(i), null, "Режиссёры с id = " + missing + " не найдены"));
+			}
+		}
+
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				filmStorage.createFilms(valid);
+				genreStorage.addGenresForFilms(valid);
+				directorStorage.addDirectorsForFilms(valid);
+			});
+			for (int i = 0; i < valid.size(); i++) {
+				popularityIndex.addFilm(valid.get(i));
+				filmSearchIndex.putFilm(valid.get(i));
+				results.add(new FilmBatchResultDto(validIndexes.get(i), valid.get(i).getId(), null));
+			}
+		} catch (DataAccessException e) {
+			log.warn("Не удалось сохранить порцию из {} фильмов: {}", valid.size(), e.getMessage());
+			for (Integer validIndex : validIndexes) {
+				results.add(new FilmBatchResultDto(validIndex, null, "Не удалось сохранить фильм"));
+			}
+		}
+
+		chunk.clear();
+		chunkIndexes.clear();
+	}
+}
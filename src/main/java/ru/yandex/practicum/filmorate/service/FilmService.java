@@ -1,13 +1,25 @@
 package ru.yandex.practicum.filmorate.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dto.AutocompleteDto;
 import ru.yandex.practicum.filmorate.dto.FilmDto;
+import ru.yandex.practicum.filmorate.dto.FilmPageDto;
 import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.film.PopularityIndex;
+import ru.yandex.practicum.filmorate.index.recommendation.RecommendationEngine;
+import ru.yandex.practicum.filmorate.index.search.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Film;
@@ -19,16 +31,28 @@ import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class FilmService {
+    private static final int DEFAULT_AUTOCOMPLETE_SIZE = 10;
+    private static final int DEFAULT_SIMILAR_SIZE = 10;
+
     private final FilmStorage filmStorage;
     private final LikeStorage likeStorage;
     private final GenreStorage genreStorage;
@@ -36,6 +60,14 @@ public class FilmService {
     private final DirectorStorage directorStorage;
     private final FilmMapper filmMapper;
     private final EventService eventService;
+    private final PopularityIndex popularityIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final RecommendationEngine recommendationEngine;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int exportChunkSize;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
@@ -44,7 +76,15 @@ public class FilmService {
                        Validation validation,
                        DirectorStorage directorStorage,
                        FilmMapper filmMapper,
-                       EventService eventService) {
+                       EventService eventService,
+                       PopularityIndex popularityIndex,
+                       FilmSearchIndex filmSearchIndex,
+                       RecommendationEngine recommendationEngine,
+                       @Value("${filmorate.films.page.default-size:100}") int defaultPageSize,
+                       @Value("${filmorate.films.page.max-size:1000}") int maxPageSize,
+                       @Value("${filmorate.films.export.chunk-size:500}") int exportChunkSize,
+                       ObjectMapper objectMapper,
+                       PlatformTransactionManager transactionManager) {
         this.filmStorage = filmStorage;
         this.likeStorage = likeStorage;
         this.genreStorage = genreStorage;
@@ -52,6 +92,14 @@ public class FilmService {
         this.filmMapper = filmMapper;
         this.eventService = eventService;
         this.directorStorage = directorStorage;
+        this.popularityIndex = popularityIndex;
+        this.filmSearchIndex = filmSearchIndex;
+        this.recommendationEngine = recommendationEngine;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.exportChunkSize = exportChunkSize;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public List<FilmDto> findAll() {
@@ -61,24 +109,65 @@ public class FilmService {
             return List.of();
         }
 
-        genreStorage.getGenresForFilms(films);
-        directorStorage.getDirectorsForFilms(films);
-
-        log.info("Получен список фильмов: {}", films);
+        log.info("Получен полный список фильмов, количество: {}", films.size());
         return films.stream()
                 .map(filmMapper::mapToFilmDto)
                 .toList();
     }
 
+    public FilmPageDto findPage(Long after, Integer limit) {
+        int pageSize = (limit != null) ? limit : defaultPageSize;
+        if (pageSize <= 0) {
+            log.warn("Запрошен некорректный размер страницы: {}", pageSize);
+            throw new ValidationException("Размер страницы должен быть положительным");
+        }
+        pageSize = Math.min(pageSize, maxPageSize);
+
+        List<Film> films = filmStorage.findPage(after, pageSize + 1);
+        Long nextCursor = null;
+        if (films.size() > pageSize) {
+            films = films.subList(0, pageSize);
+            nextCursor = films.getLast().getId();
+        }
+
+        log.info("Получена страница из {} фильмов после id = {}", films.size(), after);
+        return new FilmPageDto(films.stream()
+                .map(filmMapper::mapToFilmDto)
+                .toList(), nextCursor);
+    }
+
+    public void exportFilms(OutputStream outputStream) throws IOException {
+        long[] exported = {0};
+        try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            filmStorage.streamAll(exportChunkSize, films -> {
+                try {
+                    for (Film film : films) {
+                        generator.writeObject(filmMapper.mapToFilmDto(film));
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                exported[0] += films.size();
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("Выгрузка фильмов прервана после {} записей", exported[0]);
+            throw e.getCause();
+        }
+
+        log.info("Выгружено фильмов: {}", exported[0]);
+    }
+
     public FilmDto getFilmById(Long id) {
         Film film = filmStorage.getFilmById(id).orElseThrow(() -> {
             log.warn("Фильм с id = {} не найден", id);
             return new NotFoundException("Фильм с id = " + id + " не найден");
         });
 
-        film.setGenres(genreStorage.getGenresByFilm(film.getId()));
-        film.setDirectors(directorStorage.getDirectorsByFilm(film.getId()));
-
         log.info("Получен фильм: {}", film);
         return filmMapper.mapToFilmDto(film);
     }
@@ -86,12 +175,7 @@ public class FilmService {
     public FilmDto createFilm(Film film) {
         validation.mpaById(film.getMpa().getId());
 
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            for (Genre genre : film.getGenres()) {
-                validation.genreById(genre.getId());
-            }
-        }
-
+        validation.genresByIds(film.getGenres());
         validation.validateDirectors(film.getDirectors());
 
         Film newFilm = filmStorage.createFilm(film);
@@ -105,39 +189,48 @@ public class FilmService {
         }
 
         if (film.getDirectors() != null && !film.getDirectors().isEmpty()) {
-            directorStorage.updateFilmDirectors(filmId, film.getDirectors());
+            directorStorage.addDirectors(filmId, film.getDirectors());
             newFilm.setDirectors(new LinkedHashSet<>(film.getDirectors()));
         } else {
             newFilm.setDirectors(new LinkedHashSet<>());
         }
 
+        popularityIndex.addFilm(newFilm);
+        filmSearchIndex.putFilm(newFilm);
         log.info("Добавлен новый фильм: {}", newFilm);
         return filmMapper.mapToFilmDto(newFilm);
     }
 
     public FilmDto updateFilm(Film film) {
-        validation.filmById(film.getId());
         validation.mpaById(film.getMpa().getId());
 
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            for (Genre genre : film.getGenres()) {
-                validation.genreById(genre.getId());
-            }
-        }
-
+        validation.genresByIds(film.getGenres());
         validation.validateDirectors(film.getDirectors());
 
-        Film updateFilm = filmStorage.updateFilm(film);
+        Set<Genre> genres = film.getGenres() != null ? film.getGenres() : new LinkedHashSet<>();
+        Set<Director> directors = film.getDirectors() != null ? film.getDirectors() : new LinkedHashSet<>();
         long filmId = film.getId();
 
-        genreStorage.updateGenres(filmId, film.getGenres() != null ? film.getGenres() : new LinkedHashSet<>());
-        updateFilm.setGenres(film.getGenres() != null ? new LinkedHashSet<>(film.getGenres()) : new LinkedHashSet<>());
-
-        directorStorage.updateFilmDirectors(filmId, film.getDirectors() != null ? film.getDirectors()
-                : new LinkedHashSet<>());
-        updateFilm.setDirectors(film.getDirectors() != null ? new LinkedHashSet<>(film.getDirectors())
-                : new LinkedHashSet<>());
+        // Обновление строки фильма блокирует её до конца транзакции, поэтому параллельные правки
+        // одного фильма идут по очереди, а разница считается от связей в базе, а не в кэше
+        Film updateFilm = transactionTemplate.execute(status -> {
+            Film updated;
+            try {
+                updated = filmStorage.updateFilm(film);
+            } catch (NotFoundException e) {
+                log.warn("Фильм с id = {} в базе данных не найден", filmId);
+                throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+            }
+            Film current = filmStorage.getFilmsByIds(List.of(filmId)).getFirst();
+            genreStorage.updateGenres(filmId, current.getGenres(), genres);
+            directorStorage.updateFilmDirectors(filmId, current.getDirectors(), directors);
+            return updated;
+        });
+        updateFilm.setGenres(new LinkedHashSet<>(genres));
+        updateFilm.setDirectors(new LinkedHashSet<>(directors));
 
+        popularityIndex.updateFilm(updateFilm);
+        filmSearchIndex.putFilm(updateFilm);
         log.info("Обновлены данные фильма: {}", updateFilm);
         return filmMapper.mapToFilmDto(updateFilm);
     }
@@ -146,6 +239,9 @@ public class FilmService {
         validation.filmById(filmId);
 
         filmStorage.deleteFilm(filmId);
+        popularityIndex.removeFilm(filmId);
+        filmSearchIndex.removeFilm(filmId);
+        recommendationEngine.removeFilm(filmId);
         log.info("Фильм с id = {} успешно удален", filmId);
     }
 
@@ -153,7 +249,10 @@ public class FilmService {
         validation.filmById(filmId);
         validation.userById(userId);
 
-        likeStorage.addLike(filmId, userId);
+        if (likeStorage.addLike(filmId, userId)) {
+            popularityIndex.changeLikes(filmId, 1);
+            recommendationEngine.addLike(userId, filmId);
+        }
         var event = new Event(userId, filmId, EventType.LIKE, OperationType.ADD, Instant.now());
         eventService.send(event);
         log.info("Пользователь c id = {} поставил лайк фильму c id = {}", userId, filmId);
@@ -163,7 +262,10 @@ public class FilmService {
         validation.filmById(filmId);
         validation.userById(userId);
 
-        likeStorage.deleteLike(filmId, userId);
+        if (likeStorage.deleteLike(filmId, userId)) {
+            popularityIndex.changeLikes(filmId, -1);
+            recommendationEngine.removeLike(userId, filmId);
+        }
         var event = new Event(userId, filmId, EventType.LIKE, OperationType.REMOVE, Instant.now());
         eventService.send(event);
         log.info("Пользователь c id = {} удалил лайк у фильма c id = {}", userId, filmId);
@@ -178,9 +280,7 @@ public class FilmService {
             validation.validateFilmYear(year);
         }
 
-        List<Film> films = filmStorage.getPopularFilms(count, genreId, year);
-        genreStorage.getGenresForFilms(films);
-        directorStorage.getDirectorsForFilms(films);
+        List<Film> films = filmStorage.getFilmsByIds(popularityIndex.getTop(count, genreId, year));
 
         log.info("Получен список из {} самых популярных фильмов по количеству лайков", count);
         if (genreId != null) {
@@ -208,9 +308,6 @@ public class FilmService {
             films = filmStorage.getFilmsByDirector(directorId);
         }
 
-        genreStorage.getGenresForFilms(films);
-        directorStorage.getDirectorsForFilms(films);
-
         return films.stream()
                 .map(filmMapper::mapToFilmDto)
                 .collect(Collectors.toList());
@@ -226,10 +323,18 @@ public class FilmService {
         validation.userById(userId);
         validation.userById(friendId);
 
-        List<Film> films = filmStorage.getCommonFilms(userId, friendId);
-
-        genreStorage.getGenresForFilms(films);
-        directorStorage.getDirectorsForFilms(films);
+        // порядок как у популярных: по числу лайков, при равенстве — по возрастанию id.
+        // Лайки снимаются до сортировки, иначе параллельный лайк нарушит контракт компаратора
+        long[] common = recommendationEngine.commonFilms(userId, friendId);
+        Map<Long, Long> likes = new HashMap<>(common.length);
+        for (long filmId : common) {
+            likes.put(filmId, popularityIndex.getLikes(filmId));
+        }
+        List<Long> filmIds = likes.keySet().stream()
+                .sorted(Comparator.<Long>comparingLong(likes::get).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .toList();
+        List<Film> films = filmStorage.getFilmsByIds(filmIds);
 
         log.info("Получен список общих фильмов друзей, отсортированных по количеству лайков");
 
@@ -238,28 +343,83 @@ public class FilmService {
                 .toList();
     }
 
-	public List<FilmDto> searchFilms(String query, String by) {
-		List<String> searchFields = Arrays.asList(by.split(","));
+    /**
+     * Фильмы, которые чаще всего лайкали вместе с данным. При равном числе совместных лайков
+     * выше те, у кого больше общих жанров и режиссёров.
+     */
+    public List<FilmDto> getSimilarFilms(Long filmId, Integer limit) {
+        validation.filmById(filmId);
+        int resultSize = Math.min((limit != null && limit > 0) ? limit : DEFAULT_SIMILAR_SIZE, maxPageSize);
 
-		List<Film> films = new ArrayList<>();
+        // берём весь список кандидатов, чтобы равенство на границе выдачи решалось по жанрам и режиссёрам
+        List<RecommendationEngine.SimilarFilm> candidates = recommendationEngine.similarFilms(filmId,
+                Math.max(resultSize, recommendationEngine.getSimilarCapacity()));
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
 
-        if (searchFields.contains("title") && searchFields.contains("director")) {
-            films = filmStorage.searchByTitleAndDirector(query);
-        } else if (searchFields.contains("title")) {
-			films = filmStorage.searchByTitle(query);
-		} else if (searchFields.contains("director")) {
-            films = filmStorage.searchByDirector(query);
+        List<Long> ids = new ArrayList<>(candidates.size() + 1);
+        ids.add(filmId);
+        candidates.forEach(candidate -> ids.add(candidate.filmId()));
+        Map<Long, Film> films = filmStorage.getFilmsByIds(ids).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        Film film = films.get(filmId);
+
+        Map<Long, Long> shared = new HashMap<>();
+        for (RecommendationEngine.SimilarFilm candidate : candidates) {
+            Film other = films.get(candidate.filmId());
+            if (film != null && other != null) {
+                shared.put(other.getId(), sharedGenresAndDirectors(film, other));
+            }
         }
 
-        if (films == null || films.isEmpty()) {
+        log.info("Для фильма с id = {} найдено похожих фильмов: {}", filmId, shared.size());
+        return candidates.stream()
+                .filter(candidate -> shared.containsKey(candidate.filmId()))
+                .sorted(Comparator.comparingLong(RecommendationEngine.SimilarFilm::coLikes).reversed()
+                        .thenComparing(candidate -> shared.get(candidate.filmId()), Comparator.reverseOrder())
+                        .thenComparingLong(RecommendationEngine.SimilarFilm::filmId))
+                .limit(resultSize)
+                .map(candidate -> filmMapper.mapToFilmDto(films.get(candidate.filmId())))
+                .toList();
+    }
+
+    private static long sharedGenresAndDirectors(Film film, Film other) {
+        long genres = film.getGenres() == null || other.getGenres() == null ? 0 : other.getGenres().stream()
+                .filter(film.getGenres()::contains)
+                .count();
+        long directors = film.getDirectors() == null || other.getDirectors() == null ? 0 : other.getDirectors().stream()
+                .filter(director -> film.getDirectors().stream()
+                        .anyMatch(own -> Objects.equals(own.getId(), director.getId())))
+                .count();
+        return genres + directors;
+    }
+
+    public List<FilmDto> searchFilms(String query, String by, boolean fuzzy, Integer limit) {
+        List<String> searchFields = Arrays.asList(by.split(","));
+        boolean byTitle = searchFields.contains("title");
+        boolean byDirector = searchFields.contains("director");
+        int resultSize = Math.min((limit != null && limit > 0) ? limit : defaultPageSize, maxPageSize);
+
+        List<Long> filmIds = filmSearchIndex.search(query, byTitle, byDirector, fuzzy, resultSize);
+        if (filmIds.isEmpty()) {
             return List.of();
         }
 
-		genreStorage.getGenresForFilms(films);
-		directorStorage.getDirectorsForFilms(films);
+        log.info("По запросу '{}' найдено фильмов: {}", query, filmIds.size());
+        return filmStorage.getFilmsByIds(filmIds).stream()
+                .map(filmMapper::mapToFilmDto)
+                .toList();
+    }
+
+    public List<AutocompleteDto> autocomplete(String prefix, Integer limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        int resultSize = Math.min((limit != null && limit > 0) ? limit : DEFAULT_AUTOCOMPLETE_SIZE, maxPageSize);
 
-		return films.stream()
-			.map(filmMapper::mapToFilmDto)
-			.collect(Collectors.toList());
-	}
+        return filmSearchIndex.autocomplete(prefix, resultSize).stream()
+                .map(suggestion -> new AutocompleteDto(suggestion.type(), suggestion.id(), suggestion.name()))
+                .toList();
+    }
 }
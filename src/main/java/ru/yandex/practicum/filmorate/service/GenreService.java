@@ -6,7 +6,7 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dto.GenreDto;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.GenreMapper;
-import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataRegistry;
 
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -16,11 +16,11 @@ import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 public class GenreService {
-	private final GenreStorage genreStorage;
+	private final ReferenceDataRegistry referenceData;
 	private final GenreMapper genreMapper;
 
 	public Set<GenreDto> getGenre() {
-		Set<GenreDto> genre = genreStorage.getGenre()
+		Set<GenreDto> genre = referenceData.getGenres()
 			.stream()
 			.map(genreMapper::mapToGenreDto)
 			.collect(Collectors.toCollection(LinkedHashSet::new));
@@ -30,7 +30,7 @@ public class GenreService {
 	}
 
 	public GenreDto getGenreById(Integer id) {
-		return genreStorage.getGenreById(id)
+		return referenceData.getGenreById(id)
 			.map(genreMapper::mapToGenreDto)
 			.orElseThrow(() -> {
 				log.warn("Жанр с id = {} не найден", id);
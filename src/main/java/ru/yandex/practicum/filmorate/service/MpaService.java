@@ -6,7 +6,7 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dto.MpaDto;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.MpaMapper;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataRegistry;
 
 import java.util.List;
 
@@ -14,11 +14,11 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class MpaService {
-	private final MpaStorage mpaStorage;
+	private final ReferenceDataRegistry referenceData;
 	private final MpaMapper mpaMapper;
 
 	public List<MpaDto> getMpa() {
-		List<MpaDto> mpa = mpaStorage.getMpa()
+		List<MpaDto> mpa = referenceData.getMpa()
 			.stream()
 			.map(mpaMapper::mapToMpaDto)
 			.toList();
@@ -28,7 +28,7 @@ public class MpaService {
 	}
 
 	public MpaDto getMpaById(Integer id) {
-		return mpaStorage.getMpaById(id)
+		return referenceData.getMpaById(id)
 			.map(mpaMapper::mapToMpaDto)
 			.orElseThrow(() -> {
 				log.warn("Рейтинг MPA с id = {} не найден", id);
@@ -3,39 +3,54 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dto.ConnectionDto;
 import ru.yandex.practicum.filmorate.dto.FilmDto;
 import ru.yandex.practicum.filmorate.dto.UserDto;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.film.PopularityIndex;
+import ru.yandex.practicum.filmorate.index.recommendation.RecommendationEngine;
+import ru.yandex.practicum.filmorate.index.social.FriendGraphTraversal;
+import ru.yandex.practicum.filmorate.index.social.SocialGraphIndex;
+import ru.yandex.practicum.filmorate.index.social.TimelineIndex;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.mapper.UserMapper;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Friend;
 import ru.yandex.practicum.filmorate.model.OperationType;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.friend.FriendStorage;
-import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 import ru.yandex.practicum.filmorate.validation.Validation;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 @Slf4j
 @Service
 public class UserService {
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    private static final int MAX_SUGGESTIONS = 100;
+
     private final UserStorage userStorage;
     private final FriendStorage friendStorage;
     private final Validation validation;
     private final UserMapper userMapper;
     private final FilmMapper filmMapper;
-    private final GenreStorage genreStorage;
-    private final DirectorStorage directorStorage;
     private final EventService eventService;
+    private final LikeStorage likeStorage;
+    private final PopularityIndex popularityIndex;
+    private final RecommendationEngine recommendationEngine;
+    private final SocialGraphIndex socialGraphIndex;
+    private final FriendGraphTraversal friendGraphTraversal;
+    private final TimelineIndex timelineIndex;
+    private final FilmStorage filmStorage;
+    private final int defaultRecommendations;
 
     @Autowired
     public UserService(@Qualifier("userDbStorage") UserStorage userStorage,
@@ -43,17 +58,29 @@ public class UserService {
                        Validation validation,
                        UserMapper userMapper,
                        FilmMapper filmMapper,
-                       GenreStorage genreStorage,
-                       DirectorStorage directorStorage,
-                       EventService eventService) {
+                       EventService eventService,
+                       LikeStorage likeStorage,
+                       PopularityIndex popularityIndex,
+                       RecommendationEngine recommendationEngine,
+                       SocialGraphIndex socialGraphIndex,
+                       FriendGraphTraversal friendGraphTraversal,
+                       TimelineIndex timelineIndex,
+                       @Qualifier("filmDbStorage") FilmStorage filmStorage,
+                       @Value("${filmorate.recommendations.default-limit:20}") int defaultRecommendations) {
         this.userStorage = userStorage;
         this.friendStorage = friendStorage;
         this.validation = validation;
         this.userMapper = userMapper;
         this.filmMapper = filmMapper;
-        this.genreStorage = genreStorage;
-        this.directorStorage = directorStorage;
         this.eventService = eventService;
+        this.likeStorage = likeStorage;
+        this.popularityIndex = popularityIndex;
+        this.recommendationEngine = recommendationEngine;
+        this.socialGraphIndex = socialGraphIndex;
+        this.friendGraphTraversal = friendGraphTraversal;
+        this.timelineIndex = timelineIndex;
+        this.filmStorage = filmStorage;
+        this.defaultRecommendations = defaultRecommendations;
     }
 
 	public List<UserDto> findAll() {
@@ -99,7 +126,13 @@ public class UserService {
     public void deleteUser(Long userId) {
         validation.userById(userId);
 
+        List<Long> likedFilmIds = likeStorage.getLikedFilmIds(userId);
         userStorage.deleteUser(userId);
+        likedFilmIds.forEach(filmId -> popularityIndex.changeLikes(filmId, -1));
+        recommendationEngine.removeUser(userId);
+        socialGraphIndex.removeUser(userId);
+        friendGraphTraversal.removeUser(userId);
+        timelineIndex.removeUser(userId);
         log.info("Пользователь с id = {} успешно удален", userId);
     }
 
@@ -108,6 +141,8 @@ public class UserService {
         validation.userById(friendId);
 
         friendStorage.addFriends(userId, friendId, true);
+        socialGraphIndex.addFriend(userId, friendId);
+        friendGraphTraversal.addFriend(userId, friendId);
         var event = new Event(userId, friendId, EventType.FRIEND, OperationType.ADD, Instant.now());
         eventService.send(event);
         log.info("Пользователь с id: {} добавил к себе друга с id: {}", userId, friendId);
@@ -118,6 +153,8 @@ public class UserService {
 		validation.userById(friendId);
 
         friendStorage.deleteFriends(userId, friendId);
+        socialGraphIndex.removeFriend(userId, friendId);
+        friendGraphTraversal.removeFriend(userId, friendId);
         var event = new Event(userId, friendId, EventType.FRIEND, OperationType.REMOVE, Instant.now());
         eventService.send(event);
         log.info("Пользователь с id: {} удалил из друзей пользователя с id: {}", userId, friendId);
@@ -128,10 +165,7 @@ public class UserService {
 
 		log.info("Запрос списка друзей у пользователя с id: {}", userId);
 
-		return friendStorage.getListFriends(userId).stream()
-			.map(Friend::getFriendId)
-			.map(userStorage::getUserById)
-			.flatMap(Optional::stream)
+		return friendStorage.getFriends(userId).stream()
 			.map(userMapper::mapToUserDto)
 			.toList();
 	}
@@ -139,23 +173,61 @@ public class UserService {
 	public List<UserDto> getMutualFriends(Long userId, Long otherId) {
 		validation.userById(userId);
 		validation.userById(otherId);
-		List<UserDto> userFriends = getListFriends(userId);
-		List<UserDto> otherFriends = getListFriends(otherId);
 
 		log.info("Запрос общих друзей у пользователей с id: {} и {}", userId, otherId);
 
-        return otherFriends.stream()
-                .filter(userFriends::contains)
-                .toList();
-    }
+		return userStorage.getUsersByIds(Arrays.stream(socialGraphIndex.getMutualFriends(userId, otherId)).boxed().toList())
+			.stream()
+			.map(userMapper::mapToUserDto)
+			.toList();
+	}
 
-    public List<FilmDto> getRecommendations(Long userId) {
-        validation.userById(userId);
+	public List<UserDto> getFriendSuggestions(Long userId, Integer limit) {
+		validation.userById(userId);
+		int resultSize = Math.min((limit != null && limit > 0) ? limit : DEFAULT_SUGGESTIONS, MAX_SUGGESTIONS);
+
+		List<Long> candidateIds = socialGraphIndex.getSuggestions(userId, resultSize).stream()
+			.map(SocialGraphIndex.Suggestion::userId)
+			.toList();
 
-        List<Film> films = userStorage.getRecommendations(userId);
+		log.info("Для пользователя с id: {} подобрано кандидатов в друзья: {}", userId, candidateIds.size());
+		return userStorage.getUsersByIds(candidateIds).stream()
+			.map(userMapper::mapToUserDto)
+			.toList();
+	}
 
-        genreStorage.getGenresForFilms(films);
-        directorStorage.getDirectorsForFilms(films);
+	public ConnectionDto getDistance(Long userId, Long otherId) {
+		validation.userById(userId);
+		validation.userById(otherId);
+
+		Integer distance = friendGraphTraversal.findRoute(userId, otherId, friendGraphTraversal.getMaxDepth())
+			.map(FriendGraphTraversal.Route::distance)
+			.orElse(null);
+		log.info("Расстояние между пользователями с id: {} и {}: {}", userId, otherId, distance);
+		return new ConnectionDto(userId, otherId, distance, null);
+	}
+
+	public ConnectionDto getConnectionPath(Long userId, Long otherId, Integer maxDepth) {
+		validation.userById(userId);
+		validation.userById(otherId);
+
+		int depth = (maxDepth != null && maxDepth >= 0) ? maxDepth : friendGraphTraversal.getMaxDepth();
+		return friendGraphTraversal.findRoute(userId, otherId, depth)
+			.map(route -> new ConnectionDto(userId, otherId, route.distance(),
+				userStorage.getUsersByIds(Arrays.stream(route.path()).boxed().toList()).stream()
+					.map(userMapper::mapToUserDto)
+					.toList()))
+			.orElseGet(() -> new ConnectionDto(userId, otherId, null, List.of()));
+	}
+
+    public List<FilmDto> getRecommendations(Long userId, Integer limit) {
+        validation.userById(userId);
+
+        int resultSize = (limit != null && limit > 0) ? limit : defaultRecommendations;
+        List<Long> filmIds = recommendationEngine.recommend(userId, resultSize).stream()
+                .map(RecommendationEngine.Recommendation::filmId)
+                .toList();
+        List<Film> films = filmStorage.getFilmsByIds(filmIds);
 
         log.info("Запрос на рекомендацию фильмов для пользователя с id: {}", userId);
 
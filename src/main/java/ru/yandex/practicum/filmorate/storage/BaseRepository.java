@@ -2,13 +2,18 @@ package ru.yandex.practicum.filmorate.storage;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -35,6 +40,41 @@ public class BaseRepository {
 		}
 	}
 
+	protected List<Long> insertBatch(String query, List<Object[]> batchArgs) {
+		if (batchArgs.isEmpty()) {
+			return List.of();
+		}
+
+		GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+		jdbc.batchUpdate(connection -> connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS),
+			new BatchPreparedStatementSetter() {
+				@Override
+				public void setValues(PreparedStatement ps, int i) throws SQLException {
+					Object[] params = batchArgs.get(i);
+					for (int idx = 0; idx < params.length; idx++) {
+						ps.setObject(idx + 1, params[idx]);
+					}
+				}
+
+				@Override
+				public int getBatchSize() {
+					return batchArgs.size();
+				}
+			}, keyHolder);
+
+		List<Map<String, Object>> keys = keyHolder.getKeyList();
+		if (keys.size() != batchArgs.size()) {
+			log.warn("Ошибка при пакетном сохранении данных в БД: получено ключей {} из {}", keys.size(), batchArgs.size());
+			throw new InternalServerException("Не удалось сохранить данные");
+		}
+
+		List<Long> ids = new ArrayList<>(keys.size());
+		for (Map<String, Object> key : keys) {
+			ids.add(((Number) key.values().iterator().next()).longValue());
+		}
+		return ids;
+	}
+
 	protected void update(String query, Object... params) {
 		int rowsUpdated = jdbc.update(query, params);
 		if (rowsUpdated == 0) {
@@ -6,14 +6,14 @@ import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.BaseRepository;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 import ru.yandex.practicum.filmorate.storage.mappers.DirectorRowMapper;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
@@ -27,42 +27,39 @@ public class DirectorDbStorage extends BaseRepository implements DirectorStorage
 		"SELECT director_id, name FROM directors ORDER BY director_id";
 	private static final String FIND_BY_ID_QUERY =
 		"SELECT director_id, name FROM directors WHERE director_id = ?";
+	private static final String FIND_EXISTING_IDS_QUERY =
+		"SELECT director_id FROM directors WHERE director_id IN (%s)";
 	private static final String UPDATE_QUERY =
 		"UPDATE directors SET name = ? WHERE director_id = ?";
 	private static final String DELETE_QUERY =
 		"DELETE FROM directors WHERE director_id = ?";
-	private static final String FIND_BY_FILM_ID_QUERY = """
-		SELECT d.director_id, d.name
-		FROM directors AS d
-		JOIN film_director AS fd ON d.director_id = fd.director_id
-		WHERE fd.film_id = ?
-		ORDER BY d.director_id
-		""";
-
 	private static final String DELETE_BY_FILM_ID_QUERY = """
 		DELETE FROM film_director
 		WHERE film_id = ?
 		""";
 
+	private static final String DELETE_FROM_FILM_DIRECTOR =
+		"DELETE FROM film_director WHERE film_id = ? AND director_id = ?";
+
+	private static final String FIND_IDS_BY_FILM_ID_QUERY =
+		"SELECT director_id FROM film_director WHERE film_id = ?";
+
 	private static final String INSERT_TO_FILM_DIRECTOR = """
 		INSERT INTO film_director (film_id, director_id)
 		VALUES (?, ?)
 		""";
 
-	private static final String FIND_DIRECTORS_BY_FILM_IDS = """
-		SELECT fd.film_id, d.director_id, d.name
-		FROM directors d
-		JOIN film_director fd ON d.director_id = fd.director_id
-		WHERE fd.film_id IN (%s)
-		ORDER BY fd.film_id, d.director_id
-		""";
+	private static final String FIND_FILM_IDS_BY_DIRECTOR =
+		"SELECT film_id FROM film_director WHERE director_id = ?";
 
 	private static final String FIND_BY_NAME = "SELECT director_id, name FROM directors WHERE LOWER(name) LIKE ?";
 
 	private final DirectorRowMapper directorRowMapper = new DirectorRowMapper();
+	private final FilmCache filmCache;
 
-	public DirectorDbStorage(JdbcTemplate jdbc) {
+	public DirectorDbStorage(JdbcTemplate jdbc, FilmCache filmCache) {
 		super(jdbc);
+		this.filmCache = filmCache;
 	}
 
 	@Override
@@ -75,6 +72,18 @@ public class DirectorDbStorage extends BaseRepository implements DirectorStorage
 		return jdbc.query(FIND_BY_ID_QUERY, directorRowMapper, id).stream().findFirst();
 	}
 
+	@Override
+	public Set<Long> findMissingDirectorIds(Collection<Long> ids) {
+		Set<Long> missing = new LinkedHashSet<>(ids);
+		if (missing.isEmpty()) {
+			return missing;
+		}
+
+		String sql = String.format(FIND_EXISTING_IDS_QUERY, String.join(",", Collections.nCopies(missing.size(), "?")));
+		missing.removeAll(jdbc.queryForList(sql, Long.class, missing.toArray()));
+		return missing;
+	}
+
 	@Override
 	public Director createDirector(Director director) {
 		long id = insert(CREATE_DIRECTOR, director.getName());
@@ -90,14 +99,17 @@ public class DirectorDbStorage extends BaseRepository implements DirectorStorage
 			log.warn("Режиссёр с id = {} не найден при обновлении", director.getId());
 			return Optional.empty();
 		}
+		filmCache.evictAll(findFilmIds(director.getId()));
 		log.info("Обновлён режиссёр с id = {}", director.getId());
 		return getDirectorById(director.getId());
 	}
 
 	@Override
 	public boolean deleteDirector(Long id) {
+		List<Long> filmIds = findFilmIds(id);
 		int rows = jdbc.update(DELETE_QUERY, id);
 		if (rows > 0) {
+			filmCache.evictAll(filmIds);
 			log.info("Удалён режиссёр с id = {}", id);
 			return true;
 		}
@@ -107,77 +119,66 @@ public class DirectorDbStorage extends BaseRepository implements DirectorStorage
 
 	@Override
 	public void addDirectors(Long filmId, Set<Director> directors) {
-		for (Director director : directors) {
-			Long directorId = director.getId();
-			if (directorId != null) {
-				jdbc.update(INSERT_TO_FILM_DIRECTOR, filmId, directorId);
+		Set<Long> directorIds = directorIds(directors);
+		if (directorIds.isEmpty()) {
+			return;
+		}
+
+		jdbc.batchUpdate(INSERT_TO_FILM_DIRECTOR, batchArgs(filmId, directorIds));
+		filmCache.evict(filmId);
+	}
+
+	@Override
+	public void addDirectorsForFilms(List<Film> films) {
+		List<Object[]> batchArgs = new ArrayList<>();
+		for (Film film : films) {
+			for (Long directorId : directorIds(film.getDirectors())) {
+				batchArgs.add(new Object[]{film.getId(), directorId});
 			}
 		}
+		if (batchArgs.isEmpty()) {
+			return;
+		}
+
+		jdbc.batchUpdate(INSERT_TO_FILM_DIRECTOR, batchArgs);
+		filmCache.evictAll(films.stream().map(Film::getId).toList());
 	}
 
 	@Override
 	public void deleteDirectors(Long filmId) {
 		jdbc.update(DELETE_BY_FILM_ID_QUERY, filmId);
+		filmCache.evict(filmId);
 	}
 
 	@Override
 	public void updateFilmDirectors(Long filmId, Set<Director> directors) {
-		deleteDirectors(filmId);
-		addDirectors(filmId, directors);
-	}
-
-	@Override
-	public Set<Director> getDirectorsByFilm(Long filmId) {
-		return new LinkedHashSet<>(jdbc.query(FIND_BY_FILM_ID_QUERY, directorRowMapper, filmId));
+		Set<Director> oldDirectors = new LinkedHashSet<>();
+		for (Long directorId : jdbc.queryForList(FIND_IDS_BY_FILM_ID_QUERY, Long.class, filmId)) {
+			oldDirectors.add(new Director(directorId, null));
+		}
+		updateFilmDirectors(filmId, oldDirectors, directors);
 	}
 
 	@Override
-	public void getDirectorsForFilms(List<Film> films) {
-		if (films.isEmpty()) return;
-
-		List<Long> filmIds = films.stream()
-			.map(Film::getId)
-			.filter(Objects::nonNull)
-			.toList();
-
-		if (filmIds.isEmpty()) return;
-
-		String placeholders = String.join(", ", Collections.nCopies(filmIds.size(), "?"));
-		String sql = String.format(FIND_DIRECTORS_BY_FILM_IDS, placeholders);
-
-		Map<Long, Set<Director>> directorsByFilmId = new LinkedHashMap<>();
-
-		jdbc.query(connection -> {
-			var ps = connection.prepareStatement(sql);
-			for (int i = 0; i < filmIds.size(); i++) {
-				ps.setLong(i + 1, filmIds.get(i));
-			}
-			return ps;
-		}, rs -> {
-			Long filmId = rs.getLong("film_id");
-			Long directorId = rs.getLong("director_id");
-
-			if (rs.wasNull()) {
-				log.warn("Получен NULL для director_id в результате запроса");
-				return;
-			}
-
-			String name = rs.getString("name");
-
-			Director director = new Director(directorId, name);
-			directorsByFilmId
-				.computeIfAbsent(filmId, k -> new LinkedHashSet<>())
-				.add(director);
-		});
-
-		for (Film film : films) {
-			if (film.getId() != null) {
-				Set<Director> directors = directorsByFilmId.getOrDefault(film.getId(), new LinkedHashSet<>());
-				film.setDirectors(directors);
-			}
+	public void updateFilmDirectors(Long filmId, Set<Director> oldDirectors, Set<Director> directors) {
+		Set<Long> oldIds = directorIds(oldDirectors);
+		Set<Long> newIds = directorIds(directors);
+
+		Set<Long> toDelete = new LinkedHashSet<>(oldIds);
+		toDelete.removeAll(newIds);
+		Set<Long> toInsert = new LinkedHashSet<>(newIds);
+		toInsert.removeAll(oldIds);
+		if (toDelete.isEmpty() && toInsert.isEmpty()) {
+			return;
 		}
 
-		log.info("Загружено режиссёров по фильмам: {}", directorsByFilmId);
+		if (!toDelete.isEmpty()) {
+			jdbc.batchUpdate(DELETE_FROM_FILM_DIRECTOR, batchArgs(filmId, toDelete));
+		}
+		if (!toInsert.isEmpty()) {
+			jdbc.batchUpdate(INSERT_TO_FILM_DIRECTOR, batchArgs(filmId, toInsert));
+		}
+		filmCache.evict(filmId);
 	}
 
 	@Override
@@ -188,4 +189,28 @@ public class DirectorDbStorage extends BaseRepository implements DirectorStorage
 				"%" + query.toLowerCase() + "%"
 		);
 	}
-}
\ No newline at end of file
+
+	private List<Long> findFilmIds(Long directorId) {
+		return jdbc.queryForList(FIND_FILM_IDS_BY_DIRECTOR, Long.class, directorId);
+	}
+
+	private static Set<Long> directorIds(Set<Director> directors) {
+		Set<Long> directorIds = new LinkedHashSet<>();
+		if (directors != null) {
+			for (Director director : directors) {
+				if (director.getId() != null) {
+					directorIds.add(director.getId());
+				}
+			}
+		}
+		return directorIds;
+	}
+
+	private static List<Object[]> batchArgs(Long filmId, Set<Long> directorIds) {
+		List<Object[]> args = new ArrayList<>(directorIds.size());
+		for (Long directorId : directorIds) {
+			args.add(new Object[]{filmId, directorId});
+		}
+		return args;
+	}
+}
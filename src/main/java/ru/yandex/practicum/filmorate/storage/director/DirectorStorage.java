@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.storage.director;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -12,6 +13,8 @@ public interface DirectorStorage {
 
 	Optional<Director> getDirectorById(Long id);
 
+	Set<Long> findMissingDirectorIds(Collection<Long> ids);
+
 	Director createDirector(Director director);
 
 	Optional<Director> updateDirector(Director director);
@@ -20,13 +23,13 @@ public interface DirectorStorage {
 
 	void addDirectors(Long filmId, Set<Director> directors);
 
+	void addDirectorsForFilms(List<Film> films);
+
 	void deleteDirectors(Long filmId);
 
 	void updateFilmDirectors(Long filmId, Set<Director> directors);
 
-	Set<Director> getDirectorsByFilm(Long filmId);
-
-	void getDirectorsForFilms(List<Film> films);
+	void updateFilmDirectors(Long filmId, Set<Director> oldDirectors, Set<Director> directors);
 
 	List<Director> findByNameContaining(String query);
 }
@@ -3,9 +3,13 @@ package ru.yandex.practicum.filmorate.storage.event;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventCursor;
 import ru.yandex.practicum.filmorate.storage.BaseRepository;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Repository
@@ -15,6 +19,26 @@ public class EventDbStorage extends BaseRepository implements EventStorage {
             FROM events
             WHERE user_id = ? ORDER BY time_stamp ASC
             """;
+    private static final String FIND_AFTER_QUERY = """
+            SELECT event_type, operation_type, entity_id, time_stamp, user_id, id
+            FROM events
+            WHERE user_id = ? AND id > ? AND id < ?
+            ORDER BY id ASC
+            LIMIT ?
+            """;
+    private static final String FIND_BEFORE_QUERY = """
+            SELECT event_type, operation_type, entity_id, time_stamp, user_id, id
+            FROM events
+            WHERE user_id = ? AND id < ?
+            ORDER BY id DESC
+            LIMIT ?
+            """;
+    private static final String FIND_BY_IDS_QUERY = """
+            SELECT event_type, operation_type, entity_id, time_stamp, user_id, id
+            FROM events
+            WHERE id IN (%s)
+            """;
+    private static final EventCursor END = new EventCursor(Long.MAX_VALUE);
     private static final String FIND_ALL_QUERY =
             "SELECT event_type, operation_type, entity_id, time_stamp, user_id, id FROM events ";
     private static final String INSERT_QUERY =
@@ -38,11 +62,50 @@ public class EventDbStorage extends BaseRepository implements EventStorage {
         return event;
     }
 
+    @Override
+    @Transactional
+    public void createEvents(List<Event> events) {
+        List<Object[]> batchArgs = new ArrayList<>(events.size());
+        for (Event event : events) {
+            batchArgs.add(new Object[]{
+                    event.getEventType().toString(),
+                    event.getOperation().toString(),
+                    event.getEntityId(),
+                    event.getTimestamp().toEpochMilli(),
+                    event.getUserId()});
+        }
+        List<Long> ids = insertBatch(INSERT_QUERY, batchArgs);
+        for (int i = 0; i < events.size(); i++) {
+            events.get(i).setId(ids.get(i));
+        }
+    }
+
     @Override
     public List<Event> getEvents(Long userId) {
         return jdbc.query(FIND_BY_ID_QUERY, mapper, userId);
     }
 
+    @Override
+    public List<Event> getEventsAfter(Long userId, EventCursor after, EventCursor before, int limit) {
+        EventCursor to = before != null ? before : END;
+        return jdbc.query(FIND_AFTER_QUERY, mapper, userId, after.id(), to.id(), limit);
+    }
+
+    @Override
+    public List<Event> getEventsBefore(Long userId, EventCursor before, int limit) {
+        EventCursor to = before != null ? before : END;
+        return jdbc.query(FIND_BEFORE_QUERY, mapper, userId, to.id(), limit);
+    }
+
+    @Override
+    public List<Event> getEventsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        return jdbc.query(FIND_BY_IDS_QUERY.formatted(placeholders), mapper, ids.toArray());
+    }
+
     @Override
     public List<Event> getEvents() {
         return jdbc.query(FIND_ALL_QUERY, mapper);
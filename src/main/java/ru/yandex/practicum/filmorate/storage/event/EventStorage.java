@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.event;
 
 import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventCursor;
 
 import java.util.List;
 
@@ -8,8 +9,25 @@ public interface EventStorage {
 
     Event createEvent(Event event);
 
+    /**
+     * Пакетная запись, сгенерированные id проставляются в переданные события.
+     */
+    void createEvents(List<Event> events);
+
     List<Event> getEvents(Long userId);
 
+    /**
+     * События строго после after (и строго до before, если задан) по возрастанию id.
+     */
+    List<Event> getEventsAfter(Long userId, EventCursor after, EventCursor before, int limit);
+
+    /**
+     * События строго до before (или последние, если before не задан) по убыванию id.
+     */
+    List<Event> getEventsBefore(Long userId, EventCursor before, int limit);
+
+    List<Event> getEventsByIds(List<Long> ids);
+
     List<Event> getEvents();
 
 }
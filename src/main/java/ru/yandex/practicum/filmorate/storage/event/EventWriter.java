@@ -0,0 +1,328 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Запись событий ленты через ограниченную очередь: фоновый поток собирает события в пакеты
+ * и пишет их одним JDBC-пакетом в одной транзакции, когда набран batch.size или прошёл flush.interval.
+ * Если вызывающий код уже в транзакции, событие пишется сразу в ней, чтобы не пережить её откат.
+ * Если фоновый поток остановился, события пишутся сразу в потоке вызова.
+ */
+@Slf4j
+@Component
+public class EventWriter implements MeterBinder {
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    private final EventStorage storage;
+    private final Mode mode;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long writeTimeoutMillis;
+    private final BlockingQueue<Pending> queue;
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final Thread flusher = new Thread(this::run, "event-writer");
+    private final List<Consumer<List<Event>>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+    private volatile Timer flushTimer;
+
+    public EventWriter(EventStorage storage,
+                       @Value("${filmorate.events.write-mode:GROUP_COMMIT}") Mode mode,
+                       @Value("${filmorate.events.queue.capacity:10000}") int capacity,
+                       @Value("${filmorate.events.batch.size:500}") int batchSize,
+                       @Value("${filmorate.events.flush.interval:PT0.005S}") Duration flushInterval,
+                       @Value("${filmorate.events.write.timeout:PT30S}") Duration writeTimeout) {
+        this.storage = storage;
+        this.mode = mode;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.writeTimeoutMillis = writeTimeout.toMillis();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (mode != Mode.SYNC) {
+            flusher.start();
+        }
+        log.info("Запись событий в режиме {}: очередь {}, пакет {}", mode, queue.remainingCapacity(), batchSize);
+    }
+
+    /**
+     * Слушатель получает события после того, как они записаны (и закоммичены) вместе с их id.
+     * Вызывается в потоке записи, поэтому не должен блокироваться.
+     */
+    public void addListener(Consumer<List<Event>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Ставит событие в очередь. В режиме GROUP_COMMIT ждёт, пока пакет с ним будет записан,
+     * но не дольше write.timeout, в ASYNC возвращается сразу. При заполненной очереди ждёт
+     * освобождения места, пока фоновый поток работает.
+     */
+    public void write(Event event) {
+        Pending pending = null;
+        closeLock.readLock().lock();
+        try {
+            if (mode != Mode.SYNC && !TransactionSynchronizationManager.isActualTransactionActive()) {
+                Pending queued = new Pending(event, mode == Mode.GROUP_COMMIT ? new CompletableFuture<>() : null);
+                while (!closed && flusher.isAlive()) {
+                    if (queue.offer(queued, IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        pending = queued;
+                        break;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+
+        if (pending == null) {
+            storage.createEvent(event);
+            written.incrementAndGet();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        notifyListeners(List.of(event));
+                    }
+                });
+            } else {
+                notifyListeners(List.of(event));
+            }
+        } else if (pending.done() != null) {
+            await(pending);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        if (flusher.isAlive()) {
+            try {
+                flusher.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Если поток не успел — дописываем остаток сами
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+        log.info("Запись событий остановлена: записано {}, с ошибкой {}", written.get(), failed.get());
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.events.queue.depth", this, EventWriter::getQueueDepth)
+                .register(registry);
+        flushTimer = Timer.builder("filmorate.events.flush")
+                .description("Время записи одного пакета событий")
+                .register(registry);
+        FunctionCounter.builder("filmorate.events.written", written, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("filmorate.events.failed", failed, AtomicLong::get)
+                .register(registry);
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        boolean flushing = false;
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Pending first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flushing = true;
+                flush(batch);
+                flushing = false;
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            log.warn("Поток записи событий прерван, в очереди осталось {}", queue.size());
+        } catch (RuntimeException | Error e) {
+            log.error("Поток записи событий остановлен ошибкой", e);
+            throw e;
+        } finally {
+            // Пакет, на котором поток упал, мог быть записан частично — его события не повторяем
+            stopped(flushing ? List.of() : batch, flushing ? batch : List.of());
+        }
+    }
+
+    /**
+     * Поток записи завершается: новые события дальше пишутся сразу в потоке вызова,
+     * собранное и оставшееся в очереди дописывается здесь же.
+     */
+    private void stopped(List<Pending> unwritten, List<Pending> uncertain) {
+        closed = true;
+        // Ждём вызовы, которые ещё ставят события в очередь, — они увидят closed и запишут сами
+        closeLock.writeLock().lock();
+        closeLock.writeLock().unlock();
+
+        uncertain.forEach(pending -> pending.complete(new InternalServerException("Событие не записано")));
+        List<Pending> rest = new ArrayList<>(unwritten);
+        queue.drainTo(rest);
+        if (rest.isEmpty()) {
+            return;
+        }
+        // Флаг прерывания сбросил бы соединение с базой посреди записи
+        boolean interrupted = Thread.interrupted();
+        try {
+            flush(rest);
+        } catch (RuntimeException | Error e) {
+            log.error("Не удалось дописать {} событий при остановке потока записи: {}", rest.size(), e.toString());
+            rest.forEach(pending -> pending.complete(new InternalServerException("Событие не записано")));
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void await(Pending pending) {
+        try {
+            pending.done().get(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new InternalServerException("Событие не записано: " + e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("Запись события {} не подтверждена за {} мс, в очереди {}", pending.event(), writeTimeoutMillis,
+                    queue.size());
+            throw new InternalServerException("Запись события не подтверждена за " + writeTimeoutMillis + " мс");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerException("Ожидание записи события прервано");
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        long start = System.nanoTime();
+        List<Event> events = batch.stream().map(Pending::event).toList();
+        try {
+            storage.createEvents(events);
+            written.addAndGet(batch.size());
+            batch.forEach(pending -> pending.complete(null));
+            notifyListeners(events);
+        } catch (RuntimeException e) {
+            // Пакет откатился целиком — пишем по одному, чтобы ошибка досталась только своему событию
+            log.warn("Не удалось записать пакет из {} событий: {}", batch.size(), e.getMessage());
+            for (Pending pending : batch) {
+                try {
+                    storage.createEvent(pending.event());
+                    written.incrementAndGet();
+                    pending.complete(null);
+                    notifyListeners(List.of(pending.event()));
+                } catch (RuntimeException eventError) {
+                    failed.incrementAndGet();
+                    log.error("Событие {} не записано: {}", pending.event(), eventError.getMessage());
+                    pending.complete(eventError);
+                }
+            }
+        }
+
+        Timer timer = flushTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void notifyListeners(List<Event> events) {
+        for (Consumer<List<Event>> listener : listeners) {
+            try {
+                listener.accept(events);
+            } catch (RuntimeException e) {
+                log.warn("Слушатель событий завершился с ошибкой: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * ASYNC — вызов не ждёт записи, события в очереди теряются при аварийной остановке;
+     * GROUP_COMMIT — вызов ждёт записи пакета, в который попало событие;
+     * SYNC — каждое событие пишется сразу в потоке вызова.
+     */
+    public enum Mode {
+        ASYNC,
+        GROUP_COMMIT,
+        SYNC
+    }
+
+    private record Pending(Event event, CompletableFuture<Void> done) {
+        private void complete(RuntimeException error) {
+            if (done == null) {
+                return;
+            }
+            if (error == null) {
+                done.complete(null);
+            } else {
+                done.completeExceptionally(error);
+            }
+        }
+    }
+}
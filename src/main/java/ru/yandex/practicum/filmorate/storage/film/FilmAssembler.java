@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataRegistry;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Собирает фильм вместе с рейтингом, жанрами и режиссёрами за один запрос:
+ * жанры и режиссёры агрегируются подзапросами в JSON-массивы.
+ * Рейтинг и жанры берутся из справочников в памяти по id.
+ */
+@Component
+@RequiredArgsConstructor
+public class FilmAssembler {
+	public static final String SELECT_FILMS = """
+		SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id,
+		    (SELECT JSON_ARRAYAGG(fg.genre_id ORDER BY fg.genre_id)
+		     FROM film_genre AS fg
+		     WHERE fg.film_id = f.film_id) AS genres,
+		    (SELECT JSON_ARRAYAGG(JSON_OBJECT('id': d.director_id, 'name': d.name) ORDER BY d.director_id)
+		     FROM film_director AS fd
+		     JOIN directors AS d ON fd.director_id = d.director_id
+		     WHERE fd.film_id = f.film_id) AS directors
+		FROM films AS f
+		""";
+	private static final TypeReference<List<Integer>> GENRE_IDS = new TypeReference<>() {
+	};
+	private static final TypeReference<List<Director>> DIRECTORS = new TypeReference<>() {
+	};
+
+	private final FilmRowMapper filmRowMapper;
+	private final ReferenceDataRegistry referenceData;
+	private final ObjectMapper objectMapper;
+
+	public Film mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+		Film film = filmRowMapper.mapRow(resultSet, rowNum);
+		film.setGenres(readGenres(resultSet.getString("genres")));
+		film.setDirectors(readSet(resultSet.getString("directors"), DIRECTORS));
+		return film;
+	}
+
+	private LinkedHashSet<Genre> readGenres(String json) {
+		LinkedHashSet<Genre> genres = new LinkedHashSet<>();
+		for (Integer genreId : readSet(json, GENRE_IDS)) {
+			genres.add(referenceData.getGenreById(genreId).orElseGet(() -> new Genre(genreId, null)));
+		}
+		return genres;
+	}
+
+	private <T> LinkedHashSet<T> readSet(String json, TypeReference<List<T>> type) {
+		if (json == null) {
+			return new LinkedHashSet<>();
+		}
+
+		try {
+			return new LinkedHashSet<>(objectMapper.readValue(json, type));
+		} catch (JsonProcessingException e) {
+			throw new InternalServerException("Не удалось прочитать связанные данные фильма: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Ограниченный по размеру LRU-кэш полностью собранных фильмов.
+ * Закэшированные объекты общие для всех читателей и не должны изменяться.
+ */
+@Slf4j
+@Component
+public class FilmCache implements MeterBinder {
+	private static final String CACHE_NAME = "films";
+
+	private final boolean enabled;
+	private final int maxSize;
+	private final Map<Long, Film> films;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private long generation;
+
+	public FilmCache(@Value("${filmorate.cache.films.enabled:true}") boolean enabled,
+					 @Value("${filmorate.cache.films.max-size:10000}") int maxSize) {
+		this.enabled = enabled;
+		this.maxSize = maxSize;
+		this.films = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Film> eldest) {
+				if (size() > FilmCache.this.maxSize) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+		log.info("Кэш фильмов {}, максимальный размер {}", enabled ? "включён" : "выключен", maxSize);
+	}
+
+	public Optional<Film> get(Long filmId, Supplier<Optional<Film>> loader) {
+		if (!enabled) {
+			return loader.get();
+		}
+
+		long loadGeneration;
+		synchronized (this) {
+			Film film = films.get(filmId);
+			if (film != null) {
+				hits.incrementAndGet();
+				return Optional.of(film);
+			}
+			loadGeneration = generation;
+		}
+
+		misses.incrementAndGet();
+		Optional<Film> loaded = loader.get();
+		loaded.ifPresent(film -> {
+			synchronized (this) {
+				// За время загрузки фильм мог измениться — такой результат не кэшируем
+				if (generation == loadGeneration) {
+					films.put(filmId, film);
+				}
+			}
+		});
+		return loaded;
+	}
+
+	public void evict(Long filmId) {
+		if (!enabled) {
+			return;
+		}
+
+		remove(filmId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					remove(filmId);
+				}
+			});
+		}
+	}
+
+	public void evictAll(Collection<Long> filmIds) {
+		filmIds.forEach(this::evict);
+	}
+
+	/**
+	 * Сбрасывает весь кэш, например после перезагрузки справочников, на которые ссылаются фильмы.
+	 */
+	public synchronized void clear() {
+		generation++;
+		evictions.addAndGet(films.size());
+		films.clear();
+	}
+
+	public synchronized int size() {
+		return films.size();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("cache.gets", hits, AtomicLong::get)
+			.tag("cache", CACHE_NAME)
+			.tag("result", "hit")
+			.register(registry);
+		FunctionCounter.builder("cache.gets", misses, AtomicLong::get)
+			.tag("cache", CACHE_NAME)
+			.tag("result", "miss")
+			.register(registry);
+		FunctionCounter.builder("cache.evictions", evictions, AtomicLong::get)
+			.tag("cache", CACHE_NAME)
+			.register(registry);
+		Gauge.builder("cache.size", this, FilmCache::size)
+			.tag("cache", CACHE_NAME)
+			.register(registry);
+	}
+
+	private synchronized void remove(Long filmId) {
+		generation++;
+		films.remove(filmId);
+	}
+}
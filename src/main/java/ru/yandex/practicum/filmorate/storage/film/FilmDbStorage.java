@@ -1,28 +1,42 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.BaseRepository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
 public class FilmDbStorage extends BaseRepository implements FilmStorage {
-	private static final String FIND_ALL_QUERY = """
-		SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, fm.mpa_name
-		FROM films AS f
-		LEFT JOIN film_mpa AS fm ON f.mpa_id = fm.mpa_id
+	private static final String FIND_ALL_QUERY = FilmAssembler.SELECT_FILMS;
+	private static final String EXPORT_QUERY = FilmAssembler.SELECT_FILMS + """
+		ORDER BY f.film_id
 		""";
-	private static final String FIND_BY_ID_QUERY = """
-		SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, fm.mpa_name
-		FROM films AS f
-		LEFT JOIN film_mpa AS fm ON f.mpa_id = fm.mpa_id
+	private static final String FIND_PAGE_QUERY = FilmAssembler.SELECT_FILMS + """
+		WHERE f.film_id > ?
+		ORDER BY f.film_id
+		LIMIT ?
+		""";
+	private static final String FIND_BY_ID_QUERY = FilmAssembler.SELECT_FILMS + """
 		WHERE f.film_id = ?
 		""";
+	private static final String FIND_BY_IDS_QUERY = FilmAssembler.SELECT_FILMS + """
+		WHERE f.film_id IN (%s)
+		""";
 	private static final String INSERT_QUERY = """
 		INSERT INTO films (name, description, release_date, duration, mpa_id)
 		VALUES (?, ?, ?, ?, ?)
@@ -34,92 +48,32 @@ public class FilmDbStorage extends BaseRepository implements FilmStorage {
 		""";
     private static final String DELETE_QUERY =
         "DELETE FROM films WHERE film_id = ?";
-	private static final String FIND_POPULAR_QUERY = """
-		SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, fm.mpa_name
-		FROM films AS f
-		LEFT JOIN film_mpa AS fm ON f.mpa_id = fm.mpa_id
-		LEFT JOIN likes AS l ON f.film_id = l.film_id
-		GROUP BY f.film_id, fm.mpa_name
-		ORDER BY COUNT(DISTINCT l.user_id) DESC
+	private static final String FIND_POPULAR_QUERY = FilmAssembler.SELECT_FILMS + """
+		ORDER BY f.likes_count DESC, f.film_id ASC
 		LIMIT ?
 		""";
-	private static final String FIND_FILMS_BY_DIRECTOR = """
-		SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, m.mpa_name
-		FROM films f
-		LEFT JOIN film_director fd ON f.film_id = fd.film_id
-		LEFT JOIN directors d ON fd.director_id = d.director_id
-		LEFT JOIN film_mpa m ON f.mpa_id = m.mpa_id
-		WHERE d.director_id = ?
+	private static final String FIND_FILMS_BY_DIRECTOR = FilmAssembler.SELECT_FILMS + """
+		JOIN film_director AS fdir ON f.film_id = fdir.film_id
+		WHERE fdir.director_id = ?
 		ORDER BY f.release_date
 		""";
-	private static final String FIND_FILMS_BY_DIRECTOR_SORTED_BY_YEAR = """
-		SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, m.mpa_name
-		FROM films f
-		LEFT JOIN film_director fd ON f.film_id = fd.film_id
-		LEFT JOIN directors d ON fd.director_id = d.director_id
-		LEFT JOIN film_mpa m ON f.mpa_id = m.mpa_id
-		WHERE d.director_id = ?
+	private static final String FIND_FILMS_BY_DIRECTOR_SORTED_BY_YEAR = FilmAssembler.SELECT_FILMS + """
+		JOIN film_director AS fdir ON f.film_id = fdir.film_id
+		WHERE fdir.director_id = ?
 		ORDER BY f.release_date ASC
 		""";
-	private static final String FIND_FILMS_BY_DIRECTOR_SORTED_BY_LIKES = """
-		SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, m.mpa_name
-		FROM films f
-		LEFT JOIN film_director fd ON f.film_id = fd.film_id
-		LEFT JOIN directors d ON fd.director_id = d.director_id
-		LEFT JOIN film_mpa m ON f.mpa_id = m.mpa_id
-		LEFT JOIN likes l ON f.film_id = l.film_id
-		WHERE d.director_id = ?
-		GROUP BY f.film_id, m.mpa_name
-		ORDER BY COUNT(DISTINCT l.user_id) DESC, f.film_id ASC
-		""";
-	private static final String SEARCH_BY_TITLE = """
-    	SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, fm.mpa_name
-    	FROM films AS f
-    	LEFT JOIN film_mpa AS fm ON f.mpa_id = fm.mpa_id
-    	LEFT JOIN likes AS l ON f.film_id = l.film_id
-    	WHERE LOWER(f.name) LIKE ?
-    	GROUP BY f.film_id, fm.mpa_name
-    	ORDER BY COUNT(DISTINCT l.user_id) DESC, f.film_id DESC
-    """;
-	private static final String SEARCH_BY_DIRECTOR_NAME = """
-		SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, fm.mpa_name
-		FROM films AS f
-		LEFT JOIN film_mpa AS fm ON f.mpa_id = fm.mpa_id
-		JOIN film_director AS fd ON f.film_id = fd.film_id
-		JOIN directors AS d ON fd.director_id = d.director_id
-		LEFT JOIN likes AS l ON f.film_id = l.film_id
-		WHERE LOWER(d.name) LIKE ?
-		GROUP BY f.film_id, fm.mpa_name
-		ORDER BY COUNT(DISTINCT l.user_id) DESC, f.film_id DESC
-		""";
-	private static final String SEARCH_BY_TITLE_AND_DIRECTOR = """
-		SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, fm.mpa_name
-		FROM films AS f
-		LEFT JOIN film_mpa AS fm ON f.mpa_id = fm.mpa_id
-		LEFT JOIN film_director AS fd ON f.film_id = fd.film_id
-		LEFT JOIN directors AS d ON fd.director_id = d.director_id
-		LEFT JOIN likes AS l ON f.film_id = l.film_id
-		WHERE LOWER(f.name) LIKE ? OR LOWER(d.name) LIKE ?
-		GROUP BY f.film_id, fm.mpa_name
-		ORDER BY COUNT(DISTINCT l.user_id) DESC, f.film_id DESC
+	private static final String FIND_FILMS_BY_DIRECTOR_SORTED_BY_LIKES = FilmAssembler.SELECT_FILMS + """
+		JOIN film_director AS fdir ON f.film_id = fdir.film_id
+		WHERE fdir.director_id = ?
+		ORDER BY f.likes_count DESC, f.film_id ASC
 		""";
-	private static final String FIND_COMMON_QUERY = """
-		SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, fm.mpa_name
-		FROM films AS f
-		JOIN film_mpa AS fm ON f.mpa_id = fm.mpa_id
-		WHERE f.film_id IN (
-		    SELECT l1.film_id
-		    FROM likes AS l1
-		    JOIN likes AS l2 ON l1.film_id = l2.film_id
-		    WHERE l1.user_id = ? AND l2.user_id = ?
-		)
-		ORDER BY (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id) DESC""";
-
 	private final RowMapper<Film> mapper;
+	private final FilmCache filmCache;
 
-    public FilmDbStorage(JdbcTemplate jdbc, RowMapper<Film> mapper) {
+    public FilmDbStorage(JdbcTemplate jdbc, FilmAssembler filmAssembler, FilmCache filmCache) {
 		super(jdbc);
-		this.mapper = mapper;
+		this.mapper = filmAssembler::mapRow;
+		this.filmCache = filmCache;
     }
 
 	@Override
@@ -127,9 +81,53 @@ public class FilmDbStorage extends BaseRepository implements FilmStorage {
 		return jdbc.query(FIND_ALL_QUERY, mapper);
 	}
 
+	@Override
+	public List<Film> findPage(Long afterId, int limit) {
+		return jdbc.query(FIND_PAGE_QUERY, mapper, afterId != null ? afterId : 0L, limit);
+	}
+
+	@Override
+	public void streamAll(int chunkSize, Consumer<List<Film>> chunkConsumer) {
+		List<Film> chunk = new ArrayList<>(chunkSize);
+		int[] rowNum = {0};
+
+		jdbc.query(connection -> {
+			PreparedStatement ps = connection.prepareStatement(EXPORT_QUERY,
+				ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			ps.setFetchSize(chunkSize);
+			return ps;
+		}, (RowCallbackHandler) rs -> {
+			chunk.add(mapper.mapRow(rs, rowNum[0]++));
+			if (chunk.size() == chunkSize) {
+				chunkConsumer.accept(chunk);
+				chunk.clear();
+			}
+		});
+
+		if (!chunk.isEmpty()) {
+			chunkConsumer.accept(chunk);
+		}
+	}
+
 	@Override
 	public Optional<Film> getFilmById(Long id) {
-		return jdbc.query(FIND_BY_ID_QUERY, mapper, id).stream().findFirst();
+		return filmCache.get(id, () -> jdbc.query(FIND_BY_ID_QUERY, mapper, id).stream().findFirst());
+	}
+
+	@Override
+	public List<Film> getFilmsByIds(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return List.of();
+		}
+
+		String query = String.format(FIND_BY_IDS_QUERY, String.join(", ", Collections.nCopies(ids.size(), "?")));
+		Map<Long, Film> filmsById = jdbc.query(query, mapper, ids.toArray()).stream()
+			.collect(Collectors.toMap(Film::getId, Function.identity()));
+
+		return ids.stream()
+			.map(filmsById::get)
+			.filter(Objects::nonNull)
+			.toList();
 	}
 
 	@Override
@@ -140,16 +138,33 @@ public class FilmDbStorage extends BaseRepository implements FilmStorage {
 		return film;
 	}
 
+	@Override
+	public List<Film> createFilms(List<Film> films) {
+		List<Object[]> batchArgs = new ArrayList<>(films.size());
+		for (Film film : films) {
+			batchArgs.add(new Object[]{film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
+				(film.getMpa() != null) ? film.getMpa().getId() : null});
+		}
+
+		List<Long> ids = insertBatch(INSERT_QUERY, batchArgs);
+		for (int i = 0; i < films.size(); i++) {
+			films.get(i).setId(ids.get(i));
+		}
+		return films;
+	}
+
 	@Override
 	public Film updateFilm(Film film) {
 		update(UPDATE_QUERY, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
 			(film.getMpa() != null) ? film.getMpa().getId() : null, film.getId());
+		filmCache.evict(film.getId());
 		return film;
 	}
 
     @Override
     public void deleteFilm(Long filmId) {
         update(DELETE_QUERY, filmId);
+        filmCache.evict(filmId);
     }
 
 	@Override
@@ -159,38 +174,28 @@ public class FilmDbStorage extends BaseRepository implements FilmStorage {
 			return jdbc.query(FIND_POPULAR_QUERY, mapper, count);
 		}
 
-		StringBuilder queryBuilder = new StringBuilder(
-			"SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, fm.mpa_name " +
-				"FROM films AS f " + "LEFT JOIN film_mpa AS fm ON f.mpa_id = fm.mpa_id " +
-				"LEFT JOIN likes AS l ON f.film_id = l.film_id ");
-		if (genreId != null) {
-			queryBuilder.append(" INNER JOIN film_genre AS fg ON f.film_id = fg.film_id ");
-		}
+		StringBuilder queryBuilder = new StringBuilder(FilmAssembler.SELECT_FILMS);
 
 		queryBuilder.append(" WHERE 1=1 ");
 		if (genreId != null) {
-			queryBuilder.append(" AND fg.genre_id = ? ");
+			queryBuilder.append(" AND EXISTS (SELECT 1 FROM film_genre AS fgen " +
+				"WHERE fgen.film_id = f.film_id AND fgen.genre_id = ?) ");
 			params.add(genreId);
 		}
 
 		if (year != null) {
-			queryBuilder.append(" AND EXTRACT(YEAR FROM f.release_date) = ? ");
-			params.add(year);
+			queryBuilder.append(" AND f.release_date >= ? AND f.release_date < ? ");
+			params.add(LocalDate.of(year, 1, 1));
+			params.add(LocalDate.of(year + 1, 1, 1));
 		}
 
-		queryBuilder.append(" GROUP BY f.film_id, fm.mpa_name ");
-		queryBuilder.append(" ORDER BY COUNT(l.user_id) DESC ");
+		queryBuilder.append(" ORDER BY f.likes_count DESC, f.film_id ASC ");
 		queryBuilder.append(" LIMIT ? ");
 		params.add(count);
 
         return jdbc.query(queryBuilder.toString(), mapper, params.toArray());
 	}
 
-	@Override
-	public List<Film> getCommonFilms(Long userId, Long friendId) {
-		return jdbc.query(FIND_COMMON_QUERY, mapper, userId, friendId);
-	}
-
 	@Override
 	public List<Film> getFilmsByDirector(Long directorId) {
 		return jdbc.query(FIND_FILMS_BY_DIRECTOR, mapper, directorId);
@@ -206,19 +211,4 @@ public class FilmDbStorage extends BaseRepository implements FilmStorage {
 		return jdbc.query(FIND_FILMS_BY_DIRECTOR_SORTED_BY_LIKES, mapper, directorId);
 	}
 
-	@Override
-	public List<Film> searchByTitle(String query) {
-		return jdbc.query(SEARCH_BY_TITLE, mapper, "%" + query.toLowerCase() + "%");
-	}
-
-	@Override
-	public List<Film> searchByDirector(String query) {
-		return jdbc.query(SEARCH_BY_DIRECTOR_NAME, mapper, "%" + query.toLowerCase() + "%");
-	}
-
-	@Override
-	public List<Film> searchByTitleAndDirector(String query) {
-		String pattern = "%" + query.toLowerCase() + "%";
-		return jdbc.query(SEARCH_BY_TITLE_AND_DIRECTOR, mapper, pattern, pattern);
-	}
 }
\ No newline at end of file
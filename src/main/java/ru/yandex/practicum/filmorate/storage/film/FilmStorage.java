@@ -4,16 +4,25 @@ import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 	List<Film> findAll();
 
+	List<Film> findPage(Long afterId, int limit);
+
+	void streamAll(int chunkSize, Consumer<List<Film>> chunkConsumer);
+
 	Film createFilm(Film film);
 
+	List<Film> createFilms(List<Film> films);
+
 	Film updateFilm(Film film);
 
 	Optional<Film> getFilmById(Long id);
 
+	List<Film> getFilmsByIds(List<Long> ids);
+
     void deleteFilm(Long filmId);
 
 	List<Film> getFilmsByDirector(Long directorId);
@@ -22,14 +31,6 @@ public interface FilmStorage {
 
 	List<Film> getFilmsByDirectorSortedByLikes(Long directorId);
 
-	List<Film> searchByTitle(String query);
-
-	List<Film> searchByDirector(String query);
-
-	List<Film> searchByTitleAndDirector(String query);
-
-	List<Film> getCommonFilms(Long userId, Long friendId);
-
 	default List<Film> getPopularFilms(int count) {
 		return getPopularFilms(count, null, null);
 	}
@@ -5,10 +5,13 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
@@ -21,6 +24,25 @@ public class InMemoryFilmStorage implements FilmStorage {
 		return films.values().stream().toList();
 	}
 
+	@Override
+	public List<Film> findPage(Long afterId, int limit) {
+		return films.values().stream()
+			.filter(film -> afterId == null || film.getId() > afterId)
+			.sorted(Comparator.comparing(Film::getId))
+			.limit(limit)
+			.toList();
+	}
+
+	@Override
+	public void streamAll(int chunkSize, Consumer<List<Film>> chunkConsumer) {
+		List<Film> sorted = films.values().stream()
+			.sorted(Comparator.comparing(Film::getId))
+			.toList();
+		for (int from = 0; from < sorted.size(); from += chunkSize) {
+			chunkConsumer.accept(sorted.subList(from, Math.min(from + chunkSize, sorted.size())));
+		}
+	}
+
 	@Override
 	public Film createFilm(Film film) {
 		film.setId(getNextId());
@@ -31,6 +53,12 @@ public class InMemoryFilmStorage implements FilmStorage {
 		return film;
 	}
 
+	@Override
+	public List<Film> createFilms(List<Film> films) {
+		films.forEach(this::createFilm);
+		return films;
+	}
+
 	@Override
 	public Film updateFilm(Film film) {
 		if (!films.containsKey(film.getId())) {
@@ -78,12 +106,15 @@ public class InMemoryFilmStorage implements FilmStorage {
 	}
 
 	@Override
-	public List<Film> getPopularFilms(int count, Integer genreId, Integer year) {
-		return List.of();
+	public List<Film> getFilmsByIds(List<Long> ids) {
+		return ids.stream()
+			.map(films::get)
+			.filter(Objects::nonNull)
+			.toList();
 	}
 
 	@Override
-	public List<Film> getCommonFilms(Long userId, Long friendId) {
+	public List<Film> getPopularFilms(int count, Integer genreId, Integer year) {
 		return List.of();
 	}
 
@@ -102,21 +133,6 @@ public class InMemoryFilmStorage implements FilmStorage {
 		return List.of();
 	}
 
-	@Override
-	public List<Film> searchByTitle(String query) {
-		return List.of();
-	}
-
-	@Override
-	public List<Film> searchByDirector(String query) {
-		return List.of();
-	}
-
-	@Override
-	public List<Film> searchByTitleAndDirector(String query) {
-		return List.of();
-	}
-
 	private long getNextId() {
 		if (films.isEmpty()) {
 			id = 1L;
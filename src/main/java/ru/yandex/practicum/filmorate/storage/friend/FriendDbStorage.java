@@ -5,6 +5,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Friend;
+import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
 
@@ -17,9 +18,17 @@ public class FriendDbStorage implements FriendStorage {
 		"DELETE FROM friends WHERE user_id = ? AND friend_id = ?";
 	private static final String FIND_BY_ID_QUERY =
 		"SELECT user_id, friend_id, status FROM friends WHERE user_id = ?";
+	private static final String FIND_FRIENDS_QUERY = """
+		SELECT u.user_id, u.email, u.login, u.name, u.birthday
+		FROM friends AS f
+		JOIN users AS u ON u.user_id = f.friend_id
+		WHERE f.user_id = ?
+		ORDER BY u.user_id
+		""";
 
 	private final JdbcTemplate jdbc;
 	private final RowMapper<Friend> mapper;
+	private final RowMapper<User> userMapper;
 
 	@Override
 	public void addFriends(Long userId, Long friendId, boolean status) {
@@ -35,4 +44,9 @@ public class FriendDbStorage implements FriendStorage {
 	public List<Friend> getListFriends(Long userId) {
 		return jdbc.query(FIND_BY_ID_QUERY, mapper, userId);
 	}
+
+	@Override
+	public List<User> getFriends(Long userId) {
+		return jdbc.query(FIND_FRIENDS_QUERY, userMapper, userId);
+	}
 }
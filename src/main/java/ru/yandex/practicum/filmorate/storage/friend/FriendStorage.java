@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.friend;
 
 import ru.yandex.practicum.filmorate.model.Friend;
+import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
 
@@ -10,4 +11,9 @@ public interface FriendStorage {
 	void deleteFriends(Long userId, Long friendId);
 
 	List<Friend> getListFriends(Long userId);
+
+	/**
+	 * Друзья пользователя одним запросом вместе с данными пользователей.
+	 */
+	List<User> getFriends(Long userId);
 }
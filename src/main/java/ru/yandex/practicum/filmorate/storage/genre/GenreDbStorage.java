@@ -6,13 +6,11 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 
-import java.sql.ResultSet;
-import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -27,16 +25,14 @@ public class GenreDbStorage implements GenreStorage {
 		"INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
 	private static final String DELETE_QUERY =
 		"DELETE FROM film_genre WHERE film_id = ?";
-	private static final String FIND_BY_FILM_ID_QUERY = """
-		SELECT g.genre_id, g.name
-		FROM genre AS g
-		JOIN film_genre AS fg ON g.genre_id = fg.genre_id
-		WHERE fg.film_id = ?
-		ORDER BY g.genre_id
-		""";
+	private static final String DELETE_ONE_QUERY =
+		"DELETE FROM film_genre WHERE film_id = ? AND genre_id = ?";
+	private static final String FIND_IDS_BY_FILM_ID_QUERY =
+		"SELECT genre_id FROM film_genre WHERE film_id = ?";
 
 	private final JdbcTemplate jdbc;
 	private final RowMapper<Genre> mapper;
+	private final FilmCache filmCache;
 
 	@Override
 	public Set<Genre> getGenre() {
@@ -50,56 +46,83 @@ public class GenreDbStorage implements GenreStorage {
 
 	@Override
 	public void addGenres(Long filmId, Set<Genre> genres) {
-		for (Genre genre : genres) {
-			jdbc.update(INSERT_QUERY, filmId, genre.getId());
+		Set<Integer> genreIds = genreIds(genres);
+		if (genreIds.isEmpty()) {
+			return;
 		}
+
+		jdbc.batchUpdate(INSERT_QUERY, batchArgs(filmId, genreIds));
+		filmCache.evict(filmId);
+	}
+
+	@Override
+	public void addGenresForFilms(List<Film> films) {
+		List<Object[]> batchArgs = new ArrayList<>();
+		for (Film film : films) {
+			for (Integer genreId : genreIds(film.getGenres())) {
+				batchArgs.add(new Object[]{film.getId(), genreId});
+			}
+		}
+		if (batchArgs.isEmpty()) {
+			return;
+		}
+
+		jdbc.batchUpdate(INSERT_QUERY, batchArgs);
+		filmCache.evictAll(films.stream().map(Film::getId).toList());
 	}
 
 	@Override
 	public void deleteGenres(Long filmId) {
 		jdbc.update(DELETE_QUERY, filmId);
+		filmCache.evict(filmId);
 	}
 
 	@Override
 	public void updateGenres(Long filmId, Set<Genre> genres) {
-		deleteGenres(filmId);
-		addGenres(filmId, genres);
+		Set<Genre> oldGenres = new LinkedHashSet<>();
+		for (Integer genreId : jdbc.queryForList(FIND_IDS_BY_FILM_ID_QUERY, Integer.class, filmId)) {
+			oldGenres.add(new Genre(genreId, null));
+		}
+		updateGenres(filmId, oldGenres, genres);
 	}
 
 	@Override
-	public Set<Genre> getGenresByFilm(Long filmId) {
-		return new LinkedHashSet<>(jdbc.query(FIND_BY_FILM_ID_QUERY, mapper, filmId));
+	public void updateGenres(Long filmId, Set<Genre> oldGenres, Set<Genre> genres) {
+		Set<Integer> oldIds = genreIds(oldGenres);
+		Set<Integer> newIds = genreIds(genres);
+
+		Set<Integer> toDelete = new LinkedHashSet<>(oldIds);
+		toDelete.removeAll(newIds);
+		Set<Integer> toInsert = new LinkedHashSet<>(newIds);
+		toInsert.removeAll(oldIds);
+		if (toDelete.isEmpty() && toInsert.isEmpty()) {
+			return;
+		}
+
+		if (!toDelete.isEmpty()) {
+			jdbc.batchUpdate(DELETE_ONE_QUERY, batchArgs(filmId, toDelete));
+		}
+		if (!toInsert.isEmpty()) {
+			jdbc.batchUpdate(INSERT_QUERY, batchArgs(filmId, toInsert));
+		}
+		filmCache.evict(filmId);
 	}
 
-	@Override
-	public void getGenresForFilms(List<Film> films) {
-		if (films.isEmpty()) return;
-
-		List<Long> filmIds = films.stream()
-			.map(Film::getId)
-			.toList();
-
-		String fillAllForFilmsQuery =
-				"SELECT fg.film_id, g.genre_id, g.name " +
-				"FROM genre AS g " +
-				"JOIN film_genre AS fg ON g.genre_id = fg.genre_id " +
-				"WHERE fg.film_id IN (" + String.join(",", Collections.nCopies(filmIds.size(), "?")) + ")" +
-				"ORDER BY g.genre_id ASC";
-
-		Map<Long, Set<Genre>> genresByFilmId = jdbc.query(fillAllForFilmsQuery, (ResultSet rs) -> {
-			Map<Long, Set<Genre>> result = new LinkedHashMap<>();
-			while (rs.next()) {
-				Long filmId = rs.getLong("film_id");
-				Genre genre = new Genre(rs.getInt("genre_id"), rs.getString("name"));
-				result.computeIfAbsent(filmId, key -> new LinkedHashSet<>()).add(genre);
+	private static Set<Integer> genreIds(Set<Genre> genres) {
+		Set<Integer> genreIds = new LinkedHashSet<>();
+		if (genres != null) {
+			for (Genre genre : genres) {
+				genreIds.add(genre.getId());
 			}
-			return result;
-		}, filmIds.toArray());
+		}
+		return genreIds;
+	}
 
-		for (Film film : films) {
-			Set<Genre> genres = (genresByFilmId != null) ?
-				genresByFilmId.getOrDefault(film.getId(), new LinkedHashSet<>()) : new LinkedHashSet<>();
-			film.setGenres(genres);
+	private static List<Object[]> batchArgs(Long filmId, Set<Integer> genreIds) {
+		List<Object[]> args = new ArrayList<>(genreIds.size());
+		for (Integer genreId : genreIds) {
+			args.add(new Object[]{filmId, genreId});
 		}
+		return args;
 	}
 }
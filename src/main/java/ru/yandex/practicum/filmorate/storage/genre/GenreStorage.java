@@ -14,11 +14,11 @@ public interface GenreStorage {
 
 	void addGenres(Long filmId, Set<Genre> genres);
 
-	void updateGenres(Long filmId, Set<Genre> genres);
+	void addGenresForFilms(List<Film> films);
 
-	void deleteGenres(Long filmId);
+	void updateGenres(Long filmId, Set<Genre> genres);
 
-	Set<Genre> getGenresByFilm(Long filmId);
+	void updateGenres(Long filmId, Set<Genre> oldGenres, Set<Genre> genres);
 
-	void getGenresForFilms(List<Film> films);
+	void deleteGenres(Long filmId);
 }
@@ -1,26 +1,79 @@
 package ru.yandex.practicum.filmorate.storage.like;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class LikeDbStorage implements LikeStorage {
-	private static final String INSERT_QUERY =
-		"INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
+	private static final String INSERT_QUERY = """
+		INSERT INTO likes (film_id, user_id)
+		SELECT CAST(? AS BIGINT), CAST(? AS BIGINT)
+		WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)
+		""";
 	private static final String DELETE_QUERY =
 		"DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+	private static final String FIND_FILM_IDS_BY_USER_QUERY =
+		"SELECT film_id FROM likes WHERE user_id = ?";
+	private static final String INCREMENT_COUNT_QUERY =
+		"UPDATE films SET likes_count = likes_count + 1 WHERE film_id = ?";
+	private static final String DECREMENT_COUNT_QUERY =
+		"UPDATE films SET likes_count = likes_count - 1 WHERE film_id = ?";
+	private static final String REPAIR_COUNT_QUERY = """
+		UPDATE films AS f
+		SET likes_count = (SELECT COUNT(*) FROM likes AS l WHERE l.film_id = f.film_id)
+		WHERE f.likes_count <> (SELECT COUNT(*) FROM likes AS l WHERE l.film_id = f.film_id)
+		""";
 
 	private final JdbcTemplate jdbc;
 
 	@Override
-	public void addLike(Long filmId, Long userId) {
-		jdbc.update(INSERT_QUERY, filmId, userId);
+	@Transactional
+	public boolean addLike(Long filmId, Long userId) {
+		int inserted;
+		try {
+			inserted = jdbc.update(INSERT_QUERY, filmId, userId, filmId, userId);
+		} catch (DuplicateKeyException e) {
+			inserted = 0;
+		}
+
+		if (inserted == 0) {
+			log.debug("Лайк пользователя c id = {} фильму c id = {} уже существует", userId, filmId);
+			return false;
+		}
+
+		jdbc.update(INCREMENT_COUNT_QUERY, filmId);
+		return true;
+	}
+
+	@Override
+	@Transactional
+	public boolean deleteLike(Long filmId, Long userId) {
+		if (jdbc.update(DELETE_QUERY, filmId, userId) == 0) {
+			return false;
+		}
+
+		jdbc.update(DECREMENT_COUNT_QUERY, filmId);
+		return true;
+	}
+
+	@Override
+	public List<Long> getLikedFilmIds(Long userId) {
+		return jdbc.queryForList(FIND_FILM_IDS_BY_USER_QUERY, Long.class, userId);
 	}
 
 	@Override
-	public void deleteLike(Long filmId, Long userId) {
-		jdbc.update(DELETE_QUERY, filmId, userId);
+	@Transactional
+	public int repairLikesCount() {
+		int repaired = jdbc.update(REPAIR_COUNT_QUERY);
+		log.info("Пересчитан счётчик лайков, исправлено фильмов: {}", repaired);
+		return repaired;
 	}
 }
@@ -1,7 +1,13 @@
 package ru.yandex.practicum.filmorate.storage.like;
 
+import java.util.List;
+
 public interface LikeStorage {
-	void addLike(Long filmId, Long userId);
+	boolean addLike(Long filmId, Long userId);
+
+	boolean deleteLike(Long filmId, Long userId);
+
+	List<Long> getLikedFilmIds(Long userId);
 
-	void deleteLike(Long filmId, Long userId);
+	int repairLikesCount();
 }
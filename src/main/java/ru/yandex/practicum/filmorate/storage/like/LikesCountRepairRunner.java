@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "filmorate.likes.repair-on-startup", havingValue = "true")
+public class LikesCountRepairRunner implements ApplicationRunner {
+	private final LikeStorage likeStorage;
+
+	@Override
+	public void run(ApplicationArguments args) {
+		likeStorage.repairLikesCount();
+	}
+}
@@ -1,15 +1,21 @@
 package ru.yandex.practicum.filmorate.storage.mappers;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataRegistry;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.LinkedHashSet;
 
 @Component
+@RequiredArgsConstructor
 public class FilmRowMapper implements RowMapper<Film> {
+	private final ReferenceDataRegistry referenceData;
+
 	@Override
 	public Film mapRow(ResultSet resultSet, int rowNum) throws SQLException {
 		Film film = new Film();
@@ -18,9 +24,16 @@ public class FilmRowMapper implements RowMapper<Film> {
 		film.setDescription(resultSet.getString("description"));
 		film.setReleaseDate(resultSet.getDate("release_date").toLocalDate());
 		film.setDuration(resultSet.getInt("duration"));
-		film.setMpa(new MpaRowMapper().mapRow(resultSet, rowNum));
+		int mpaId = resultSet.getInt("mpa_id");
+		film.setMpa(resultSet.wasNull() ? null : referenceData.getMpaById(mpaId).orElseGet(() -> unknownMpa(mpaId)));
 		film.setGenres(new LinkedHashSet<>());
 		film.setDirectors(new LinkedHashSet<>());
 		return film;
 	}
+
+	private static Mpa unknownMpa(int mpaId) {
+		Mpa mpa = new Mpa();
+		mpa.setId(mpaId);
+		return mpa;
+	}
 }
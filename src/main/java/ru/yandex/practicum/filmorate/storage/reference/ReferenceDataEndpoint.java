@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.reference;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Просмотр и перезагрузка справочников: GET/POST /actuator/referencedata.
+ */
+@Component
+@Endpoint(id = "referencedata")
+@RequiredArgsConstructor
+public class ReferenceDataEndpoint {
+	private final ReferenceDataRegistry registry;
+
+	@ReadOperation
+	public Map<String, Integer> counts() {
+		return Map.of("mpa", registry.getMpaCount(), "genres", registry.getGenreCount());
+	}
+
+	@WriteOperation
+	public Map<String, Integer> refresh() {
+		registry.refresh();
+		return counts();
+	}
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage.reference;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Справочники рейтингов MPA и жанров, загруженные в память при старте.
+ * Экземпляры общие для всех фильмов и не должны изменяться.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataRegistry {
+	private final MpaStorage mpaStorage;
+	private final GenreStorage genreStorage;
+	private final FilmCache filmCache;
+	private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of());
+
+	@PostConstruct
+	public void refresh() {
+		Map<Integer, Mpa> mpa = new LinkedHashMap<>();
+		for (Mpa rating : mpaStorage.getMpa()) {
+			mpa.put(rating.getId(), rating);
+		}
+
+		Map<Integer, Genre> genres = new LinkedHashMap<>();
+		for (Genre genre : genreStorage.getGenre()) {
+			genres.put(genre.getId(), genre);
+		}
+
+		snapshot = new Snapshot(Collections.unmodifiableMap(mpa), Collections.unmodifiableMap(genres));
+		// Закэшированные фильмы держат экземпляры из прошлого снимка
+		filmCache.clear();
+		log.info("Загружены справочники: рейтингов MPA {}, жанров {}", mpa.size(), genres.size());
+	}
+
+	public List<Mpa> getMpa() {
+		return List.copyOf(snapshot.mpa().values());
+	}
+
+	public Optional<Mpa> getMpaById(Integer id) {
+		return Optional.ofNullable(snapshot.mpa().get(id));
+	}
+
+	public Set<Genre> getGenres() {
+		return Collections.unmodifiableSet(new LinkedHashSet<>(snapshot.genres().values()));
+	}
+
+	public Optional<Genre> getGenreById(Integer id) {
+		return Optional.ofNullable(snapshot.genres().get(id));
+	}
+
+	public Set<Integer> findMissingGenreIds(Collection<Integer> ids) {
+		Map<Integer, Genre> genres = snapshot.genres();
+		Set<Integer> missing = new LinkedHashSet<>();
+		for (Integer id : ids) {
+			if (!genres.containsKey(id)) {
+				missing.add(id);
+			}
+		}
+		return missing;
+	}
+
+	public int getMpaCount() {
+		return snapshot.mpa().size();
+	}
+
+	public int getGenreCount() {
+		return snapshot.genres().size();
+	}
+
+	private record Snapshot(Map<Integer, Mpa> mpa, Map<Integer, Genre> genres) {
+	}
+}
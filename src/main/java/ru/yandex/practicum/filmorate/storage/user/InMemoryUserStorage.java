@@ -4,13 +4,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
-import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Slf4j
@@ -107,6 +107,14 @@ public class InMemoryUserStorage implements UserStorage {
 		return Optional.of(users.get(userId));
 	}
 
+	@Override
+	public List<User> getUsersByIds(List<Long> ids) {
+		return ids.stream()
+			.map(users::get)
+			.filter(Objects::nonNull)
+			.toList();
+	}
+
 	@Override
 	public Optional<User> getUserByEmail(String email) {
 		return Optional.empty();
@@ -117,11 +125,6 @@ public class InMemoryUserStorage implements UserStorage {
 		return Optional.empty();
 	}
 
-    @Override
-    public List<Film> getRecommendations(Long id) {
-        return List.of();
-    }
-
 	private long getNextId() {
 		if (users.isEmpty()) {
 			id = 1L;
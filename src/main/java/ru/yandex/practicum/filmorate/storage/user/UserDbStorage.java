@@ -3,21 +3,27 @@ package ru.yandex.practicum.filmorate.storage.user;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
-import ru.yandex.practicum.filmorate.model.Film;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.BaseRepository;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
 public class UserDbStorage extends BaseRepository implements UserStorage {
 	private final RowMapper<User> mapper;
-	private final RowMapper<Film> filmMapper;
 	private static final String FIND_ALL_QUERY =
 			"SELECT user_id, email, login, name, birthday FROM users";
 	private static final String FIND_BY_ID_QUERY =
 			"SELECT user_id, email, login, name, birthday FROM users WHERE user_id = ?";
+	private static final String FIND_BY_IDS_QUERY =
+			"SELECT user_id, email, login, name, birthday FROM users WHERE user_id IN (%s)";
 	private static final String FIND_BY_EMAIL_QUERY =
 			"SELECT user_id, email, login, name, birthday FROM users WHERE email = ?";
 	private static final String FIND_BY_LOGIN_QUERY =
@@ -28,26 +34,14 @@ public class UserDbStorage extends BaseRepository implements UserStorage {
 			"UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE user_id = ?";
 	private static final String DELETE_QUERY =
 			"DELETE FROM users WHERE user_id = ?";
-	private static final String FIND_RECOMMENDATIONS_QUERY = """
-			SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id, fm.mpa_name
-			FROM films AS f
-			JOIN film_mpa AS fm ON f.mpa_id = fm.mpa_id
-			JOIN likes AS l ON f.film_id = l.film_id
-			JOIN (
-				SELECT l2.user_id
-				FROM likes AS l1
-			   	JOIN likes AS l2 ON l1.film_id = l2.film_id
-			   	WHERE l1.user_id = ? AND l2.user_id <> ?
-			   	GROUP BY l2.user_id
-			   	ORDER BY COUNT(l1.film_id) DESC LIMIT 1
-			   	) AS recommend ON l.user_id = recommend.user_id
-			WHERE f.film_id NOT IN (SELECT film_id FROM likes WHERE user_id = ?)
+	private static final String DECREMENT_LIKES_COUNT_QUERY = """
+			UPDATE films SET likes_count = likes_count - 1
+			WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = ?)
 			""";
 
-	public UserDbStorage(JdbcTemplate jdbc, RowMapper<User> mapper, RowMapper<Film> filmMapper) {
+	public UserDbStorage(JdbcTemplate jdbc, RowMapper<User> mapper) {
 		super(jdbc);
 		this.mapper = mapper;
-		this.filmMapper = filmMapper;
 	}
 
 	@Override
@@ -86,6 +80,22 @@ public class UserDbStorage extends BaseRepository implements UserStorage {
 		return jdbc.query(FIND_BY_ID_QUERY, mapper, id).stream().findFirst();
 	}
 
+	@Override
+	public List<User> getUsersByIds(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return List.of();
+		}
+
+		String query = String.format(FIND_BY_IDS_QUERY, String.join(", ", Collections.nCopies(ids.size(), "?")));
+		Map<Long, User> usersById = jdbc.query(query, mapper, ids.toArray()).stream()
+				.collect(Collectors.toMap(User::getId, Function.identity()));
+
+		return ids.stream()
+				.map(usersById::get)
+				.filter(Objects::nonNull)
+				.toList();
+	}
+
 	@Override
 	public Optional<User> getUserByEmail(String email) {
 		return jdbc.query(FIND_BY_EMAIL_QUERY, mapper, email).stream().findFirst();
@@ -97,12 +107,9 @@ public class UserDbStorage extends BaseRepository implements UserStorage {
 	}
 
 	@Override
-	public List<Film> getRecommendations(Long userId) {
-		return jdbc.query(FIND_RECOMMENDATIONS_QUERY, filmMapper, userId, userId, userId);
-	}
-
-	@Override
+	@Transactional
 	public void deleteUser(Long userId) {
+		jdbc.update(DECREMENT_LIKES_COUNT_QUERY, userId);
 		update(DELETE_QUERY, userId);
 	}
 }
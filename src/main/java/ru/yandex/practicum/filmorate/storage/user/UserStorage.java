@@ -1,6 +1,5 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
-import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
@@ -16,11 +15,14 @@ public interface UserStorage {
 
 	Optional<User> getUserById(Long id);
 
+	/**
+	 * Пользователи в порядке переданных id, отсутствующие пропускаются.
+	 */
+	List<User> getUsersByIds(List<Long> ids);
+
 	Optional<User> getUserByEmail(String email);
 
     Optional<User> getUserByLogin(String login);
 
-    List<Film> getRecommendations(Long id);
-
     void deleteUser(Long id);
 }
@@ -8,16 +8,17 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.review.Review;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataRegistry;
 import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 @Slf4j
@@ -28,20 +29,17 @@ public class Validation {
 	private final UserStorage userStorage;
 	private final FilmStorage filmStorage;
 	private final ReviewStorage reviewStorage;
-	private final MpaStorage mpaStorage;
-	private final GenreStorage genreStorage;
+	private final ReferenceDataRegistry referenceData;
 	private final DirectorStorage directorStorage;
 
 	public Validation(@Qualifier("userDbStorage") UserStorage userStorage,
 					  @Qualifier("filmDbStorage") FilmStorage filmStorage,
-					  MpaStorage mpaStorage,
-					  GenreStorage genreStorage,
+					  ReferenceDataRegistry referenceData,
 					  DirectorStorage directorStorage,
 					  ReviewStorage reviewStorage) {
 		this.userStorage = userStorage;
 		this.filmStorage = filmStorage;
-		this.mpaStorage = mpaStorage;
-		this.genreStorage = genreStorage;
+		this.referenceData = referenceData;
 		this.directorStorage = directorStorage;
 		this.reviewStorage = reviewStorage;
 	}
@@ -68,19 +66,36 @@ public class Validation {
 	}
 
 	public void mpaById(Integer id) {
-		if (mpaStorage.getMpaById(id).isEmpty()) {
+		if (referenceData.getMpaById(id).isEmpty()) {
 			log.warn("Рейтинг MPA с id = {} в базе данных не найден", id);
 			throw new NotFoundException("Рейтинг MPA с id = " + id + " не найден");
 		}
 	}
 
 	public void genreById(Integer id) {
-		if (genreStorage.getGenreById(id).isEmpty()) {
+		if (referenceData.getGenreById(id).isEmpty()) {
 			log.warn("Жанр фильма с id = {} в базе данных не найден", id);
 			throw new NotFoundException("Жанр фильма с id = " + id + " не найден");
 		}
 	}
 
+	public void genresByIds(Set<Genre> genres) {
+		if (genres == null || genres.isEmpty()) {
+			return;
+		}
+
+		Set<Integer> genreIds = new LinkedHashSet<>();
+		for (Genre genre : genres) {
+			genreIds.add(genre.getId());
+		}
+
+		Set<Integer> missing = referenceData.findMissingGenreIds(genreIds);
+		if (!missing.isEmpty()) {
+			log.warn("Жанры фильма с id = {} в базе данных не найдены", missing);
+			throw new NotFoundException("Жанры фильма с id = " + missing + " не найдены");
+		}
+	}
+
 	public void uniqueEmailCreateUser(String email) {
 		if (userStorage.getUserByEmail(email).isPresent()) {
 			log.warn("Попытка регистрации с уже существующим email: {}", email);
@@ -187,6 +202,7 @@ public class Validation {
 			return;
 		}
 
+		Set<Long> directorIds = new LinkedHashSet<>();
 		for (Director director : directors) {
 			if (director == null) {
 				throw new IllegalArgumentException("Режиссёр не может быть null");
@@ -195,9 +211,13 @@ public class Validation {
 			if (directorId == null) {
 				throw new IllegalArgumentException("ID режиссёра не может быть null");
 			}
-			if (directorStorage.getDirectorById(directorId).isEmpty()) {
-				throw new NotFoundException("Режиссёр с id = " + directorId + " не найден");
-			}
+			directorIds.add(directorId);
+		}
+
+		Set<Long> missing = directorStorage.findMissingDirectorIds(directorIds);
+		if (!missing.isEmpty()) {
+			log.warn("Режиссёры с id = {} в базе данных не найдены", missing);
+			throw new NotFoundException("Режиссёры с id = " + missing + " не найдены");
 		}
 	}
 
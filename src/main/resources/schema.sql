@@ -30,13 +30,18 @@ CREATE TABLE IF NOT EXISTS films
     description  VARCHAR(200),
     release_date DATE,
     duration     INTEGER CHECK (duration > 0),
-    mpa_id       INTEGER REFERENCES film_mpa (mpa_id) ON DELETE RESTRICT
+    mpa_id       INTEGER REFERENCES film_mpa (mpa_id) ON DELETE RESTRICT,
+    likes_count  BIGINT  NOT NULL DEFAULT 0
 );
 
+-- Счётчик лайков поддерживается LikeDbStorage, индекс нужен для выборки популярных фильмов
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films (likes_count DESC, film_id);
+
 CREATE TABLE IF NOT EXISTS film_genre
 (
     film_id  BIGINT  NOT NULL REFERENCES films (film_id) ON DELETE CASCADE,
-    genre_id INTEGER NOT NULL REFERENCES genre (genre_id) ON DELETE RESTRICT
+    genre_id INTEGER NOT NULL REFERENCES genre (genre_id) ON DELETE RESTRICT,
+    PRIMARY KEY (film_id, genre_id)
 );
 
 CREATE TABLE IF NOT EXISTS users
@@ -76,11 +81,16 @@ CREATE TABLE IF NOT EXISTS events (
     user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE
 );
 
+CREATE INDEX IF NOT EXISTS events_user_id_idx ON events (user_id, id);
+
 CREATE TABLE IF NOT EXISTS likes (
     film_id BIGINT NOT NULL REFERENCES films (film_id) ON DELETE CASCADE,
-    user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE
+    user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
 );
 
+CREATE INDEX IF NOT EXISTS likes_user_id_idx ON likes (user_id);
+
 CREATE TABLE IF NOT EXISTS friends
 (
     user_id   BIGINT  NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
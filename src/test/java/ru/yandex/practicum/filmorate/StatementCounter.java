@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Считает SQL-выражения, подготовленные через DataSource контекста.
+ * Подключается в тестах через @Import(StatementCounter.class).
+ */
+public class StatementCounter implements BeanPostProcessor {
+	private static final Set<String> STATEMENT_METHODS = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+	private final AtomicInteger count = new AtomicInteger();
+
+	public void reset() {
+		count.set(0);
+	}
+
+	public int getCount() {
+		return count.get();
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+			return new DelegatingDataSource(dataSource) {
+				@Override
+				public Connection getConnection() throws SQLException {
+					return counting(super.getConnection());
+				}
+
+				@Override
+				public Connection getConnection(String username, String password) throws SQLException {
+					return counting(super.getConnection(username, password));
+				}
+			};
+		}
+		return bean;
+	}
+
+	private Connection counting(Connection connection) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+			(proxy, method, args) -> {
+				if (STATEMENT_METHODS.contains(method.getName())) {
+					count.incrementAndGet();
+				}
+				try {
+					return method.invoke(connection, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			});
+	}
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.index.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopularityIndexTest {
+	private PopularityIndex index;
+
+	@BeforeEach
+	public void createData() {
+		index = new PopularityIndex(null);
+		index.addFilm(film(1L, LocalDate.of(2020, 1, 1), new Genre(1, "Комедия")));
+		index.addFilm(film(2L, LocalDate.of(2020, 6, 1), new Genre(2, "Драма")));
+		index.addFilm(film(3L, LocalDate.of(2021, 1, 1), new Genre(1, "Комедия"), new Genre(2, "Драма")));
+	}
+
+	@Test
+	void getTopOrdersByLikesThenId() {
+		index.changeLikes(3L, 1);
+		index.changeLikes(3L, 1);
+		index.changeLikes(2L, 1);
+
+		assertThat(index.getTop(10, null, null)).containsExactly(3L, 2L, 1L);
+		assertThat(index.getTop(2, null, null)).containsExactly(3L, 2L);
+	}
+
+	@Test
+	void getTopByGenreAndYear() {
+		index.changeLikes(1L, 1);
+
+		assertThat(index.getTop(10, 1, null)).containsExactly(1L, 3L);
+		assertThat(index.getTop(10, null, 2020)).containsExactly(1L, 2L);
+		assertThat(index.getTop(10, 2, 2021)).containsExactly(3L);
+		assertThat(index.getTop(10, 5, null)).isEmpty();
+	}
+
+	@Test
+	void updateFilmKeepsLikesAndMovesBetweenGroups() {
+		index.changeLikes(1L, 1);
+		index.updateFilm(film(1L, LocalDate.of(2021, 3, 3), new Genre(2, "Драма")));
+
+		assertThat(index.getLikes(1L)).isEqualTo(1);
+		assertThat(index.getTop(10, 1, null)).containsExactly(3L);
+		assertThat(index.getTop(10, 2, 2021)).containsExactly(1L, 3L);
+	}
+
+	@Test
+	void removeFilm() {
+		index.removeFilm(2L);
+
+		assertThat(index.getTop(10, null, null)).containsExactly(1L, 3L);
+		assertThat(index.getTop(10, null, 2020)).containsExactly(1L);
+	}
+
+	private static Film film(Long id, LocalDate releaseDate, Genre... genres) {
+		Film film = new Film("Name " + id, "Description", releaseDate, 100);
+		film.setId(id);
+		film.setGenres(Set.of(genres));
+		return film;
+	}
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.index.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LikeBitmapTest {
+	@Test
+	void behavesLikeSortedSetAcrossContainerKinds() {
+		Random random = new Random(7);
+		LikeBitmap first = new LikeBitmap();
+		LikeBitmap second = new LikeBitmap();
+		TreeSet<Long> firstExpected = new TreeSet<>();
+		TreeSet<Long> secondExpected = new TreeSet<>();
+
+		// плотный диапазон даёт битовые контейнеры, разреженный хвост — массивы
+		for (int i = 0; i < 30_000; i++) {
+			long id = random.nextInt(20_000);
+			first.add(id);
+			firstExpected.add(id);
+			long other = i % 2 == 0 ? random.nextInt(20_000) : 1_000_000L + random.nextInt(5_000_000);
+			second.add(other);
+			secondExpected.add(other);
+		}
+		for (int i = 0; i < 15_000; i++) {
+			long id = random.nextInt(20_000);
+			assertThat(first.remove(id)).isEqualTo(firstExpected.remove(id));
+		}
+
+		assertThat(first.cardinality()).isEqualTo(firstExpected.size());
+		assertThat(first.toArray()).containsExactly(firstExpected.stream().mapToLong(Long::longValue).toArray());
+		TreeSet<Long> common = new TreeSet<>(firstExpected);
+		common.retainAll(secondExpected);
+		assertThat(first.and(second).toArray()).containsExactly(common.stream().mapToLong(Long::longValue).toArray());
+		assertThat(first.and(second).cardinality()).isEqualTo(common.size());
+		assertThat(first.contains(firstExpected.first())).isTrue();
+		assertThat(first.add(firstExpected.first())).isFalse();
+	}
+}
@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.index.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+
+class RecommendationEngineTest {
+	private RecommendationEngine engine;
+
+	@BeforeEach
+	public void createData() {
+		engine = new RecommendationEngine(null, 2, 100, 3);
+		likes(1L, 1L, 2L, 3L);
+		// самый похожий сосед: совпадают два фильма из трёх
+		likes(2L, 1L, 2L, 4L);
+		likes(3L, 1L, 5L, 6L, 7L, 8L);
+		likes(4L, 9L);
+	}
+
+	@Test
+	void recommendsFilmsOfNearestNeighboursByScore() {
+		List<RecommendationEngine.Recommendation> recommendations = engine.recommend(1L, 10);
+
+		assertThat(recommendations).extracting(RecommendationEngine.Recommendation::filmId)
+			.containsExactly(4L, 5L, 6L, 7L, 8L);
+		assertThat(recommendations.getFirst().score()).isCloseTo(2 / 3.0, within(1e-9));
+		assertThat(engine.recommend(1L, 2)).hasSize(2);
+		assertThat(engine.recommend(4L, 10)).isEmpty();
+		assertThat(engine.recommend(100L, 10)).isEmpty();
+	}
+
+	@Test
+	void onlyTopNeighboursContribute() {
+		likes(5L, 1L, 2L, 3L, 10L);
+
+		// соседей два: пользователи 5 и 2, фильмы пользователя 3 не попадают в выдачу
+		assertThat(engine.recommend(1L, 10)).extracting(RecommendationEngine.Recommendation::filmId)
+			.containsExactly(10L, 4L);
+	}
+
+	@Test
+	void followsLikeChanges() {
+		engine.removeLike(2L, 4L);
+		engine.addLike(1L, 5L);
+		assertThat(engine.recommend(1L, 10)).extracting(RecommendationEngine.Recommendation::filmId)
+			.containsExactly(6L, 7L, 8L);
+
+		engine.removeFilm(6L);
+		engine.removeUser(3L);
+		assertThat(engine.recommend(1L, 10)).isEmpty();
+		assertThat(engine.getLikeCount()).isEqualTo(7);
+	}
+
+	@Test
+	void precomputedListsAreDroppedWhenNeighbourLikesChange() {
+		engine.recommend(1L, 10);
+		engine.recommend(4L, 10);
+		assertThat(engine.getPrecomputedCount()).isEqualTo(2);
+
+		// пользователь 3 — сосед пользователя 1, список пользователя 4 не зависит от него
+		engine.addLike(3L, 11L);
+		assertThat(engine.getPrecomputedCount()).isEqualTo(1);
+		assertThat(engine.recommend(1L, 10)).extracting(RecommendationEngine.Recommendation::filmId).contains(11L);
+
+		// пользователь 5 лайкнул фильм пользователя 4, но не входит в его соседей — список остаётся
+		engine.addLike(5L, 9L);
+		assertThat(engine.getPrecomputedCount()).isEqualTo(2);
+		assertThat(engine.recommend(4L, 10)).isEmpty();
+	}
+
+	@Test
+	void listComputedDuringRelatedLikeChangeIsNotCached() {
+		RecommendationEngine.Computed computed = engine.compute(1L, 10);
+		// лайк пользователя 4 не касается ни соседей, ни фильмов пользователя 1
+		engine.addLike(4L, 12L);
+		engine.store(1L, computed);
+		assertThat(engine.getPrecomputedCount()).isEqualTo(1);
+
+		// пользователь 6 лайкнул фильм пользователя 2, пока считался его список
+		computed = engine.compute(2L, 10);
+		engine.addLike(6L, 4L);
+		assertThat(engine.store(2L, computed).filmIds()).containsExactly(3L, 5L, 6L, 7L, 8L);
+		assertThat(engine.getPrecomputedCount()).isEqualTo(1);
+	}
+
+	@Test
+	void jobPrecomputesStaleListsOfActiveUsers() {
+		engine.recommend(1L, 10);
+		engine.recommend(2L, 10);
+		engine.addLike(1L, 4L);
+		assertThat(engine.getPrecomputedCount()).isZero();
+
+		RecommendationPrecomputeJob job = new RecommendationPrecomputeJob(engine, Duration.ofHours(1), 2);
+		try {
+			job.precompute();
+		} finally {
+			job.shutdown();
+		}
+		assertThat(engine.getPrecomputedCount()).isEqualTo(2);
+		assertThat(engine.getStaleActiveUsers(0)).isEmpty();
+	}
+
+	@Test
+	void similarFilmsFollowCoLikes() {
+		assertThat(engine.similarFilms(2L, 10)).extracting(RecommendationEngine.SimilarFilm::filmId)
+			.containsExactly(1L, 3L, 4L);
+		assertThat(engine.similarFilms(2L, 10).getFirst().coLikes()).isEqualTo(2);
+		assertThat(engine.similarFilms(9L, 10)).isEmpty();
+	}
+
+	@Test
+	void commonFilmsAreIntersectionOfLikes() {
+		assertThat(engine.commonFilms(1L, 2L)).containsExactly(1L, 2L);
+		assertThat(engine.commonFilms(1L, 4L)).isEmpty();
+		assertThat(engine.commonFilms(1L, 100L)).isEmpty();
+	}
+
+	@Test
+	void similarFilmListsArePruned() {
+		engine = new RecommendationEngine(null, 2, 100, 3);
+		likes(1L, 1L, 2L, 3L);
+		likes(2L, 1L, 2L);
+		likes(3L, 1L, 4L);
+		// список фильма 1 заполнен: фильм 5 вытесняет самый редкий фильм 3 и наследует его счётчик
+		likes(4L, 1L, 5L);
+		assertThat(engine.similarFilms(1L, 10)).extracting(RecommendationEngine.SimilarFilm::filmId,
+				RecommendationEngine.SimilarFilm::coLikes)
+			.containsExactly(tuple(2L, 2L), tuple(5L, 2L), tuple(4L, 1L));
+
+		engine.removeUser(2L);
+		engine.removeFilm(4L);
+		assertThat(engine.similarFilms(1L, 10)).extracting(RecommendationEngine.SimilarFilm::filmId)
+			.containsExactly(5L, 2L);
+		assertThat(engine.similarFilms(4L, 10)).isEmpty();
+	}
+
+	private void likes(Long userId, Long... filmIds) {
+		for (Long filmId : filmIds) {
+			engine.addLike(userId, filmId);
+		}
+	}
+}
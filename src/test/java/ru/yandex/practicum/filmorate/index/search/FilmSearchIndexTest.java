@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.index.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.film.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class FilmSearchIndexTest {
+	private PopularityIndex popularityIndex;
+	private FilmSearchIndex index;
+
+	@BeforeEach
+	public void createData() {
+		popularityIndex = new PopularityIndex(null);
+		index = new FilmSearchIndex(null, popularityIndex);
+		index.putDirector(new Director(10L, "Никита Михалков"));
+		index.putDirector(new Director(11L, "Quentin Tarantino"));
+
+		add(film(1L, "Утомлённые солнцем", 10L));
+		add(film(2L, "Криминальное чтиво", 11L));
+		add(film(3L, "Сибирский цирюльник", 10L));
+		add(film(4L, "Pulp Fiction"));
+	}
+
+	@Test
+	void searchByTitleIsCaseInsensitiveSubstring() {
+		assertThat(index.search("СОЛНЦ", true, false, false, 10)).containsExactly(1L);
+		assertThat(index.search("fict", true, false, false, 10)).containsExactly(4L);
+		assertThat(index.search("нальное чт", true, false, false, 10)).containsExactly(2L);
+		assertThat(index.search("чтиво крим", true, false, false, 10)).isEmpty();
+		assertThat(index.search("ц", true, false, false, 10)).containsExactly(3L, 1L);
+	}
+
+	@Test
+	void searchByDirectorAndRankByLikes() {
+		popularityIndex.changeLikes(3L, 1);
+
+		assertThat(index.search("михалк", false, true, false, 10)).containsExactly(3L, 1L);
+		assertThat(index.search("тарантино", false, true, false, 10)).isEmpty();
+		assertThat(index.search("tarant", true, true, false, 10)).containsExactly(2L);
+		assertThat(index.search("михалк", false, true, false, 1)).containsExactly(3L);
+	}
+
+	@Test
+	void indexFollowsFilmAndDirectorChanges() {
+		add(film(1L, "Солнечный удар", 11L));
+		index.putDirector(new Director(10L, "Андрей Тарковский"));
+		index.removeFilm(2L);
+
+		assertThat(index.search("утомлённые", true, false, false, 10)).isEmpty();
+		assertThat(index.search("солнечный", true, false, false, 10)).containsExactly(1L);
+		assertThat(index.search("тарков", false, true, false, 10)).containsExactly(3L);
+		assertThat(index.search("tarantino", false, true, false, 10)).containsExactly(1L);
+
+		index.removeDirector(11L);
+		assertThat(index.search("tarantino", false, true, false, 10)).isEmpty();
+	}
+
+	@Test
+	void fuzzySearchToleratesTyposAndMergesExactHits() {
+		add(film(5L, "Матрица"));
+		add(film(6L, "Матрица: Перезагрузка"));
+		add(film(7L, "Мат"));
+		popularityIndex.changeLikes(6L, 1);
+
+		assertThat(index.search("Матрца", true, false, false, 10)).isEmpty();
+		assertThat(index.search("Матрца", true, false, true, 10)).containsExactly(6L, 5L);
+		assertThat(index.search("матрица перезагрузко", true, false, true, 10)).containsExactly(6L);
+		// точное совпадение по подстроке остаётся в выдаче вместе с исправленными
+		assertThat(index.search("мат", true, false, true, 10)).containsExactly(6L, 7L, 5L);
+		assertThat(index.search("tarantio", false, true, true, 10)).containsExactly(2L);
+		assertThat(index.search("михалкв", true, true, true, 10)).containsExactly(3L, 1L);
+	}
+
+	@Test
+	void autocompleteMatchesWordPrefixesRankedByLikes() {
+		popularityIndex.changeLikes(1L, 2);
+		popularityIndex.changeLikes(2L, 5);
+
+		assertThat(index.autocomplete("  Fic", 10)).extracting(FilmSearchIndex.Suggestion::id).containsExactly(4L);
+		assertThat(index.autocomplete("с", 10)).extracting(FilmSearchIndex.Suggestion::name)
+			.containsExactly("Утомлённые солнцем", "Сибирский цирюльник");
+		// режиссёр ранжируется по сумме лайков своих фильмов
+		assertThat(index.autocomplete("", 2)).extracting(FilmSearchIndex.Suggestion::type, FilmSearchIndex.Suggestion::id)
+			.containsExactly(tuple(FilmSearchIndex.SuggestionType.FILM, 2L),
+				tuple(FilmSearchIndex.SuggestionType.DIRECTOR, 11L));
+
+		index.putDirector(new Director(10L, "Андрей Тарковский"));
+		add(film(4L, "Сталкер", 10L));
+		assertThat(index.autocomplete("михал", 10)).isEmpty();
+		assertThat(index.autocomplete("ст", 10)).extracting(FilmSearchIndex.Suggestion::id).containsExactly(4L);
+		assertThat(index.autocomplete("тарк", 10)).extracting(FilmSearchIndex.Suggestion::likes).containsExactly(2L);
+	}
+
+	@Test
+	void shortPrefixesAreServedFromTopListsWithFallback() {
+		index = new FilmSearchIndex(null, popularityIndex, 2);
+		popularityIndex.changeLikes(1L, 3);
+		popularityIndex.changeLikes(3L, 1);
+		index.putFilm(film(1L, "Утомлённые солнцем"));
+		index.putFilm(film(3L, "Сибирский цирюльник"));
+		add(film(2L, "Солярис"));
+
+		// в списке "с" только два лучших, третий отброшен — при limit 3 нужен полный перебор
+		assertThat(index.autocomplete("С", 2)).extracting(FilmSearchIndex.Suggestion::id).containsExactly(1L, 3L);
+		assertThat(index.autocomplete("с", 3)).extracting(FilmSearchIndex.Suggestion::id).containsExactly(1L, 3L, 2L);
+
+		// порядок внутри готового списка — по текущим лайкам
+		popularityIndex.changeLikes(3L, 5);
+		assertThat(index.autocomplete("с", 2)).extracting(FilmSearchIndex.Suggestion::id).containsExactly(3L, 1L);
+
+		// после удаления в неполном списке не хватает подсказок, они находятся перебором
+		index.removeFilm(1L);
+		assertThat(index.autocomplete("с", 2)).extracting(FilmSearchIndex.Suggestion::id).containsExactly(3L, 2L);
+		index.putFilm(film(3L, "Мама"));
+		assertThat(index.autocomplete("сиб", 10)).isEmpty();
+		assertThat(index.autocomplete("ма", 10)).extracting(FilmSearchIndex.Suggestion::name).containsExactly("Мама");
+
+		// пересчёт собирает списки по текущим лайкам
+		popularityIndex.changeLikes(2L, 10);
+		index.refreshShortPrefixes();
+		assertThat(index.autocomplete("", 1)).extracting(FilmSearchIndex.Suggestion::id).containsExactly(2L);
+		assertThat(index.getPrefixCount()).isPositive();
+	}
+
+	private void add(Film film) {
+		popularityIndex.addFilm(film);
+		index.putFilm(film);
+	}
+
+	private static Film film(Long id, String name, Long... directorIds) {
+		Film film = new Film(name, "Description", LocalDate.of(2000, 1, 1), 100);
+		film.setId(id);
+		film.setGenres(Set.of());
+		for (Long directorId : directorIds) {
+			film.getDirectors().add(new Director(directorId, null));
+		}
+		return film;
+	}
+}
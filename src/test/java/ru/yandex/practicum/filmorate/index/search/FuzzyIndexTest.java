@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.index.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FuzzyIndexTest {
+	@Test
+	void matchesWithTyposAndPrunesRemovedWords() {
+		FuzzyIndex index = new FuzzyIndex();
+		index.put(1, "Крёстный отец");
+		index.put(2, "Крёстная мать");
+		int nodes = index.nodeCount();
+
+		// переименования и удаления не должны оставлять ветки в дереве
+		for (long id = 10; id < 1000; id++) {
+			index.put(id, "Фильм " + id);
+			index.put(id, "Другое название " + id);
+			index.remove(id);
+		}
+
+		assertThat(index.nodeCount()).isEqualTo(nodes);
+		assertThat(match(index, "крестный")).containsExactly(1L);
+		assertThat(match(index, "фильм")).isEmpty();
+
+		index.remove(1);
+		assertThat(match(index, "отец")).isEmpty();
+		assertThat(match(index, "крёстная")).containsExactly(2L);
+	}
+
+	private static Set<Long> match(FuzzyIndex index, String query) {
+		Set<Long> found = new HashSet<>();
+		index.match(query, found::add);
+		return found;
+	}
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.index.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramIndexTest {
+	private static final String[] WORDS = {"Солнце", "ночь", "Город", "love", "Star", "war", "чтиво", "дом", "Lost", "мир"};
+
+	@Test
+	void matchesSameIdsAsBruteForceContains() {
+		Random random = new Random(42);
+		TrigramIndex index = new TrigramIndex();
+		Map<Long, String> titles = new HashMap<>();
+		for (long id = 1; id <= 2000; id++) {
+			String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+				+ " " + random.nextInt(100);
+			titles.put(id, title);
+			index.put(id, title);
+		}
+		// часть фильмов переименована и удалена
+		for (long id = 1; id <= 2000; id += 7) {
+			titles.put(id, "Новое " + id);
+			index.put(id, "Новое " + id);
+		}
+		for (long id = 3; id <= 2000; id += 11) {
+			titles.remove(id);
+			index.remove(id);
+		}
+
+		for (String query : new String[]{"", "о", "ар", "СОЛН", "ночь дом", "e 1", "рь ст", "вое 1", "war war", "xyz"}) {
+			Set<Long> found = new HashSet<>();
+			index.match(query, found::add);
+			assertThat(found).as(query).isEqualTo(bruteForce(titles, query));
+		}
+	}
+
+	@Test
+	void removedTextReleasesItsTrigrams() {
+		TrigramIndex index = new TrigramIndex();
+		index.put(1L, "abcd");
+		index.put(2L, "bcde");
+		assertThat(index.gramCount()).isEqualTo(3);
+
+		index.remove(1L);
+		index.remove(2L);
+		assertThat(index.gramCount()).isZero();
+		assertThat(index.size()).isZero();
+	}
+
+	private static Set<Long> bruteForce(Map<Long, String> titles, String query) {
+		Set<Long> found = new HashSet<>();
+		titles.forEach((id, title) -> {
+			if (TrigramIndex.normalize(title).contains(TrigramIndex.normalize(query))) {
+				found.add(id);
+			}
+		});
+		return found;
+	}
+}
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.index.social;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер поиска цепочки друзей на сгенерированном графе со степенным распределением.
+ * Долгий и требует около гигабайта памяти, поэтому запускается только явно:
+ * mvn test -Dtest=FriendGraphTraversalBenchmarkTest -Dfilmorate.benchmarks=true
+ * Размер графа задаётся -Dfilmorate.benchmarks.users (по умолчанию миллион пользователей).
+ */
+@Slf4j
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "filmorate.benchmarks", matches = "true")
+class FriendGraphTraversalBenchmarkTest {
+	private static final int FRIENDS_PER_USER = 10;
+	// Доля дружб, на которые пользователь отвечает взаимностью
+	private static final double RECIPROCAL_SHARE = 0.3;
+	private static final int WARMUP_SEARCHES = 500;
+	private static final int SEARCHES = 5000;
+	private static final int MAX_VISITED = 200_000;
+
+	@Test
+	void findsRoutesOnPowerLawGraph() {
+		int users = Integer.getInteger("filmorate.benchmarks.users", 1_000_000);
+		Random random = new Random(42);
+
+		long start = System.nanoTime();
+		CsrGraph graph = powerLawGraph(users, random);
+		long buildMillis = (System.nanoTime() - start) / 1_000_000;
+
+		FriendGraphTraversal traversal = new FriendGraphTraversal(null, 6, MAX_VISITED, Runnable::run);
+		traversal.replaceSnapshot(graph);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		traversal.bindTo(registry);
+
+		for (int i = 0; i < WARMUP_SEARCHES; i++) {
+			traversal.findRoute(1L + random.nextInt(users), 1L + random.nextInt(users), 6);
+		}
+		double limitedBefore = limited(registry);
+
+		long[] nanos = new long[SEARCHES];
+		for (int i = 0; i < SEARCHES; i++) {
+			long userId = 1L + random.nextInt(users);
+			long otherId = 1L + random.nextInt(users);
+			long searchStart = System.nanoTime();
+			traversal.findRoute(userId, otherId, 6);
+			nanos[i] = System.nanoTime() - searchStart;
+		}
+		Arrays.sort(nanos);
+		double p50 = nanos[SEARCHES / 2] / 1_000_000.0;
+		double p99 = nanos[SEARCHES * 99 / 100] / 1_000_000.0;
+		double limitedShare = (limited(registry) - limitedBefore) / SEARCHES;
+
+		log.info("Граф: пользователей {}, рёбер {}, построен за {} мс, примерный объём {} байт",
+			graph.nodeCount(), graph.edgeCount(), buildMillis, graph.estimateMemoryBytes());
+		log.info("Поиск цепочки: p50 {} мс, p99 {} мс, прервано по max-visited {}%",
+			String.format("%.3f", p50), String.format("%.3f", p99), String.format("%.1f", limitedShare * 100));
+
+		// Снимок — массивы int и long, без объектов на вершину или ребро
+		assertThat(graph.estimateMemoryBytes()).isLessThan(graph.nodeCount() * 16L + graph.edgeCount() * 12L);
+		// Границы с большим запасом: проверяется порядок величины, а не конкретная машина
+		assertThat(p50).isLessThan(5.0);
+		assertThat(p99).isLessThan(50.0);
+		assertThat(limitedShare).isLessThan(0.05);
+	}
+
+	/**
+	 * Граф предпочтительного присоединения: каждый новый пользователь добавляет в друзья
+	 * FRIENDS_PER_USER уже существующих с вероятностью, пропорциональной их числу связей,
+	 * так что число подписчиков распределено по степенному закону.
+	 */
+	private static CsrGraph powerLawGraph(int users, Random random) {
+		CsrGraph.Builder builder = new CsrGraph.Builder();
+		// Концы всех рёбер: равномерный выбор из массива даёт выбор пропорционально степени
+		int[] endpoints = new int[users * FRIENDS_PER_USER * 2];
+		int endpointCount = 0;
+		for (int userId = 1; userId <= users; userId++) {
+			int friends = Math.min(FRIENDS_PER_USER, userId - 1);
+			for (int i = 0; i < friends; i++) {
+				int friendId = endpointCount == 0 || random.nextInt(4) == 0
+					? 1 + random.nextInt(userId - 1)
+					: endpoints[random.nextInt(endpointCount)];
+				if (friendId == userId) {
+					continue;
+				}
+				builder.add(userId, friendId);
+				if (random.nextDouble() < RECIPROCAL_SHARE) {
+					builder.add(friendId, userId);
+				}
+				if (endpointCount + 2 <= endpoints.length) {
+					endpoints[endpointCount++] = userId;
+					endpoints[endpointCount++] = friendId;
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	private static double limited(SimpleMeterRegistry registry) {
+		return registry.get("filmorate.social.traversal.searches").tag("result", "limited").functionCounter().count();
+	}
+}
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.index.social;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendGraphTraversalTest {
+	private FriendGraphTraversal traversal;
+
+	@BeforeEach
+	public void createGraph() {
+		traversal = new FriendGraphTraversal(null, 6, 1000, Runnable::run);
+		// 1 -> 2 -> 3 -> 4 -> 5 и короткий путь 1 -> 6 -> 4
+		traversal.addFriend(1L, 2L);
+		traversal.addFriend(2L, 3L);
+		traversal.addFriend(3L, 4L);
+		traversal.addFriend(4L, 5L);
+		traversal.addFriend(1L, 6L);
+		traversal.addFriend(6L, 4L);
+	}
+
+	@Test
+	void findsShortestRouteAlongFriendships() {
+		FriendGraphTraversal.Route route = traversal.findRoute(1L, 5L, 6).orElseThrow();
+
+		assertThat(route.distance()).isEqualTo(3);
+		assertThat(route.path()).containsExactly(1L, 6L, 4L, 5L);
+		assertThat(traversal.findRoute(1L, 1L, 6).orElseThrow().distance()).isZero();
+		// дружба односторонняя
+		assertThat(traversal.findRoute(5L, 1L, 6)).isEmpty();
+	}
+
+	@Test
+	void respectsDepthAndVisitedLimits() {
+		assertThat(traversal.findRoute(1L, 5L, 2)).isEmpty();
+
+		FriendGraphTraversal limited = new FriendGraphTraversal(null, 6, 3, Runnable::run);
+		for (long i = 10; i < 20; i++) {
+			limited.addFriend(1L, i);
+		}
+		limited.addFriend(19L, 2L);
+		// у цели столько же подписчиков, так что дешёвой стороны для обхода нет
+		for (long i = 20; i < 30; i++) {
+			limited.addFriend(i, 2L);
+		}
+		assertThat(limited.findRoute(1L, 2L, 6)).isEmpty();
+	}
+
+	@Test
+	void expandsSideWithSmallerDegreeSum() {
+		// 1 -> 2 -> 42 -> 3: у 2 тысяча друзей, поэтому до цели доходит только обход с её стороны
+		FriendGraphTraversal limited = new FriendGraphTraversal(null, 6, 20, Runnable::run);
+		limited.addFriend(1L, 2L);
+		for (long i = 1000; i < 2000; i++) {
+			limited.addFriend(2L, i);
+		}
+		limited.addFriend(2L, 42L);
+		limited.addFriend(42L, 3L);
+
+		assertThat(limited.findRoute(1L, 3L, 6).orElseThrow().path()).containsExactly(1L, 2L, 42L, 3L);
+	}
+
+	@Test
+	void followsChangesThroughOverlayAndCompaction() {
+		traversal.removeFriend(6L, 4L);
+		assertThat(traversal.findRoute(1L, 5L, 6).orElseThrow().path()).containsExactly(1L, 2L, 3L, 4L, 5L);
+
+		traversal.removeUser(3L);
+		assertThat(traversal.findRoute(1L, 5L, 6)).isEmpty();
+
+		// цепочка длиннее порога наложения вливается в новый снимок
+		for (long i = 100; i < 5100; i++) {
+			traversal.addFriend(i, i + 1);
+		}
+		traversal.addFriend(2L, 100L);
+		traversal.addFriend(5100L, 4L);
+		assertThat(traversal.getOverlaySize()).isLessThan(5000);
+		assertThat(traversal.getEdgeCount()).isEqualTo(5005);
+		assertThat(traversal.findRoute(100L, 104L, 6).orElseThrow().distance()).isEqualTo(4);
+		assertThat(traversal.findRoute(5098L, 5L, 6).orElseThrow().path()).containsExactly(5098L, 5099L, 5100L, 4L, 5L);
+	}
+
+	@Test
+	void changesDuringBackgroundCompactionSurviveSwap() {
+		List<Runnable> tasks = new ArrayList<>();
+		FriendGraphTraversal deferred = new FriendGraphTraversal(null, 6, 1000, tasks::add);
+		for (long i = 100; i < 5100; i++) {
+			deferred.addFriend(i, i + 1);
+		}
+		assertThat(tasks).hasSize(1);
+
+		// пока снимок собирается, граф продолжает меняться и читаться
+		deferred.removeFriend(100L, 101L);
+		deferred.addFriend(1L, 100L);
+		deferred.addFriend(101L, 102L);
+		assertThat(deferred.findRoute(1L, 102L, 6)).isEmpty();
+
+		tasks.getFirst().run();
+
+		// рёбра после порога, удаление и новое ребро записаны на время сборки и применены поверх снимка
+		assertThat(deferred.getOverlaySize()).isEqualTo(905);
+		assertThat(deferred.getEdgeCount()).isEqualTo(5000);
+		assertThat(deferred.findRoute(1L, 100L, 6).orElseThrow().distance()).isEqualTo(1);
+		assertThat(deferred.findRoute(100L, 101L, 6)).isEmpty();
+		assertThat(deferred.findRoute(101L, 104L, 6).orElseThrow().distance()).isEqualTo(3);
+	}
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.index.social;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SocialGraphIndexTest {
+	private SocialGraphIndex index;
+
+	@BeforeEach
+	public void createGraph() {
+		index = new SocialGraphIndex(null);
+		index.addFriend(1L, 2L);
+		index.addFriend(1L, 3L);
+		index.addFriend(1L, 4L);
+		index.addFriend(5L, 2L);
+		index.addFriend(5L, 3L);
+		index.addFriend(6L, 4L);
+		index.addFriend(7L, 2L);
+		index.addFriend(7L, 3L);
+		index.addFriend(7L, 1L);
+	}
+
+	@Test
+	void mutualFriendsAreSortedIntersection() {
+		assertThat(index.getFriends(1L)).containsExactly(2L, 3L, 4L);
+		assertThat(index.getMutualFriends(1L, 5L)).containsExactly(2L, 3L);
+		assertThat(index.getMutualFriends(1L, 6L)).containsExactly(4L);
+		assertThat(index.getMutualFriends(1L, 100L)).isEmpty();
+	}
+
+	@Test
+	void suggestionsAreRankedByMutualFriends() {
+		assertThat(index.getSuggestions(1L, 10)).containsExactly(
+			new SocialGraphIndex.Suggestion(5L, 2),
+			new SocialGraphIndex.Suggestion(7L, 2),
+			new SocialGraphIndex.Suggestion(6L, 1));
+		assertThat(index.getSuggestions(1L, 1)).containsExactly(new SocialGraphIndex.Suggestion(5L, 2));
+
+		// уже добавленный друг не предлагается
+		index.addFriend(1L, 5L);
+		assertThat(index.getSuggestions(1L, 10)).extracting(SocialGraphIndex.Suggestion::userId)
+			.containsExactly(7L, 6L);
+	}
+
+	@Test
+	void removalUpdatesBothDirections() {
+		index.removeFriend(5L, 3L);
+		assertThat(index.getMutualFriends(1L, 5L)).containsExactly(2L);
+
+		index.removeUser(2L);
+		assertThat(index.getFriends(1L)).containsExactly(3L, 4L);
+		assertThat(index.getSuggestions(1L, 10)).extracting(SocialGraphIndex.Suggestion::userId)
+			.containsExactly(6L, 7L);
+		assertThat(index.getEdgeCount()).isEqualTo(5);
+	}
+}
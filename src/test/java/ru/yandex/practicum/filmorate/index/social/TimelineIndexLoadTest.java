@@ -0,0 +1,202 @@
+package ru.yandex.practicum.filmorate.index.social;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventCursor;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.OperationType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузочная проверка лент друзей на графе подписок с распределением Ципфа: у немногих авторов
+ * большая часть подписчиков, они же пишут большую часть событий. Долгая, поэтому запускается только явно:
+ * mvn test -Dtest=TimelineIndexLoadTest -Dfilmorate.benchmarks=true
+ * Размер графа задаётся -Dfilmorate.benchmarks.users (по умолчанию 200 тысяч пользователей).
+ */
+@Slf4j
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "filmorate.benchmarks", matches = "true")
+class TimelineIndexLoadTest {
+	private static final int FOLLOWS_PER_USER = 19;
+	private static final double ZIPF_EXPONENT = 1.0;
+	private static final int EVENTS = 500_000;
+	private static final int BATCH_SIZE = 100;
+	// Ленту читает только часть пользователей, остальным буферы не нужны
+	private static final int ACTIVE_READER_PERCENT = 10;
+	private static final int READS_PER_BATCH = 20;
+	private static final int CHECKED_READS = 200;
+	private static final int CAPACITY = 500;
+	private static final int FAN_OUT_LIMIT = 1000;
+	private static final int PAGE_SIZE = 100;
+	private static final long MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+
+	private final Map<Long, List<Long>> eventsByAuthor = new HashMap<>();
+
+	@Test
+	void keepsFanOutMemoryAndReadsBoundedOnSkewedGraph() {
+		int users = Integer.getInteger("filmorate.benchmarks.users", 200_000);
+		Random random = new Random(42);
+		double[] zipf = zipfCumulative(users);
+
+		long start = System.nanoTime();
+		SocialGraphIndex graph = zipfGraph(users, zipf, random);
+		long buildMillis = (System.nanoTime() - start) / 1_000_000;
+		int popular = 0;
+		int maxFollowers = 0;
+		for (long userId = 1; userId <= users; userId++) {
+			int followers = graph.getFollowerCount(userId);
+			maxFollowers = Math.max(maxFollowers, followers);
+			if (followers > FAN_OUT_LIMIT) {
+				popular++;
+			}
+		}
+
+		TimelineIndex index = new TimelineIndex(graph, this::recent, CAPACITY, FAN_OUT_LIMIT, MAX_MEMORY_BYTES);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		index.bindTo(registry);
+		long[] readers = random.ints(users * ACTIVE_READER_PERCENT / 100L, 1, users + 1).asLongStream().toArray();
+
+		long eagerFanOut = 0;
+		long popularEvents = 0;
+		long maxMemory = 0;
+		long[] readNanos = new long[EVENTS / BATCH_SIZE * READS_PER_BATCH];
+		int reads = 0;
+		long nextEventId = 1;
+		start = System.nanoTime();
+		for (int batch = 0; batch < EVENTS / BATCH_SIZE; batch++) {
+			List<Event> events = new ArrayList<>(BATCH_SIZE);
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				long authorId = zipfRank(zipf, random);
+				Event event = new Event(authorId, 1L, EventType.LIKE, OperationType.ADD, Instant.ofEpochMilli(nextEventId));
+				event.setId(nextEventId++);
+				eventsByAuthor.computeIfAbsent(authorId, id -> new ArrayList<>()).add(event.getId());
+				events.add(event);
+
+				int followers = graph.getFollowerCount(authorId);
+				if (followers > FAN_OUT_LIMIT) {
+					popularEvents++;
+				} else {
+					eagerFanOut += followers;
+				}
+			}
+			index.onWritten(events);
+
+			for (int i = 0; i < READS_PER_BATCH; i++) {
+				long readerId = readers[random.nextInt(readers.length)];
+				long readStart = System.nanoTime();
+				index.page(readerId, null, PAGE_SIZE);
+				readNanos[reads++] = System.nanoTime() - readStart;
+			}
+			maxMemory = Math.max(maxMemory, index.estimateMemoryBytes());
+		}
+		long writeMillis = (System.nanoTime() - start) / 1_000_000;
+
+		// Страница совпадает с новейшими событиями тех, кого пользователь добавил в друзья
+		for (int i = 0; i < CHECKED_READS; i++) {
+			long readerId = readers[random.nextInt(readers.length)];
+			List<Long> expected = recent(graph.getFriends(readerId), PAGE_SIZE).stream().map(entry -> entry[0]).toList();
+			assertThat(index.page(readerId, null, PAGE_SIZE)).extracting(EventCursor::id).isEqualTo(expected);
+		}
+
+		Arrays.sort(readNanos);
+		double p50 = readNanos[reads / 2] / 1_000_000.0;
+		double p99 = readNanos[reads * 99 / 100] / 1_000_000.0;
+		double fannedOut = counter(registry, "filmorate.timeline.fanout", "mode", "write");
+		double deferred = counter(registry, "filmorate.timeline.fanout", "mode", "read");
+		double evictions = counter(registry, "filmorate.timeline.index.evictions", "reason", "memory");
+		double loads = registry.get("filmorate.timeline.index.loads").functionCounter().count();
+
+		log.info("Граф: пользователей {}, подписок {}, максимум подписчиков {}, популярных авторов {}, построен за {} мс",
+			users, graph.getEdgeCount(), maxFollowers, popular, buildMillis);
+		log.info("Запись {} событий за {} мс: раскладок {} (при раскладке всем подписчикам {}), отложено до чтения {}",
+			EVENTS, writeMillis, (long) fannedOut, eagerFanOut, (long) deferred);
+		log.info("Память: максимум {} байт при лимите {}, буферов {}, загрузок {}, вытеснений {}",
+			maxMemory, MAX_MEMORY_BYTES, index.getRingCount(), (long) loads, (long) evictions);
+		log.info("Чтение страницы из {}: p50 {} мс, p99 {} мс",
+			PAGE_SIZE, String.format("%.3f", p50), String.format("%.3f", p99));
+
+		assertThat(popular).isPositive();
+		assertThat(deferred).isEqualTo(popularEvents);
+		// Раскладка идёт только в буферы читающих, поэтому намного меньше раскладки всем подписчикам
+		assertThat(fannedOut).isLessThan(eagerFanOut / 2.0);
+		assertThat(maxMemory).isLessThanOrEqualTo(MAX_MEMORY_BYTES);
+		assertThat(evictions).isPositive();
+		// Границы с большим запасом: проверяется порядок величины, а не конкретная машина
+		assertThat(p50).isLessThan(5.0);
+		assertThat(p99).isLessThan(50.0);
+	}
+
+	/**
+	 * Каждый пользователь добавляет в друзья FOLLOWS_PER_USER авторов, выбранных по закону Ципфа.
+	 * Пользователи перебираются по возрастанию id, так что списки подписчиков растут с конца.
+	 */
+	private static SocialGraphIndex zipfGraph(int users, double[] zipf, Random random) {
+		SocialGraphIndex graph = new SocialGraphIndex(null);
+		for (long userId = 1; userId <= users; userId++) {
+			long[] friends = new long[FOLLOWS_PER_USER];
+			for (int i = 0; i < FOLLOWS_PER_USER; i++) {
+				friends[i] = zipfRank(zipf, random);
+			}
+			Arrays.sort(friends);
+			for (long friendId : friends) {
+				if (friendId != userId) {
+					graph.addFriend(userId, friendId);
+				}
+			}
+		}
+		return graph;
+	}
+
+	private static double[] zipfCumulative(int users) {
+		double[] cumulative = new double[users];
+		double sum = 0;
+		for (int rank = 0; rank < users; rank++) {
+			sum += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+			cumulative[rank] = sum;
+		}
+		for (int rank = 0; rank < users; rank++) {
+			cumulative[rank] /= sum;
+		}
+		return cumulative;
+	}
+
+	/**
+	 * Пользователь с рангом по закону Ципфа; id совпадает с рангом, самый популярный — 1.
+	 */
+	private static long zipfRank(double[] cumulative, Random random) {
+		int position = Arrays.binarySearch(cumulative, random.nextDouble());
+		return (position < 0 ? -position - 1 : position) + 1;
+	}
+
+	/**
+	 * Замена запроса к таблице events: новейшие limit событий авторов, от новых к старым.
+	 */
+	private List<long[]> recent(long[] authorIds, int limit) {
+		List<long[]> recent = new ArrayList<>();
+		for (long authorId : authorIds) {
+			List<Long> events = eventsByAuthor.getOrDefault(authorId, List.of());
+			for (int i = events.size() - 1; i >= Math.max(0, events.size() - limit); i--) {
+				recent.add(new long[] {events.get(i), authorId});
+			}
+		}
+		recent.sort((left, right) -> Long.compare(right[0], left[0]));
+		return recent.size() > limit ? recent.subList(0, limit) : recent;
+	}
+
+	private static double counter(SimpleMeterRegistry registry, String name, String tag, String value) {
+		return registry.get(name).tag(tag, value).functionCounter().count();
+	}
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.index.social;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventCursor;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.OperationType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimelineIndexTest {
+	private SocialGraphIndex socialGraphIndex;
+	private TimelineIndex timelineIndex;
+	// Записанные события (id, автор) вместо таблицы events и число загрузок лент из неё
+	private final List<long[]> written = new ArrayList<>();
+	private int loads;
+	private long nextEventId = 1;
+
+	@BeforeEach
+	public void createIndex() {
+		socialGraphIndex = new SocialGraphIndex(null);
+		// у пользователя 10 три подписчика — больше порога, его события раскладываются при чтении
+		socialGraphIndex.addFriend(1L, 2L);
+		socialGraphIndex.addFriend(1L, 10L);
+		socialGraphIndex.addFriend(3L, 10L);
+		socialGraphIndex.addFriend(4L, 10L);
+		socialGraphIndex.addFriend(3L, 2L);
+		timelineIndex = new TimelineIndex(socialGraphIndex, this::recent, 3, 2, Long.MAX_VALUE);
+	}
+
+	@Test
+	void mergesFannedOutAndPopularEvents() {
+		write(2L, 100);
+		write(10L, 101);
+		write(2L, 102);
+		write(5L, 103);
+
+		assertThat(ids(timelineIndex.page(1L, null, 10))).containsExactly(3L, 2L, 1L);
+		assertThat(ids(timelineIndex.page(4L, null, 10))).containsExactly(2L);
+		assertThat(ids(timelineIndex.page(1L, null, 2))).containsExactly(3L, 2L);
+		assertThat(ids(timelineIndex.page(1L, new EventCursor(3), 10))).containsExactly(2L, 1L);
+	}
+
+	@Test
+	void ringKeepsNewestEntriesAndSkipsRemovedFriends() {
+		for (int i = 0; i < 5; i++) {
+			write(2L, 100 + i);
+		}
+		assertThat(ids(timelineIndex.page(3L, null, 10))).containsExactly(5L, 4L, 3L);
+
+		socialGraphIndex.removeFriend(3L, 2L);
+		assertThat(timelineIndex.page(3L, null, 10)).isEmpty();
+		// буфер есть только у читавшего ленту, подписчик 1 получит события при первом чтении
+		assertThat(timelineIndex.getRingCount()).isEqualTo(1);
+		assertThat(timelineIndex.estimateMemoryBytes()).isPositive();
+		assertThat(ids(timelineIndex.page(1L, null, 10))).containsExactly(5L, 4L, 3L);
+	}
+
+	@Test
+	void fansOutToLoadedTimelinesOnly() {
+		write(2L, 100);
+		assertThat(ids(timelineIndex.page(1L, null, 10))).containsExactly(1L);
+		assertThat(loads).isEqualTo(1);
+
+		write(2L, 101);
+		assertThat(ids(timelineIndex.page(1L, null, 10))).containsExactly(2L, 1L);
+		assertThat(loads).isEqualTo(1);
+		assertThat(ids(timelineIndex.page(3L, null, 10))).containsExactly(2L, 1L);
+		assertThat(loads).isEqualTo(2);
+	}
+
+	@Test
+	void evictsLeastRecentlyReadTimelinesOverMemoryLimit() {
+		for (long followerId = 20; followerId < 30; followerId++) {
+			socialGraphIndex.addFriend(followerId, 5L);
+		}
+		write(5L, 100);
+		TimelineIndex bounded = new TimelineIndex(socialGraphIndex, this::recent, 3, 100, 1000);
+		for (long followerId = 20; followerId < 30; followerId++) {
+			bounded.page(followerId, null, 10);
+		}
+		assertThat(loads).isEqualTo(10);
+		assertThat(bounded.estimateMemoryBytes()).isLessThanOrEqualTo(1000);
+		assertThat(bounded.getRingCount()).isLessThan(10);
+
+		// последний прочитанный остаётся в памяти, первый загружается заново
+		bounded.page(29L, null, 10);
+		assertThat(loads).isEqualTo(10);
+		assertThat(ids(bounded.page(20L, null, 10))).containsExactly(1L);
+		assertThat(loads).isEqualTo(11);
+	}
+
+	@Test
+	void discardedEventsAreLoadedOnNextRead() {
+		timelineIndex.page(1L, null, 10);
+		Event event = event(2L, 100);
+		written.add(new long[] {event.getId(), 2L});
+		timelineIndex.discard(List.of(event));
+
+		assertThat(timelineIndex.getRingCount()).isZero();
+		assertThat(ids(timelineIndex.page(1L, null, 10))).containsExactly(1L);
+		assertThat(loads).isEqualTo(2);
+	}
+
+	private void write(Long authorId, long timestamp) {
+		Event event = event(authorId, timestamp);
+		written.add(new long[] {event.getId(), authorId});
+		timelineIndex.onWritten(List.of(event));
+	}
+
+	private Event event(Long authorId, long timestamp) {
+		Event event = new Event(authorId, 1L, EventType.LIKE, OperationType.ADD, Instant.ofEpochMilli(timestamp));
+		event.setId(nextEventId++);
+		return event;
+	}
+
+	private List<long[]> recent(long[] authorIds, int limit) {
+		loads++;
+		return written.stream()
+			.filter(entry -> Arrays.stream(authorIds).anyMatch(authorId -> authorId == entry[1]))
+			.sorted(Comparator.comparingLong((long[] entry) -> entry[0]).reversed())
+			.limit(limit)
+			.toList();
+	}
+
+	private static List<Long> ids(List<EventCursor> cursors) {
+		return cursors.stream().map(EventCursor::id).toList();
+	}
+}
@@ -0,0 +1,194 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.StatementCounter;
+import ru.yandex.practicum.filmorate.dto.FeedPageDto;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.social.SocialGraphIndex;
+import ru.yandex.practicum.filmorate.index.social.TimelineIndex;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.OperationType;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.event.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.event.EventWriter;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.validation.Validation;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+@Import(StatementCounter.class)
+class EventServiceTest {
+	private static final int EVENTS = 250;
+
+	@Autowired
+	private EventService eventService;
+	@Autowired
+	private EventStorage eventStorage;
+	@Autowired
+	private EventDbStorage eventDbStorage;
+	@Autowired
+	private Validation validation;
+	@Autowired
+	private UserDbStorage userStorage;
+	@Autowired
+	private SocialGraphIndex socialGraphIndex;
+	@Autowired
+	private TimelineIndex timelineIndex;
+	@Autowired
+	private JdbcTemplate jdbc;
+	@Autowired
+	private StatementCounter statements;
+	private Long userId;
+
+	@BeforeEach
+	void createEvents() {
+		userId = userStorage.createUser(new User("feed@mail.ru", "feed", "feed", LocalDate.of(1990, 1, 1))).getId();
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < EVENTS; i++) {
+			// по два события на одну миллисекунду, порядок внутри — по id
+			events.add(new Event(userId, (long) i, EventType.LIKE, OperationType.ADD, Instant.ofEpochMilli(1000 + i / 2)));
+		}
+		eventStorage.createEvents(events);
+	}
+
+	@Test
+	void pagesBackwardsFromLatestEvents() {
+		statements.reset();
+		FeedPageDto latest = eventService.getFeed(userId, 100, null, null);
+
+		assertThat(statements.getCount()).isEqualTo(2);
+		assertThat(latest.events()).extracting(Event::getEntityId).startsWith(150L).endsWith(249L).isSorted();
+		assertThat(latest.nextCursor()).isNull();
+
+		FeedPageDto older = eventService.getFeed(userId, 100, latest.prevCursor(), null);
+		FeedPageDto oldest = eventService.getFeed(userId, 100, older.prevCursor(), null);
+		assertThat(older.events()).extracting(Event::getEntityId).startsWith(50L).endsWith(149L);
+		assertThat(oldest.events()).extracting(Event::getEntityId).startsWith(0L).endsWith(49L);
+		assertThat(oldest.prevCursor()).isNull();
+	}
+
+	@Test
+	void pollsOnlyNewEventsAfterCursor() {
+		FeedPageDto first = eventService.getFeed(userId, 10, null, null);
+		FeedPageDto empty = eventService.getFeed(userId, 10, null, first.lastCursor());
+		assertThat(empty.events()).isEmpty();
+		assertThat(empty.lastCursor()).isEqualTo(first.lastCursor());
+
+		eventStorage.createEvents(List.of(
+			new Event(userId, 1000L, EventType.FRIEND, OperationType.ADD, Instant.ofEpochMilli(1124)),
+			new Event(userId, 1001L, EventType.FRIEND, OperationType.REMOVE, Instant.ofEpochMilli(2000))));
+		FeedPageDto fresh = eventService.getFeed(userId, 1, null, first.lastCursor());
+		assertThat(fresh.events()).extracting(Event::getEntityId).containsExactly(1000L);
+		assertThat(eventService.getFeed(userId, 10, null, fresh.nextCursor()).events())
+			.extracting(Event::getEntityId).containsExactly(1001L);
+	}
+
+	@Test
+	void pollsEventsWrittenWithOlderTimestamp() {
+		FeedPageDto first = eventService.getFeed(userId, 10, null, null);
+
+		// время события задаётся до записи, поэтому позднее записанное может оказаться старше
+		eventStorage.createEvent(new Event(userId, 1000L, EventType.LIKE, OperationType.ADD, Instant.ofEpochMilli(1)));
+		assertThat(eventService.getFeed(userId, 10, null, first.lastCursor()).events())
+			.extracting(Event::getEntityId).containsExactly(1000L);
+		assertThat(eventService.getFeed(userId, 10, null, "1124:" + first.lastCursor()).events())
+			.extracting(Event::getEntityId).containsExactly(1000L);
+	}
+
+	@Test
+	void timelineMergesFriendsEventsInOneQuery() {
+		Long followerId = userStorage.createUser(new User("follower@mail.ru", "follower", "follower",
+			LocalDate.of(1990, 1, 1))).getId();
+		socialGraphIndex.addFriend(followerId, userId);
+		try {
+			Event fresh = new Event(userId, 500L, EventType.REVIEW, OperationType.ADD, Instant.ofEpochMilli(5000));
+			// первое чтение загружает ленту из последних событий друзей
+			assertThat(eventService.getTimeline(followerId, 10, null).events())
+				.extracting(Event::getEntityId).startsWith(240L).endsWith(249L);
+			eventStorage.createEvents(List.of(fresh));
+			timelineIndex.onWritten(List.of(fresh));
+
+			statements.reset();
+			FeedPageDto timeline = eventService.getTimeline(followerId, 2, null);
+
+			assertThat(statements.getCount()).isEqualTo(2);
+			assertThat(timeline.events()).extracting(Event::getEntityId).containsExactly(249L, 500L);
+			assertThat(eventService.getTimeline(userId, 10, null).events()).isEmpty();
+		} finally {
+			socialGraphIndex.removeUser(followerId);
+			timelineIndex.removeUser(followerId);
+		}
+	}
+
+	@Test
+	void overflowingFanOutFallsBackToLoadOnRead() {
+		Long followerId = userStorage.createUser(new User("overflow@mail.ru", "overflow", "overflow",
+			LocalDate.of(1990, 1, 1))).getId();
+		socialGraphIndex.addFriend(followerId, userId);
+		CountDownLatch release = new CountDownLatch(1);
+		ThreadPoolExecutor fanOut = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+		EventWriter writer = new EventWriter(eventStorage, EventWriter.Mode.SYNC, 1, 1, Duration.ZERO, Duration.ZERO);
+		EventService service = new EventService(eventDbStorage, writer, timelineIndex, validation, 10, 10, fanOut);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		service.bindTo(registry);
+		try {
+			service.getTimeline(followerId, 1, null);
+			// раскладка занята, в очереди помещается один пакет
+			fanOut.execute(() -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			Event queued = new Event(userId, 500L, EventType.REVIEW, OperationType.ADD, Instant.ofEpochMilli(5000));
+			Event dropped = new Event(userId, 501L, EventType.REVIEW, OperationType.ADD, Instant.ofEpochMilli(5001));
+			eventStorage.createEvents(List.of(queued, dropped));
+			service.onWritten(List.of(queued));
+			service.onWritten(List.of(dropped));
+
+			assertThat(registry.get("filmorate.timeline.fanout.queue").gauge().value()).isEqualTo(1);
+			assertThat(registry.get("filmorate.timeline.fanout.dropped").functionCounter().count()).isEqualTo(1);
+			release.countDown();
+			// сброшенная лента загружается заново и содержит оба события
+			assertThat(service.getTimeline(followerId, 2, null).events())
+				.extracting(Event::getEntityId).containsExactly(500L, 501L);
+		} finally {
+			release.countDown();
+			service.shutdown();
+			socialGraphIndex.removeUser(followerId);
+			timelineIndex.removeUser(followerId);
+		}
+	}
+
+	@Test
+	void feedQueryUsesCompositeIndex() {
+		String plan = jdbc.queryForObject("EXPLAIN SELECT id FROM events WHERE user_id = 1 "
+			+ "AND id < 7 ORDER BY id DESC LIMIT 10", String.class);
+
+		assertThat(plan).containsIgnoringCase("events_user_id_idx");
+		assertThatThrownBy(() -> eventService.getFeed(userId, 10, "abc", null)).isInstanceOf(ValidationException.class);
+	}
+}
@@ -0,0 +1,190 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventCursor;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.OperationType;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.event.EventWriter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FeedStreamServiceTest {
+	private final MemoryStorage storage = new MemoryStorage();
+	private EventWriter writer;
+	private FeedStreamService feedStreamService;
+
+	@BeforeEach
+	void createService() {
+		writer = new EventWriter(storage, EventWriter.Mode.SYNC, 10, 10, Duration.ofMillis(1),
+			Duration.ofSeconds(5));
+		feedStreamService = new FeedStreamService(storage, writer, null, 4, Duration.ofMinutes(1), Duration.ofMinutes(1));
+	}
+
+	@AfterEach
+	void shutdown() {
+		feedStreamService.shutdown();
+	}
+
+	@Test
+	void pushesOnlyOwnEventsAfterTheyAreWritten() {
+		RecordingEmitter emitter = new RecordingEmitter(null);
+		feedStreamService.subscribe(1L, null, emitter);
+
+		writer.write(event(1L, 10L));
+		writer.write(event(2L, 20L));
+		writer.write(event(1L, 11L));
+
+		waitFor(() -> emitter.entityIds().size() == 2);
+		assertThat(emitter.entityIds()).containsExactly(10L, 11L);
+		assertThat(feedStreamService.getConnectionCount()).isEqualTo(1);
+	}
+
+	@Test
+	void resumesFromLastEventIdWithoutDuplicates() {
+		writer.write(event(1L, 10L));
+		Event seen = storage.events.getLast();
+		writer.write(event(1L, 11L));
+		writer.write(event(1L, 12L));
+
+		RecordingEmitter emitter = new RecordingEmitter(null);
+		feedStreamService.subscribe(1L, EventCursor.of(seen), emitter);
+		writer.write(event(1L, 13L));
+
+		waitFor(() -> emitter.entityIds().size() >= 3);
+		assertThat(emitter.entityIds()).containsExactly(11L, 12L, 13L);
+	}
+
+	@Test
+	void evictsSlowConsumerAndCountsDroppedEvents() {
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingEmitter slow = new RecordingEmitter(release);
+		feedStreamService.subscribe(1L, null, slow);
+
+		// первое событие держит поток отправки, следующие заполняют буфер из четырёх
+		for (long i = 0; i < 6; i++) {
+			writer.write(event(1L, i));
+		}
+		release.countDown();
+
+		assertThat(feedStreamService.getConnectionCount()).isZero();
+		assertThat(feedStreamService.getDroppedCount()).isEqualTo(5);
+	}
+
+	@Test
+	void stalledConsumersAreEvictedWithoutBlockingOthers() {
+		feedStreamService.shutdown();
+		feedStreamService = new FeedStreamService(storage, writer, null, 4, Duration.ofMinutes(1),
+			Duration.ofMillis(100));
+		// больше зависших клиентов, чем было потоков отправки в прежнем пуле
+		for (int i = 0; i < 8; i++) {
+			feedStreamService.subscribe(1L, null, new RecordingEmitter(new CountDownLatch(1)));
+		}
+		RecordingEmitter healthy = new RecordingEmitter(null);
+		feedStreamService.subscribe(1L, null, healthy);
+
+		writer.write(event(1L, 10L));
+		waitFor(() -> healthy.entityIds().size() == 1);
+		assertThat(healthy.entityIds()).containsExactly(10L);
+
+		waitFor(() -> feedStreamService.getConnectionCount() == 1);
+		assertThat(feedStreamService.getConnectionCount()).isEqualTo(1);
+		writer.write(event(1L, 11L));
+		waitFor(() -> healthy.entityIds().size() == 2);
+		assertThat(healthy.entityIds()).containsExactly(10L, 11L);
+	}
+
+	private static void waitFor(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.onSpinWait();
+		}
+	}
+
+	private static Event event(Long userId, Long entityId) {
+		return new Event(userId, entityId, EventType.LIKE, OperationType.ADD, Instant.ofEpochMilli(1000));
+	}
+
+	private static class RecordingEmitter extends SseEmitter {
+		private final List<Event> events = new CopyOnWriteArrayList<>();
+		private final CountDownLatch release;
+
+		private RecordingEmitter(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (release != null) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			builder.build().stream()
+				.filter(part -> part.getData() instanceof Event)
+				.forEach(part -> events.add((Event) part.getData()));
+		}
+
+		private List<Long> entityIds() {
+			return events.stream().map(Event::getEntityId).toList();
+		}
+	}
+
+	private static class MemoryStorage implements EventStorage {
+		private final List<Event> events = new CopyOnWriteArrayList<>();
+
+		@Override
+		public Event createEvent(Event event) {
+			event.setId(events.size() + 1L);
+			events.add(event);
+			return event;
+		}
+
+		@Override
+		public void createEvents(List<Event> batch) {
+			batch.forEach(this::createEvent);
+		}
+
+		@Override
+		public List<Event> getEvents(Long userId) {
+			return events.stream().filter(event -> event.getUserId().equals(userId)).toList();
+		}
+
+		@Override
+		public List<Event> getEventsAfter(Long userId, EventCursor after, EventCursor before, int limit) {
+			return getEvents(userId).stream()
+				.filter(event -> EventCursor.of(event).compareTo(after) > 0)
+				.limit(limit)
+				.toList();
+		}
+
+		@Override
+		public List<Event> getEventsBefore(Long userId, EventCursor before, int limit) {
+			return List.of();
+		}
+
+		@Override
+		public List<Event> getEventsByIds(List<Long> ids) {
+			return events.stream().filter(event -> ids.contains(event.getId())).toList();
+		}
+
+		@Override
+		public List<Event> getEvents() {
+			return events;
+		}
+	}
+}
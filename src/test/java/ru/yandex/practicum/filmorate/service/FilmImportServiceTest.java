@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.StatementCounter;
+import ru.yandex.practicum.filmorate.dto.FilmBatchResultDto;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@Import(StatementCounter.class)
+class FilmImportServiceTest {
+	private static final String FILM = "{\"name\":\"Film %d\",\"description\":\"Description\","
+		+ "\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1},"
+		+ "\"genres\":[{\"id\":1},{\"id\":2}],\"directors\":[{\"id\":%d}]}";
+
+	@Autowired
+	private FilmImportService filmImportService;
+	@Autowired
+	private FilmService filmService;
+	@Autowired
+	private DirectorStorage directorStorage;
+	@Autowired
+	private StatementCounter statements;
+	private Director director;
+
+	@BeforeEach
+	void createDirector() {
+		director = directorStorage.createDirector(new Director(null, "Director"));
+	}
+
+	@Test
+	void importsNdjsonInChunks() throws IOException {
+		StringBuilder ndjson = new StringBuilder();
+		for (int i = 0; i < 2500; i++) {
+			ndjson.append(FILM.formatted(i, director.getId())).append('\n');
+		}
+
+		statements.reset();
+		List<FilmBatchResultDto> results = filmImportService.importFilms(stream(ndjson.toString()));
+
+		assertThat(results).hasSize(2500).allSatisfy(result -> assertThat(result.id()).isNotNull());
+		// на каждую порцию из 1000 фильмов: проверка режиссёров, фильмы, жанры, режиссёры
+		assertThat(statements.getCount()).isEqualTo(3 * 4);
+		assertThat(filmService.getFilmById(results.getLast().id()).genres()).hasSize(2);
+	}
+
+	@Test
+	void reportsErrorsPerItem() throws IOException {
+		String json = "[" + String.join(",",
+			FILM.formatted(1, director.getId()),
+			"{\"name\":\"\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1}}",
+			FILM.formatted(2, 1000L),
+			"{\"name\":\"No genre\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1},\"genres\":[{\"id\":100}]}",
+			FILM.formatted(3, director.getId())) + "]";
+
+		List<FilmBatchResultDto> results = filmImportService.importFilms(stream(json));
+
+		assertThat(results).extracting(FilmBatchResultDto::index).containsExactly(0, 1, 2, 3, 4);
+		assertThat(results.get(0).id()).isNotNull();
+		assertThat(results.get(1).error()).isEqualTo("Название фильма не может быть пустым");
+		assertThat(results.get(2).error()).contains("[1000]");
+		assertThat(results.get(3).error()).contains("[100]");
+		assertThat(results.get(4).id()).isNotNull();
+	}
+
+	@Test
+	void skipsRecordWithBadValueAndStopsOnBrokenJson() throws IOException {
+		String ndjson = String.join("\n",
+			FILM.formatted(1, director.getId()),
+			"{\"name\":\"Bad date\",\"releaseDate\":\"01.01.2000\",\"duration\":90,\"mpa\":{\"id\":1}}",
+			FILM.formatted(2, director.getId()),
+			"{\"name\" \"Broken\"}",
+			FILM.formatted(3, director.getId()));
+
+		List<FilmBatchResultDto> results = filmImportService.importFilms(stream(ndjson));
+
+		assertThat(results).extracting(FilmBatchResultDto::index).containsExactly(0, 1, 2, 3);
+		assertThat(results.get(1).error()).startsWith("Некорректные данные");
+		assertThat(results.get(2).id()).isNotNull();
+		assertThat(results.get(3).error()).startsWith("Некорректный JSON");
+	}
+
+	private static InputStream stream(String body) {
+		return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+	}
+}
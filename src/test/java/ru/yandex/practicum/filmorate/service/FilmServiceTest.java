@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.StatementCounter;
+import ru.yandex.practicum.filmorate.dto.FilmDto;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.validation.Validation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+@Import(StatementCounter.class)
+class FilmServiceTest {
+	@Autowired
+	private FilmService filmService;
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private Validation validation;
+	@Autowired
+	private DirectorStorage directorStorage;
+	@Autowired
+	private JdbcTemplate jdbc;
+	@Autowired
+	private StatementCounter statements;
+	private Film film;
+
+	@BeforeEach
+	void createFilm() {
+		Set<Director> directors = new LinkedHashSet<>();
+		for (int i = 1; i <= 3; i++) {
+			directors.add(directorStorage.createDirector(new Director(null, "Director " + i)));
+		}
+
+		film = new Film("Name", "Description", LocalDate.of(2000, 1, 1), 100);
+		Mpa mpa = new Mpa();
+		mpa.setId(1);
+		film.setMpa(mpa);
+		film.setGenres(new LinkedHashSet<>(IntStream.rangeClosed(1, 6).mapToObj(id -> new Genre(id, null)).toList()));
+		film.setDirectors(directors);
+	}
+
+	@Test
+	void validationOfGenresAndDirectorsIsOneStatement() {
+		statements.reset();
+
+		validation.mpaById(film.getMpa().getId());
+		validation.genresByIds(film.getGenres());
+		validation.validateDirectors(film.getDirectors());
+
+		assertThat(statements.getCount()).isEqualTo(1);
+	}
+
+	@Test
+	void statementsPerFilmWrite() {
+		statements.reset();
+		FilmDto created = filmService.createFilm(film);
+		// проверка режиссёров, фильм, пакет жанров, пакет режиссёров
+		assertThat(statements.getCount()).isEqualTo(4);
+
+		film.setId(created.id());
+		film.setName("New name");
+		statements.reset();
+		filmService.updateFilm(film);
+		// проверка режиссёров, фильм, текущие связи — связи не изменились
+		assertThat(statements.getCount()).isEqualTo(3);
+	}
+
+	@Test
+	void onlyChangedAssociationsAreWritten() {
+		FilmDto created = filmService.createFilm(film);
+		film.setId(created.id());
+		film.getGenres().removeIf(genre -> genre.getId() > 4);
+		film.getDirectors().clear();
+
+		statements.reset();
+		FilmDto updated = filmService.updateFilm(film);
+
+		// фильм, текущие связи, пакет удаления жанров, пакет удаления режиссёров
+		assertThat(statements.getCount()).isEqualTo(4);
+		assertThat(filmService.getFilmById(updated.id()).genres()).hasSize(4);
+		assertThat(filmService.getFilmById(updated.id()).directors()).isEmpty();
+	}
+
+	@Test
+	void associationsDiffedAgainstDatabaseNotCache() {
+		FilmDto created = filmService.createFilm(film);
+		film.setId(created.id());
+		filmService.getFilmById(created.id());
+		// в кэше остался фильм со всеми жанрами, в базе их уже нет
+		jdbc.update("DELETE FROM film_genre WHERE film_id = ?", created.id());
+
+		filmService.updateFilm(film);
+
+		assertThat(filmService.getFilmById(created.id()).genres()).hasSize(6);
+	}
+
+	@Test
+	void bulkEditsWithoutAssociationChanges() {
+		int filmCount = 100;
+		List<Film> films = new ArrayList<>();
+		for (int i = 0; i < filmCount; i++) {
+			Film copy = new Film("Film " + i, film.getDescription(), film.getReleaseDate(), film.getDuration());
+			copy.setMpa(film.getMpa());
+			copy.setGenres(film.getGenres());
+			copy.setDirectors(film.getDirectors());
+			copy.setId(filmService.createFilm(copy).id());
+			films.add(copy);
+		}
+
+		statements.reset();
+		for (Film edited : films) {
+			edited.setDescription("Edited");
+			filmService.updateFilm(edited);
+		}
+
+		assertThat(statements.getCount()).isEqualTo(3 * filmCount);
+	}
+
+	@Test
+	void similarFilmsRankedByCoLikesThenSharedGenresAndDirectors() {
+		Long base = createFilm(Set.of(1, 2));
+		Long oneGenre = createFilm(Set.of(1));
+		Long twoGenres = createFilm(Set.of(1, 2));
+		Long noGenres = createFilm(Set.of());
+		Long first = userService.createUser(user("first")).id();
+		Long second = userService.createUser(user("second")).id();
+
+		for (Long filmId : List.of(base, oneGenre, twoGenres)) {
+			filmService.addLike(filmId, first);
+		}
+		filmService.addLike(base, second);
+		filmService.addLike(noGenres, second);
+		filmService.addLike(twoGenres, second);
+
+		assertThat(filmService.getSimilarFilms(base, 10)).extracting(FilmDto::id)
+			.containsExactly(twoGenres, oneGenre, noGenres);
+		assertThat(filmService.getSimilarFilms(base, 1)).extracting(FilmDto::id).containsExactly(twoGenres);
+
+		filmService.deleteLike(twoGenres, first);
+		filmService.deleteLike(twoGenres, second);
+		assertThat(filmService.getSimilarFilms(base, 10)).extracting(FilmDto::id).containsExactly(oneGenre, noGenres);
+	}
+
+	@Test
+	void allUnknownIdsReportedAtOnce() {
+		film.getGenres().add(new Genre(100, null));
+		film.getGenres().add(new Genre(101, null));
+		film.getDirectors().add(new Director(1000L, "Unknown"));
+		film.getDirectors().add(new Director(1001L, "Unknown"));
+
+		assertThatThrownBy(() -> validation.genresByIds(film.getGenres()))
+			.isInstanceOf(NotFoundException.class)
+			.hasMessageContaining("[100, 101]");
+		assertThatThrownBy(() -> validation.validateDirectors(film.getDirectors()))
+			.isInstanceOf(NotFoundException.class)
+			.hasMessageContaining("[1000, 1001]");
+	}
+
+	private Long createFilm(Set<Integer> genreIds) {
+		Film copy = new Film("Film", film.getDescription(), film.getReleaseDate(), film.getDuration());
+		copy.setMpa(film.getMpa());
+		copy.setGenres(new LinkedHashSet<>(genreIds.stream().map(id -> new Genre(id, null)).toList()));
+		copy.setDirectors(new LinkedHashSet<>());
+		return filmService.createFilm(copy).id();
+	}
+
+	private static User user(String login) {
+		return new User(login + "@mail.ru", login, login, LocalDate.of(1990, 1, 1));
+	}
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.StatementCounter;
+import ru.yandex.practicum.filmorate.dto.UserDto;
+import ru.yandex.practicum.filmorate.index.social.SocialGraphIndex;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.friend.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@Import(StatementCounter.class)
+class UserServiceTest {
+	private static final int FRIENDS = 2000;
+
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private UserDbStorage userStorage;
+	@Autowired
+	private FriendStorage friendStorage;
+	@Autowired
+	private SocialGraphIndex socialGraphIndex;
+	@Autowired
+	private StatementCounter statements;
+	private final List<Long> createdIds = new ArrayList<>();
+	private Long userId;
+	private Long otherId;
+	private List<Long> mutualIds;
+
+	@BeforeEach
+	void createFriends() {
+		userId = createUser("user");
+		otherId = createUser("other");
+		mutualIds = new ArrayList<>();
+		for (int i = 0; i < FRIENDS; i++) {
+			Long friendId = createUser("friend" + i);
+			addFriend(userId, friendId);
+			// у второго пользователя в друзьях каждый второй
+			if (i % 2 == 0) {
+				addFriend(otherId, friendId);
+				mutualIds.add(friendId);
+			}
+		}
+	}
+
+	@AfterEach
+	void clearGraph() {
+		// транзакция откатывается, а индекс живёт в контексте — убираем за собой
+		createdIds.forEach(socialGraphIndex::removeUser);
+	}
+
+	@Test
+	void friendListIsOneQueryRegardlessOfSize() {
+		statements.reset();
+		List<UserDto> friends = userService.getListFriends(userId);
+
+		// проверка пользователя и один запрос друзей вместе с их данными
+		assertThat(statements.getCount()).isEqualTo(2);
+		assertThat(friends).hasSize(FRIENDS);
+		assertThat(friends.getFirst().login()).isEqualTo("friend0");
+	}
+
+	@Test
+	void mutualFriendsAreIntersectedInIndex() {
+		statements.reset();
+		List<UserDto> mutual = userService.getMutualFriends(userId, otherId);
+
+		// две проверки пользователей и один запрос данных общих друзей
+		assertThat(statements.getCount()).isEqualTo(3);
+		assertThat(mutual).extracting(UserDto::id).containsExactlyElementsOf(mutualIds);
+	}
+
+	@Test
+	void suggestionsAreRankedByMutualFriends() {
+		Long closeId = createUser("close");
+		Long farId = createUser("far");
+		addFriend(closeId, mutualIds.get(0));
+		addFriend(closeId, mutualIds.get(1));
+		addFriend(farId, mutualIds.get(2));
+
+		statements.reset();
+		List<UserDto> suggestions = userService.getFriendSuggestions(userId, 2);
+
+		assertThat(statements.getCount()).isEqualTo(2);
+		// у otherId общих друзей больше всех, затем closeId
+		assertThat(suggestions).extracting(UserDto::id).containsExactly(otherId, closeId);
+	}
+
+	private void addFriend(Long id, Long friendId) {
+		friendStorage.addFriends(id, friendId, true);
+		socialGraphIndex.addFriend(id, friendId);
+	}
+
+	private Long createUser(String login) {
+		Long id = userStorage.createUser(new User(login + "@mail.ru", login, login, LocalDate.of(1990, 1, 1))).getId();
+		createdIds.add(id);
+		return id;
+	}
+}
@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventCursor;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.OperationType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventWriterTest {
+	private final RecordingStorage storage = new RecordingStorage();
+
+	@Test
+	void groupCommitWaitsForBatchedWrite() throws InterruptedException {
+		EventWriter writer = new EventWriter(storage, EventWriter.Mode.GROUP_COMMIT, 100, 50, Duration.ofMillis(20),
+			Duration.ofSeconds(5));
+		writer.start();
+
+		AtomicInteger unwritten = new AtomicInteger();
+		ExecutorService callers = Executors.newFixedThreadPool(8);
+		for (long i = 0; i < 200; i++) {
+			long entityId = i;
+			callers.execute(() -> {
+				writer.write(event(entityId));
+				// к возврату событие уже записано
+				if (storage.events.stream().noneMatch(event -> event.getEntityId() == entityId)) {
+					unwritten.incrementAndGet();
+				}
+			});
+		}
+		callers.shutdown();
+		assertThat(callers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		writer.shutdown();
+
+		assertThat(unwritten).hasValue(0);
+		assertThat(storage.events).hasSize(200);
+		assertThat(storage.batches).hasSizeLessThan(200).allSatisfy(size -> assertThat(size).isLessThanOrEqualTo(50));
+	}
+
+	@Test
+	void asyncQueueIsDrainedOnShutdown() {
+		EventWriter writer = new EventWriter(storage, EventWriter.Mode.ASYNC, 1000, 100, Duration.ofSeconds(1),
+			Duration.ofSeconds(5));
+		writer.start();
+		for (long i = 0; i < 500; i++) {
+			writer.write(event(i));
+		}
+		writer.shutdown();
+
+		assertThat(storage.events).hasSize(500);
+		assertThat(writer.getQueueDepth()).isZero();
+		assertThat(writer.getWrittenCount()).isEqualTo(500);
+	}
+
+	@Test
+	void failedEventIsReportedToItsCaller() {
+		EventWriter writer = new EventWriter(storage, EventWriter.Mode.GROUP_COMMIT, 10, 10, Duration.ofMillis(1),
+			Duration.ofSeconds(5));
+		writer.start();
+
+		writer.write(event(1L));
+		assertThatThrownBy(() -> writer.write(event(RecordingStorage.BROKEN_ENTITY)))
+			.isInstanceOf(IllegalStateException.class);
+		writer.shutdown();
+
+		assertThat(storage.events).extracting(Event::getEntityId).containsExactly(1L);
+	}
+
+	@Test
+	void deadFlusherFailsWaitingCallerAndFallsBackToInlineWrite() {
+		EventWriter writer = new EventWriter(storage, EventWriter.Mode.GROUP_COMMIT, 10, 10, Duration.ofMillis(1),
+			Duration.ofSeconds(5));
+		writer.start();
+
+		assertThatThrownBy(() -> writer.write(event(RecordingStorage.FATAL_ENTITY)))
+			.isInstanceOf(InternalServerException.class);
+		writer.write(event(1L));
+		writer.shutdown();
+
+		assertThat(storage.events).extracting(Event::getEntityId).containsExactly(1L);
+		assertThat(storage.batches).isEmpty();
+	}
+
+	@Test
+	void syncModeWritesInCallerThread() {
+		EventWriter writer = new EventWriter(storage, EventWriter.Mode.SYNC, 10, 10, Duration.ofMillis(1),
+			Duration.ofSeconds(5));
+		writer.start();
+		writer.write(event(1L));
+
+		assertThat(storage.events).hasSize(1);
+		assertThat(storage.batches).isEmpty();
+		writer.shutdown();
+	}
+
+	private static Event event(long entityId) {
+		return new Event(1L, entityId, EventType.LIKE, OperationType.ADD, Instant.now());
+	}
+
+	private static class RecordingStorage implements EventStorage {
+		private static final long BROKEN_ENTITY = -1L;
+		private static final long FATAL_ENTITY = -2L;
+
+		private final List<Event> events = new CopyOnWriteArrayList<>();
+		private final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		public Event createEvent(Event event) {
+			if (event.getEntityId() == BROKEN_ENTITY) {
+				throw new IllegalStateException("Нарушено ограничение");
+			}
+			events.add(event);
+			return event;
+		}
+
+		@Override
+		public void createEvents(List<Event> batch) {
+			if (batch.stream().anyMatch(event -> event.getEntityId() == FATAL_ENTITY)) {
+				throw new Error("Фатальная ошибка");
+			}
+			if (batch.stream().anyMatch(event -> event.getEntityId() == BROKEN_ENTITY)) {
+				throw new IllegalStateException("Нарушено ограничение");
+			}
+			batches.add(batch.size());
+			events.addAll(batch);
+		}
+
+		@Override
+		public List<Event> getEvents(Long userId) {
+			return List.copyOf(events);
+		}
+
+		@Override
+		public List<Event> getEventsAfter(Long userId, EventCursor after, EventCursor before, int limit) {
+			return List.of();
+		}
+
+		@Override
+		public List<Event> getEventsBefore(Long userId, EventCursor before, int limit) {
+			return List.of();
+		}
+
+		@Override
+		public List<Event> getEventsByIds(List<Long> ids) {
+			return events.stream().filter(event -> ids.contains(event.getId())).toList();
+		}
+
+		@Override
+		public List<Event> getEvents() {
+			return List.copyOf(events);
+		}
+	}
+}
@@ -5,11 +5,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.director.DirectorDbStorage;
 import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
 import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
@@ -17,9 +21,12 @@ import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.MpaRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataRegistry;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -27,15 +34,19 @@ import java.util.Set;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @JdbcTest
-@Import({FilmDbStorage.class, FilmRowMapper.class, MpaDbStorage.class, MpaRowMapper.class,
-	UserDbStorage.class, UserRowMapper.class, LikeDbStorage.class, GenreDbStorage.class, GenreRowMapper.class})
+@Import({FilmDbStorage.class, FilmRowMapper.class, FilmAssembler.class, FilmCache.class, MpaDbStorage.class, MpaRowMapper.class,
+	UserDbStorage.class, UserRowMapper.class, LikeDbStorage.class, GenreDbStorage.class, GenreRowMapper.class,
+	DirectorDbStorage.class, ReferenceDataRegistry.class})
 @AutoConfigureTestDatabase
+@AutoConfigureJson
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FilmDbStorageTest {
 	private final FilmDbStorage filmStorage;
 	private final UserDbStorage userStorage;
 	private final LikeDbStorage likeStorage;
 	private final GenreDbStorage genreStorage;
+	private final DirectorDbStorage directorStorage;
+	private final JdbcTemplate jdbc;
 	Film film;
 
 	@BeforeEach
@@ -63,6 +74,51 @@ class FilmDbStorageTest {
 			.contains("Name");
 	}
 
+	@Test
+	void findPage() {
+		Film second = filmStorage.createFilm(new Film("Second", "Description", LocalDate.of(2000, 1, 1), 90));
+		Film third = filmStorage.createFilm(new Film("Third", "Description", LocalDate.of(2001, 1, 1), 90));
+
+		List<Film> firstPage = filmStorage.findPage(null, 2);
+		List<Film> secondPage = filmStorage.findPage(firstPage.get(1).getId(), 2);
+
+		assertThat(firstPage)
+			.extracting(Film::getId)
+			.containsExactly(film.getId(), second.getId());
+		assertThat(secondPage)
+			.extracting(Film::getId)
+			.containsExactly(third.getId());
+	}
+
+	@Test
+	void streamAllInBoundedChunks() {
+		jdbc.update("""
+			INSERT INTO films (name, description, release_date, duration)
+			SELECT 'Film ' || X, 'Description', DATE '2000-01-01', 100 FROM SYSTEM_RANGE(1, 2500)
+			""");
+		List<Integer> chunkSizes = new ArrayList<>();
+		long[] lastId = {0};
+
+		filmStorage.streamAll(1000, films -> {
+			chunkSizes.add(films.size());
+			assertThat(films.getFirst().getId()).isGreaterThan(lastId[0]);
+			lastId[0] = films.getLast().getId();
+		});
+
+		assertThat(chunkSizes).containsExactly(1000, 1000, 501);
+	}
+
+	@Test
+	void getFilmsByIdsKeepsRequestedOrder() {
+		Film second = filmStorage.createFilm(new Film("Second", "Description", LocalDate.of(2000, 1, 1), 90));
+
+		List<Film> films = filmStorage.getFilmsByIds(List.of(second.getId(), 100L, film.getId()));
+
+		assertThat(films)
+			.extracting(Film::getName)
+			.containsExactly("Second", "Name");
+	}
+
 	@Test
 	void getFilmById() {
 		Optional<Film> filmOptional = filmStorage.getFilmById(film.getId());
@@ -75,6 +131,64 @@ class FilmDbStorageTest {
 			});
 	}
 
+	@Test
+	void getFilmByIdWithGenresAndDirectors() {
+		Director director = directorStorage.createDirector(new Director(null, "Director"));
+		genreStorage.addGenres(film.getId(), new LinkedHashSet<>(List.of(new Genre(2, "Драма"), new Genre(1, "Комедия"))));
+		directorStorage.addDirectors(film.getId(), Set.of(director));
+
+		Optional<Film> filmOptional = filmStorage.getFilmById(film.getId());
+
+		assertThat(filmOptional)
+			.isPresent()
+			.hasValueSatisfying(filmBase -> {
+				assertThat(filmBase.getGenres())
+					.extracting(Genre::getName)
+					.containsExactly("Комедия", "Драма");
+				assertThat(filmBase.getDirectors())
+					.extracting(Director::getName)
+					.containsExactly("Director");
+			});
+	}
+
+	@Test
+	void getFilmByIdServedFromCache() {
+		Film first = filmStorage.getFilmById(film.getId()).orElseThrow();
+		Film second = filmStorage.getFilmById(film.getId()).orElseThrow();
+
+		assertThat(second).isSameAs(first);
+	}
+
+	@Test
+	void cachedFilmEvictedOnAssociationChanges() {
+		Director director = directorStorage.createDirector(new Director(null, "Director"));
+		filmStorage.getFilmById(film.getId());
+
+		genreStorage.updateGenres(film.getId(), Set.of(new Genre(1, "Комедия")));
+		directorStorage.updateFilmDirectors(film.getId(), Set.of(director));
+		assertThat(filmStorage.getFilmById(film.getId()).orElseThrow().getGenres())
+			.extracting(Genre::getId)
+			.containsExactly(1);
+
+		director.setName("Renamed");
+		directorStorage.updateDirector(director);
+		assertThat(filmStorage.getFilmById(film.getId()).orElseThrow().getDirectors())
+			.extracting(Director::getName)
+			.containsExactly("Renamed");
+
+		directorStorage.deleteDirector(director.getId());
+		assertThat(filmStorage.getFilmById(film.getId()).orElseThrow().getDirectors()).isEmpty();
+	}
+
+	@Test
+	void cachedFilmEvictedOnDelete() {
+		filmStorage.getFilmById(film.getId());
+
+		filmStorage.deleteFilm(film.getId());
+
+		assertThat(filmStorage.getFilmById(film.getId())).isEmpty();
+	}
+
 	@Test
 	public void getFilmUnknownId() {
 		Optional<Film> filmOptional = filmStorage.getFilmById(100L);
@@ -5,23 +5,34 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import ru.yandex.practicum.filmorate.model.Friend;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmAssembler;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.FriendRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.MpaRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataRegistry;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @JdbcTest
-@Import({FriendDbStorage.class, FriendRowMapper.class, UserDbStorage.class, UserRowMapper.class, FilmRowMapper.class})
+@Import({FriendDbStorage.class, FriendRowMapper.class, UserDbStorage.class, UserRowMapper.class, FilmRowMapper.class, FilmAssembler.class,
+	ReferenceDataRegistry.class, MpaDbStorage.class, MpaRowMapper.class, GenreDbStorage.class, GenreRowMapper.class, FilmCache.class})
 @AutoConfigureTestDatabase
+@AutoConfigureJson
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FriendDbStorageTest {
 	private final FriendDbStorage friendStorage;
@@ -74,4 +85,12 @@ class FriendDbStorageTest {
 
 		assertThat(userFriends).isEmpty();
 	}
-}
\ No newline at end of file
+
+	@Test
+	void getFriendsWithUserData() {
+		assertThat(friendStorage.getFriends(userId))
+			.extracting(User::getId, User::getLogin)
+			.containsExactly(tuple(friendId, "LoginFriend"));
+		assertThat(friendStorage.getFriends(friendId)).isEmpty();
+	}
+}
@@ -5,14 +5,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmAssembler;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.MpaRowMapper;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataRegistry;
 
 import java.time.LocalDate;
 import java.util.LinkedHashSet;
@@ -24,8 +30,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @JdbcTest
-@Import({GenreDbStorage.class, GenreRowMapper.class, FilmDbStorage.class, FilmRowMapper.class})
+@Import({GenreDbStorage.class, GenreRowMapper.class, FilmDbStorage.class, FilmRowMapper.class, FilmAssembler.class, FilmCache.class,
+	ReferenceDataRegistry.class, MpaDbStorage.class, MpaRowMapper.class})
 @AutoConfigureTestDatabase
+@AutoConfigureJson
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class GenreDbStorageTest {
 	private static final String INSERT_COUNT_QUERY =
@@ -86,8 +94,8 @@ class GenreDbStorageTest {
 	}
 
 	@Test
-	void getGenresByFilm() {
-		Set<Genre> genres = genreStorage.getGenresByFilm(filmId);
+	void getFilmGenres() {
+		Set<Genre> genres = filmGenres();
 
 		assertThat(genres)
 			.isNotEmpty()
@@ -100,7 +108,7 @@ class GenreDbStorageTest {
 	void deleteGenres() {
 		genreStorage.deleteGenres(filmId);
 
-		Set<Genre> genres = genreStorage.getGenresByFilm(filmId);
+		Set<Genre> genres = filmGenres();
 
 		assertThat(genres).isEmpty();
 	}
@@ -109,7 +117,7 @@ class GenreDbStorageTest {
 	void updateGenres() {
 		genreSet.add(new Genre(3, "Мультфильм"));
 		genreStorage.updateGenres(filmId, genreSet);
-		Set<Genre> genres = genreStorage.getGenresByFilm(filmId);
+		Set<Genre> genres = filmGenres();
 
 		assertThat(genres)
 			.isNotEmpty()
@@ -117,4 +125,8 @@ class GenreDbStorageTest {
 			.extracting(Genre::getName)
 			.containsExactly("Комедия", "Драма", "Мультфильм");
 	}
-}
\ No newline at end of file
+
+	private Set<Genre> filmGenres() {
+		return filmStorage.getFilmById(filmId).orElseThrow().getGenres();
+	}
+}
@@ -5,11 +5,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmAssembler;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
@@ -17,19 +20,23 @@ import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.MpaRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.reference.ReferenceDataRegistry;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 @JdbcTest
-@Import({LikeDbStorage.class, FilmDbStorage.class, FilmRowMapper.class, UserDbStorage.class, UserRowMapper.class,
-	MpaDbStorage.class, MpaRowMapper.class, GenreDbStorage.class, GenreRowMapper.class})
+@Import({LikeDbStorage.class, FilmDbStorage.class, FilmRowMapper.class, FilmAssembler.class, FilmCache.class, UserDbStorage.class, UserRowMapper.class,
+	MpaDbStorage.class, MpaRowMapper.class, GenreDbStorage.class, GenreRowMapper.class, ReferenceDataRegistry.class})
 @AutoConfigureTestDatabase
+@AutoConfigureJson
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class LikeDbStorageTest {
 	private static final String INSERT_COUNT_QUERY = "SELECT COUNT(*) FROM likes WHERE film_id = ? AND user_id = ?";
+	private static final String LIKES_COUNT_QUERY = "SELECT likes_count FROM films WHERE film_id = ?";
 	private final LikeDbStorage likeStorage;
 	private final UserDbStorage userStorage;
 	private final FilmDbStorage filmStorage;
@@ -64,4 +71,44 @@ class LikeDbStorageTest {
 
 		assertEquals(0, count, "Лайк должен был удалиться из БД");
 	}
-}
\ No newline at end of file
+
+	@Test
+	void addLikeIncrementsLikesCount() {
+		Long count = jdbc.queryForObject(LIKES_COUNT_QUERY, Long.class, filmId);
+
+		assertEquals(1L, count, "Счётчик лайков должен увеличиться");
+	}
+
+	@Test
+	void addDuplicateLikeIsIgnored() {
+		boolean added = likeStorage.addLike(filmId, userId);
+
+		Long count = jdbc.queryForObject(LIKES_COUNT_QUERY, Long.class, filmId);
+
+		assertFalse(added, "Повторный лайк не должен сохраняться");
+		assertEquals(1L, count, "Повторный лайк не должен менять счётчик");
+	}
+
+	@Test
+	void deleteLikeDecrementsLikesCount() {
+		likeStorage.deleteLike(filmId, userId);
+		boolean deletedAgain = likeStorage.deleteLike(filmId, userId);
+
+		Long count = jdbc.queryForObject(LIKES_COUNT_QUERY, Long.class, filmId);
+
+		assertFalse(deletedAgain, "Удаление отсутствующего лайка не должно менять счётчик");
+		assertEquals(0L, count, "Счётчик лайков должен уменьшиться");
+	}
+
+	@Test
+	void repairLikesCount() {
+		jdbc.update("UPDATE films SET likes_count = 42 WHERE film_id = ?", filmId);
+
+		int repaired = likeStorage.repairLikesCount();
+
+		Long count = jdbc.queryForObject(LIKES_COUNT_QUERY, Long.class, filmId);
+
+		assertEquals(1, repaired, "Должен быть исправлен один фильм");
+		assertEquals(1L, count, "Счётчик лайков должен совпасть с таблицей likes");
+	}
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.storage.reference;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.MpaRowMapper;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Import({ReferenceDataRegistry.class, MpaDbStorage.class, MpaRowMapper.class, GenreDbStorage.class, GenreRowMapper.class,
+	FilmCache.class})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ReferenceDataRegistryTest {
+	private final ReferenceDataRegistry registry;
+	private final FilmCache filmCache;
+	private final JdbcTemplate jdbc;
+
+	@Test
+	void loadedOnStartup() {
+		assertThat(registry.getMpa())
+			.extracting(Mpa::getName)
+			.containsExactly("G", "PG", "PG-13", "R", "NC-17");
+		assertThat(registry.getGenres())
+			.hasSize(6)
+			.extracting(Genre::getId)
+			.containsExactly(1, 2, 3, 4, 5, 6);
+		assertThat(registry.getGenreById(100)).isEmpty();
+	}
+
+	@Test
+	void returnsSharedInstances() {
+		assertThat(registry.getMpaById(1).orElseThrow()).isSameAs(registry.getMpaById(1).orElseThrow());
+		assertThat(registry.getGenreById(2).orElseThrow()).isSameAs(registry.getGenreById(2).orElseThrow());
+	}
+
+	@Test
+	void refreshPicksUpNewRows() {
+		jdbc.update("INSERT INTO genre (genre_id, name) VALUES (100, 'Вестерн')");
+		filmCache.get(1L, () -> Optional.of(new Film()));
+
+		registry.refresh();
+
+		assertThat(filmCache.size()).isZero();
+
+		assertThat(registry.getGenres())
+			.extracting(Genre::getName)
+			.contains("Вестерн");
+	}
+}